@@ -0,0 +1,55 @@
+package com.cheemcheem.projects.energyusage.benchmark;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Readings like those of a prepaid smart meter, for benchmarks to run over.
+ */
+final class BenchmarkReadings {
+
+  /**
+   * Sizes every benchmark over readings runs at, from a few weeks of half hourly readings to a
+   * meter read every half hour for decades.
+   */
+  static final String SIZE_1K = "1000";
+  static final String SIZE_10K = "10000";
+  static final String SIZE_100K = "100000";
+  static final String SIZE_1M = "1000000";
+
+  static final LocalDateTime FIRST = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+  private BenchmarkReadings() {
+  }
+
+  /**
+   * @return half hourly readings in date order from {@link #FIRST}, going down by a little each
+   * time and topped up every so often, with the odd reading missed.
+   */
+  static List<EnergyReading> halfHourly(int size) {
+    var random = new Random(24);
+    var energyReadings = new ArrayList<EnergyReading>(size);
+    var date = FIRST;
+    var reading = 5_000_00L;
+    for (int i = 0; i < size; i++) {
+      energyReadings.add(new EnergyReading(date, BigDecimal.valueOf(reading, 2)));
+      date = date.plusMinutes(random.nextInt(50) == 0 ? 60 : 30);
+      reading -= random.nextInt(40);
+      if (reading < 10_00L) {
+        reading += 100_00L * (1 + random.nextInt(5));
+      }
+    }
+    return energyReadings;
+  }
+
+  /**
+   * @return date of the reading at the position, as near as the missed readings allow.
+   */
+  static LocalDateTime dateOf(List<EnergyReading> energyReadings, double position) {
+    return energyReadings.get((int) (position * (energyReadings.size() - 1))).getDate();
+  }
+}
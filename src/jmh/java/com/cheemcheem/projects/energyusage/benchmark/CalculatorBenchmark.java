@@ -0,0 +1,136 @@
+package com.cheemcheem.projects.energyusage.benchmark;
+
+import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.repository.SpendingRangeRepository;
+import com.cheemcheem.projects.energyusage.util.ArithmeticMode;
+import com.cheemcheem.projects.energyusage.util.Calculator;
+import com.cheemcheem.projects.energyusage.util.Granularity;
+import com.cheemcheem.projects.energyusage.util.index.EnergyReadingColumns;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Spending worked out by a {@link Calculator} over the readings of one user, indexed as the cache
+ * holds them, for each way the API asks for it.
+ *
+ * Windows are a month in the middle of the readings, and series cover every reading, so they grow
+ * with the number of readings as they do for a real meter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculatorBenchmark {
+
+  @Param({BenchmarkReadings.SIZE_1K, BenchmarkReadings.SIZE_10K, BenchmarkReadings.SIZE_100K,
+      BenchmarkReadings.SIZE_1M})
+  public int readings;
+
+  @Param({"BIG_DECIMAL", "FIXED_POINT"})
+  public ArithmeticMode arithmeticMode;
+
+  private Calculator calculator;
+  private LocalDateTime middle;
+  private LocalDateTime monthAfterMiddle;
+
+  @Setup
+  public void setUp() {
+    var energyReadings = BenchmarkReadings.halfHourly(this.readings);
+    var energyReadingColumns = EnergyReadingColumns.of(energyReadings).orElseThrow();
+    this.calculator = new Calculator(new SpendingRangeRepository(energyReadingColumns.getIndex()),
+        this.arithmeticMode);
+    this.middle = BenchmarkReadings.dateOf(energyReadings, 0.5);
+    this.monthAfterMiddle = this.middle.plusMonths(1);
+  }
+
+  /**
+   * Every other spending, apart from a series, is worked out by the calculateSpending behind this.
+   */
+  @Benchmark
+  public SpendingRange calculateSpendingBetweenDates() throws InvalidDateException {
+    return this.calculator.calculateSpendingBetweenDates(this.middle, this.monthAfterMiddle);
+  }
+
+  @Benchmark
+  public SpendingRange calculateAllSpending() {
+    return this.calculator.calculateAllSpending();
+  }
+
+  @Benchmark
+  public SpendingRange calculateSpendingAfterDate() {
+    return this.calculator.calculateSpendingAfterDate(this.middle);
+  }
+
+  @Benchmark
+  public SpendingRange calculateSpendingUntilDate() {
+    return this.calculator.calculateSpendingUntilDate(this.middle);
+  }
+
+  @Benchmark
+  public List<SpendingRange> calculateTotalDailySpending() {
+    return this.calculator.calculateTotalDailySpending();
+  }
+
+  @Benchmark
+  public List<SpendingRange> calculateTotalWeeklySpending() {
+    return this.calculator.calculateTotalWeeklySpending();
+  }
+
+  @Benchmark
+  public List<SpendingRange> calculateTotalMonthlySpending() {
+    return this.calculator.calculateTotalMonthlySpending();
+  }
+
+  @Benchmark
+  public List<SpendingRange> calculateAverageDailySpending() {
+    return this.calculator.calculateAverageDailySpending();
+  }
+
+  @Benchmark
+  public List<SpendingRange> calculateAverageWeeklySpending() {
+    return this.calculator.calculateAverageWeeklySpending();
+  }
+
+  @Benchmark
+  public List<SpendingRange> calculateAverageMonthlySpending() {
+    return this.calculator.calculateAverageMonthlySpending();
+  }
+
+  @Benchmark
+  public List<SpendingRange> calculateTotalSpending(Series series) {
+    return this.calculator.calculateTotalSpending(series.granularity, 15);
+  }
+
+  @Benchmark
+  public List<SpendingRange> calculateTotalSpendingBetweenDates(Series series)
+      throws InvalidDateException {
+    return this.calculator.calculateTotalSpending(this.middle, this.monthAfterMiddle,
+        series.granularity, 15);
+  }
+
+  /**
+   * Granularities of the series endpoint. Fifteen minute buckets over every reading are left out,
+   * as at a million readings they are more than the default heap holds.
+   */
+  @State(Scope.Benchmark)
+  public static class Series {
+
+    @Param({"HOURLY", "DAILY", "WEEKLY", "MONTHLY", "YEARLY", "BILLING_CYCLE"})
+    public Granularity granularity;
+  }
+}
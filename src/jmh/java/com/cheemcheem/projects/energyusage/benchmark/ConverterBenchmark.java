@@ -0,0 +1,210 @@
+package com.cheemcheem.projects.energyusage.benchmark;
+
+import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.util.converter.BigDecimalCodec;
+import com.cheemcheem.projects.energyusage.util.converter.LocalDateTimeCodec;
+import com.cheemcheem.projects.energyusage.util.converter.LocalDateTimeConverter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Conversions done for every DTO, by the codecs, by the {@link LocalDateTimeConverter} in front of
+ * them and by the synchronized formatters they replaced, from several threads at once as they are
+ * on a busy server.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConverterBenchmark {
+
+  private static final int SIZE = 1024;
+
+  private static final DateTimeFormatter CSV_FORMAT = DateTimeFormatter
+      .ofPattern(LocalDateTimeConverter.CSV_PATTERN);
+  private static final DateTimeFormatter ISO_FORMAT = DateTimeFormatter
+      .ofPattern(LocalDateTimeConverter.ISO_PATTERN);
+
+  private final LocalDateTime[] dates = new LocalDateTime[SIZE];
+  private final String[] csvDates = new String[SIZE];
+  private final String[] isoDates = new String[SIZE];
+  private final BigDecimal[] usages = new BigDecimal[SIZE];
+  private final String[] usageTexts = new String[SIZE];
+
+  private static synchronized LocalDateTime synchronizedParseCSV(String value) {
+    return LocalDateTime.parse(value, CSV_FORMAT);
+  }
+
+  private static synchronized LocalDateTime synchronizedParseISO(String value) {
+    return LocalDateTime.parse(value, ISO_FORMAT);
+  }
+
+  private static synchronized String synchronizedFormatISO(LocalDateTime value) {
+    return ISO_FORMAT.format(value);
+  }
+
+  @Setup
+  public void setUp() {
+    var random = new Random(16);
+    var start = LocalDateTime.of(2020, 1, 1, 0, 0);
+    for (int i = 0; i < SIZE; i++) {
+      dates[i] = start.plusMinutes(30L * random.nextInt(365 * 48));
+      csvDates[i] = CSV_FORMAT.format(dates[i]);
+      isoDates[i] = ISO_FORMAT.format(dates[i]);
+      usages[i] = BigDecimal.valueOf(random.nextInt(100_000), 2);
+      usageTexts[i] = usages[i].toString();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void parseCSVSynchronized(Blackhole blackhole) {
+    for (var csvDate : csvDates) {
+      blackhole.consume(synchronizedParseCSV(csvDate));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void parseCSVCodec(Blackhole blackhole) {
+    for (var csvDate : csvDates) {
+      blackhole.consume(LocalDateTimeCodec.parseCSV(csvDate));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void parseCSVConverter(Blackhole blackhole) throws InvalidDateException {
+    for (var csvDate : csvDates) {
+      blackhole.consume(LocalDateTimeConverter.parseCSV(csvDate));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void parseISOSynchronized(Blackhole blackhole) {
+    for (var isoDate : isoDates) {
+      blackhole.consume(synchronizedParseISO(isoDate));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void parseISOCodec(Blackhole blackhole) {
+    for (var isoDate : isoDates) {
+      blackhole.consume(LocalDateTimeCodec.parseISO(isoDate));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void parseISOConverter(Blackhole blackhole) throws InvalidDateException {
+    for (var isoDate : isoDates) {
+      blackhole.consume(LocalDateTimeConverter.parseISO(isoDate));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void formatISOSynchronized(Blackhole blackhole) {
+    for (var date : dates) {
+      blackhole.consume(synchronizedFormatISO(date));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void formatISOCodec(Blackhole blackhole) {
+    for (var date : dates) {
+      blackhole.consume(LocalDateTimeCodec.formatISO(date));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void formatISOConverter(Blackhole blackhole) {
+    for (var date : dates) {
+      blackhole.consume(LocalDateTimeConverter.formatISO(date));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void formatCSVConverter(Blackhole blackhole) {
+    for (var date : dates) {
+      blackhole.consume(LocalDateTimeConverter.formatCSV(date));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void appendISOCodec(Buffer buffer, Blackhole blackhole) {
+    for (var date : dates) {
+      buffer.builder.setLength(0);
+      blackhole.consume(LocalDateTimeCodec.appendISO(date, buffer.builder));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void parseDecimal(Blackhole blackhole) {
+    for (var usageText : usageTexts) {
+      blackhole.consume(new BigDecimal(usageText));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void parseDecimalCodec(Blackhole blackhole) {
+    for (var usageText : usageTexts) {
+      blackhole.consume(BigDecimalCodec.parse(usageText));
+    }
+  }
+
+  /**
+   * Usages are rounded first, as they are for DTOs, so no string is cached in them yet.
+   */
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void formatDecimal(Blackhole blackhole) {
+    for (var usage : usages) {
+      blackhole.consume(usage.setScale(3).toString());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void formatDecimalCodec(Blackhole blackhole) {
+    for (var usage : usages) {
+      blackhole.consume(BigDecimalCodec.format(usage.setScale(3)));
+    }
+  }
+
+  /**
+   * A builder for each thread, reused for every date it formats.
+   */
+  @State(Scope.Thread)
+  public static class Buffer {
+
+    private final StringBuilder builder = new StringBuilder(LocalDateTimeCodec.ISO_LENGTH);
+  }
+}
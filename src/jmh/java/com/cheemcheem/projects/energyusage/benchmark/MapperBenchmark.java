@@ -0,0 +1,95 @@
+package com.cheemcheem.projects.energyusage.benchmark;
+
+import com.cheemcheem.projects.energyusage.dto.EnergyReadingDTO;
+import com.cheemcheem.projects.energyusage.exception.InvalidBigDecimalException;
+import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.util.index.SpendingRangeColumns;
+import com.cheemcheem.projects.energyusage.util.mapper.DTOMapper;
+import com.cheemcheem.projects.energyusage.util.mapper.EnergyReadingsMapper;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Every reading of a user mapped to spending ranges, as they are when the cache misses, and to and
+ * from DTOs, as they are when all readings are listed or posted in a batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+  @Param({BenchmarkReadings.SIZE_1K, BenchmarkReadings.SIZE_10K, BenchmarkReadings.SIZE_100K,
+      BenchmarkReadings.SIZE_1M})
+  public int readings;
+
+  /**
+   * Readings as they come back from the database, in date order, so the mapper's sort only has to
+   * check them.
+   */
+  private EnergyReadingsMapper energyReadingsMapper;
+  private List<EnergyReading> energyReadings;
+  private List<EnergyReadingDTO> energyReadingDTOs;
+  private List<SpendingRange> spendingRanges;
+
+  @Setup
+  public void setUp() {
+    this.energyReadings = BenchmarkReadings.halfHourly(this.readings);
+    this.energyReadingsMapper = new EnergyReadingsMapper(new ArrayList<>(this.energyReadings));
+    this.spendingRanges = new ArrayList<>(this.energyReadingsMapper.getEnergyReadingsRange());
+    this.energyReadingDTOs = new ArrayList<>(this.readings);
+    for (var energyReading : this.energyReadings) {
+      this.energyReadingDTOs.add(DTOMapper.toEnergyReadingDTO(energyReading));
+    }
+  }
+
+  @Benchmark
+  public Collection<SpendingRange> getEnergyReadingsRange() {
+    return this.energyReadingsMapper.getEnergyReadingsRange();
+  }
+
+  @Benchmark
+  public SpendingRangeColumns getEnergyReadingsColumns() {
+    return this.energyReadingsMapper.getEnergyReadingsColumns();
+  }
+
+  @Benchmark
+  public void toSpendingRangeDTOs(Blackhole blackhole) {
+    for (var spendingRangeDTO : DTOMapper.toSpendingRangeDTOs(this.spendingRanges)) {
+      blackhole.consume(spendingRangeDTO);
+    }
+  }
+
+  @Benchmark
+  public void toEnergyReadingDTO(Blackhole blackhole) {
+    for (var energyReading : this.energyReadings) {
+      blackhole.consume(DTOMapper.toEnergyReadingDTO(energyReading));
+    }
+  }
+
+  @Benchmark
+  public void toEnergyReadingModel(Blackhole blackhole)
+      throws InvalidDateException, InvalidBigDecimalException {
+    for (var energyReadingDTO : this.energyReadingDTOs) {
+      blackhole.consume(DTOMapper.toEnergyReadingModel(energyReadingDTO));
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.cheemcheem.projects.energyusage.benchmark;
+
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.repository.SpendingRangeRepository;
+import com.cheemcheem.projects.energyusage.util.index.EnergyReadingColumns;
+import com.cheemcheem.projects.energyusage.util.mapper.EnergyReadingsMapper;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Spending ranges looked up between the dates of a day and of a month, at random positions, both
+ * from ranges indexed as the cache holds them and from a list of ranges indexed on first use.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpendingRangeRepositoryBenchmark {
+
+  private static final int WINDOWS = 256;
+
+  @Param({BenchmarkReadings.SIZE_1K, BenchmarkReadings.SIZE_10K, BenchmarkReadings.SIZE_100K,
+      BenchmarkReadings.SIZE_1M})
+  public int readings;
+
+  private SpendingRangeRepository columnRepository;
+  private SpendingRangeRepository listRepository;
+
+  private final LocalDateTime[] startDates = new LocalDateTime[WINDOWS];
+  private final LocalDateTime[] dayEndDates = new LocalDateTime[WINDOWS];
+  private final LocalDateTime[] monthEndDates = new LocalDateTime[WINDOWS];
+
+  @Setup
+  public void setUp() {
+    var energyReadings = BenchmarkReadings.halfHourly(this.readings);
+    this.columnRepository = new SpendingRangeRepository(
+        EnergyReadingColumns.of(energyReadings).orElseThrow().getIndex());
+    this.listRepository = new SpendingRangeRepository(
+        new EnergyReadingsMapper(new ArrayList<>(energyReadings)).getEnergyReadingsRange());
+    this.listRepository.getIndex();
+
+    var random = new Random(24);
+    for (int i = 0; i < WINDOWS; i++) {
+      this.startDates[i] = BenchmarkReadings.dateOf(energyReadings, random.nextDouble());
+      this.dayEndDates[i] = this.startDates[i].plusDays(1);
+      this.monthEndDates[i] = this.startDates[i].plusMonths(1);
+    }
+  }
+
+  private static void getBetweenDates(SpendingRangeRepository spendingRangeRepository,
+      LocalDateTime[] startDates, LocalDateTime[] endDates, Blackhole blackhole) {
+    for (int i = 0; i < WINDOWS; i++) {
+      Collection<SpendingRange> between = spendingRangeRepository
+          .getBetweenDates(startDates[i], endDates[i]);
+      // ranges are only a view until they are gone through
+      for (var spendingRange : between) {
+        blackhole.consume(spendingRange);
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(WINDOWS)
+  public void getBetweenDatesOfDay(Blackhole blackhole) {
+    getBetweenDates(this.columnRepository, this.startDates, this.dayEndDates, blackhole);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(WINDOWS)
+  public void getBetweenDatesOfMonth(Blackhole blackhole) {
+    getBetweenDates(this.columnRepository, this.startDates, this.monthEndDates, blackhole);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(WINDOWS)
+  public void getBetweenDatesOfDayFromList(Blackhole blackhole) {
+    getBetweenDates(this.listRepository, this.startDates, this.dayEndDates, blackhole);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(WINDOWS)
+  public void getBetweenDatesOfMonthFromList(Blackhole blackhole) {
+    getBetweenDates(this.listRepository, this.startDates, this.monthEndDates, blackhole);
+  }
+}
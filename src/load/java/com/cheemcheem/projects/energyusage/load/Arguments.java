@@ -0,0 +1,46 @@
+package com.cheemcheem.projects.energyusage.load;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Arguments of the form --name=value.
+ */
+final class Arguments {
+
+  private final Map<String, String> values;
+
+  private Arguments(Map<String, String> values) {
+    this.values = values;
+  }
+
+  /**
+   * @throws IllegalArgumentException if an argument is not of the form --name=value.
+   */
+  static Arguments parse(String[] args) {
+    var values = new HashMap<String, String>();
+    for (var arg : args) {
+      var equals = arg.indexOf('=');
+      if (!arg.startsWith("--") || equals < 0) {
+        throw new IllegalArgumentException(
+            "Argument '" + arg + "' is not of the form --name=value.");
+      }
+      values.put(arg.substring(2, equals), arg.substring(equals + 1));
+    }
+    return new Arguments(values);
+  }
+
+  String get(String name, String defaultValue) {
+    return this.values.getOrDefault(name, defaultValue);
+  }
+
+  int getInt(String name, int defaultValue) {
+    var value = this.values.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  double getDouble(String name, double defaultValue) {
+    var value = this.values.get(name);
+    return value == null ? defaultValue : Double.parseDouble(value);
+  }
+}
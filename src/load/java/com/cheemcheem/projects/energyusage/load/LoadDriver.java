@@ -0,0 +1,364 @@
+package com.cheemcheem.projects.energyusage.load;
+
+import com.cheemcheem.projects.energyusage.EnergyUsageApplication;
+import com.cheemcheem.projects.energyusage.dto.QueryDTO;
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.util.converter.LocalDateTimeConverter;
+import com.cheemcheem.projects.energyusage.util.mapper.DTOMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+
+/**
+ * Runs the application on an in memory H2 database with readings from a {@link
+ * MeterReadingGenerator}, then sends requests to every /api endpoint from many threads at once,
+ * and reports the throughput and latencies of each.
+ *
+ * <pre>
+ * --users=1 --years=2 --interval-minutes=30 --threads=16 --warmup-seconds=10 --seconds=30
+ * --include=regex --report=target/load-report.json
+ * </pre>
+ *
+ * Requests are made as the default user, as every request is, and /api is opened up so they do
+ * not need to log in. Endpoints that save readings add them after the generated ones, a minute
+ * apart, so they are all kept. Include only runs the endpoints whose names match, such as
+ * {@code --include=GET.*} to leave the data as it was generated.
+ */
+public final class LoadDriver {
+
+  private final HttpClient httpClient = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .build();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final String baseUrl;
+  private final LocalDateTime firstDate;
+  private final LocalDateTime lastDate;
+
+  /**
+   * Minutes after the last generated reading of the next reading to save.
+   */
+  private final AtomicLong nextMinute = new AtomicLong(1);
+
+  private LoadDriver(String baseUrl, LocalDateTime firstDate, LocalDateTime lastDate) {
+    this.baseUrl = baseUrl;
+    this.firstDate = firstDate;
+    this.lastDate = lastDate;
+  }
+
+  public static void main(String[] args) throws Exception {
+    var arguments = Arguments.parse(args);
+    var generator = MeterReadingGenerator.builder()
+        .users(arguments.getInt("users", 1))
+        .years(arguments.getInt("years", 2))
+        .interval(Duration.ofMinutes(arguments.getInt("interval-minutes", 30)))
+        .build();
+    var threads = arguments.getInt("threads", 16);
+    var warmup = Duration.ofSeconds(arguments.getInt("warmup-seconds", 10));
+    var measured = Duration.ofSeconds(arguments.getInt("seconds", 30));
+    var include = Pattern.compile(arguments.get("include", ".*"));
+    var report = Path.of(arguments.get("report", "target/load-report.json"));
+
+    // as arguments, so they take precedence over the application's own properties
+    var context = new SpringApplicationBuilder(EnergyUsageApplication.class, OpenApi.class).run(
+        "--server.port=0",
+        "--spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_ON_EXIT=FALSE",
+        "--spring.datasource.username=sa",
+        "--spring.datasource.password=",
+        "--spring.session.store-type=none",
+        "--spring.security.oauth2.client.registration.github.client-id=load",
+        "--spring.security.oauth2.client.registration.github.client-secret=load",
+        "--energy-usage.snapshot.path=",
+        "--logging.level.root=warn",
+        "--logging.level.com.cheemcheem=warn");
+    try {
+      int inserted;
+      try (var connection = context.getBean(DataSource.class).getConnection()) {
+        inserted = generator.insert(connection);
+      }
+      System.out.printf("Inserted %d readings of %d users.%n", inserted, generator.getUsers());
+
+      var port = context.getEnvironment().getProperty("local.server.port");
+      var lastDate = generator.getStart().plusYears(generator.getYears());
+      var driver = new LoadDriver("http://localhost:" + port, generator.getStart(), lastDate);
+      // rollups are built once, as they would have been as the readings were saved
+      driver.send(driver.post("/api/rollup/rebuild", "application/json", ""));
+
+      var endpoints = driver.endpoints().entrySet().stream()
+          .filter(endpoint -> include.matcher(endpoint.getKey()).matches())
+          .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a,
+              LinkedHashMap::new));
+      var results = driver.run(endpoints, threads, warmup, measured);
+
+      print(results, measured);
+      Files.createDirectories(report.toAbsolutePath().getParent());
+      driver.objectMapper.enable(SerializationFeature.INDENT_OUTPUT)
+          .writeValue(report.toFile(), results);
+      System.out.println("Wrote results to " + report + ".");
+    } finally {
+      context.close();
+    }
+  }
+
+  /**
+   * Sends requests to the endpoints from each thread in turn, starting at a different endpoint on
+   * each, until the warmup and measured time are up. Only requests started after the warmup are
+   * counted.
+   */
+  private List<EndpointResult> run(Map<String, Supplier<HttpRequest>> endpoints, int threads,
+      Duration warmup, Duration measured) throws InterruptedException {
+    var names = new ArrayList<>(endpoints.keySet());
+    var latencies = new ConcurrentHashMap<String, Latencies>();
+    names.forEach(name -> latencies.put(name, new Latencies()));
+
+    var measureFrom = System.nanoTime() + warmup.toNanos();
+    var until = measureFrom + measured.toNanos();
+    System.out.printf("Sending requests to %d endpoints from %d threads for %ds.%n",
+        names.size(), threads, warmup.plus(measured).toSeconds());
+
+    var executor = Executors.newFixedThreadPool(threads);
+    for (int thread = 0; thread < threads; thread++) {
+      var first = thread;
+      executor.execute(() -> {
+        for (int i = first; System.nanoTime() < until; i++) {
+          var name = names.get(i % names.size());
+          var request = endpoints.get(name).get();
+          var started = System.nanoTime();
+          var ok = send(request);
+          if (started >= measureFrom) {
+            latencies.get(name).record(System.nanoTime() - started, ok);
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(warmup.plus(measured).plusMinutes(5).toSeconds(), TimeUnit.SECONDS);
+
+    return names.stream()
+        .map(name -> latencies.get(name).toResult(name, measured))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return whether the response was not an error.
+   */
+  private boolean send(HttpRequest request) {
+    try {
+      return this.httpClient.send(request, BodyHandlers.discarding()).statusCode() < 400;
+    } catch (IOException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private Map<String, Supplier<HttpRequest>> endpoints() {
+    var endpoints = new LinkedHashMap<String, Supplier<HttpRequest>>();
+    for (var path : List.of("/api/spending/daily/all", "/api/spending/weekly/all",
+        "/api/spending/monthly/all", "/api/spending/all", "/api/average/all",
+        "/api/average/daily/all", "/api/average/weekly/all", "/api/average/monthly/all",
+        "/api/average/monthly/last", "/api/reading/all", "/api/reading/last",
+        "/api/cache/statistics", "/api/cache/responses/statistics", "/api/ready", "/api/user",
+        "/api/private")) {
+      endpoints.put("GET " + path, () -> get(path, "application/json"));
+    }
+    endpoints.put("GET /api/spending/series",
+        () -> get("/api/spending/series?granularity=DAILY" + window(), "application/json"));
+    endpoints.put("GET /api/spending/series ndjson",
+        () -> get("/api/spending/series?granularity=HOURLY" + window(), "application/x-ndjson"));
+    endpoints.put("GET /api/spending/from",
+        () -> get("/api/spending/from?startDate=" + date(randomDate()), "application/json"));
+    endpoints.put("GET /api/spending/to",
+        () -> get("/api/spending/to?endDate=" + date(randomDate()), "application/json"));
+    for (var path : List.of("/api/spending/between", "/api/average/between",
+        "/api/average/daily", "/api/average/weekly", "/api/average/monthly")) {
+      endpoints.put("GET " + path, () -> get(path + "?" + window().substring(1),
+          "application/json"));
+    }
+
+    endpoints.put("POST /api/query", () -> post("/api/query", "application/json", json(List.of(
+        new QueryDTO(QueryDTO.Type.SPENDING, QueryDTO.Granularity.TOTAL, null, null, null),
+        new QueryDTO(QueryDTO.Type.SPENDING, QueryDTO.Granularity.MONTHLY, null, null, null),
+        new QueryDTO(QueryDTO.Type.AVERAGE, QueryDTO.Granularity.DAY_GAP, null, null, 14)))));
+    endpoints.put("POST /api/reading/add", () -> post("/api/reading/add", "application/json",
+        json(DTOMapper.toEnergyReadingDTO(newReadings(1).get(0)))));
+    endpoints.put("POST /api/reading/batch", () -> post("/api/reading/batch",
+        "application/json", json(newReadings(48).stream()
+            .map(DTOMapper::toEnergyReadingDTO)
+            .collect(Collectors.toList()))));
+    endpoints.put("POST /api/reading/import", () -> post("/api/reading/import", "text/csv",
+        newReadings(48).stream()
+            .map(reading -> LocalDateTimeConverter.formatCSV(reading.getDate()) + ","
+                + reading.getReading().toPlainString())
+            .collect(Collectors.joining("\n"))));
+    endpoints.put("POST /api/rollup/rebuild",
+        () -> post("/api/rollup/rebuild", "application/json", ""));
+    return endpoints;
+  }
+
+  /**
+   * @return readings after every other one, going down a penny a minute and topped up every so
+   * often.
+   */
+  private List<EnergyReading> newReadings(int count) {
+    var minute = this.nextMinute.getAndAdd(count);
+    var readings = new ArrayList<EnergyReading>(count);
+    for (long i = minute; i < minute + count; i++) {
+      readings.add(new EnergyReading(this.lastDate.plusMinutes(i),
+          BigDecimal.valueOf(50_00 - i % 4_000, 2)));
+    }
+    return readings;
+  }
+
+  /**
+   * @return query parameters of a month of readings, starting at a random day.
+   */
+  private String window() {
+    var startDate = randomDate();
+    return "&startDate=" + date(startDate) + "&endDate=" + date(startDate.plusMonths(1));
+  }
+
+  private LocalDateTime randomDate() {
+    var days = Duration.between(this.firstDate, this.lastDate).toDays();
+    return this.firstDate.plusDays(ThreadLocalRandom.current().nextLong(Math.max(days - 31, 1)));
+  }
+
+  private static String date(LocalDateTime date) {
+    return URLEncoder.encode(LocalDateTimeConverter.formatCSV(date), StandardCharsets.UTF_8);
+  }
+
+  private String json(Object body) {
+    try {
+      return this.objectMapper.writeValueAsString(body);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private HttpRequest get(String path, String accept) {
+    return HttpRequest.newBuilder(URI.create(this.baseUrl + path))
+        .header("Accept", accept)
+        .GET()
+        .build();
+  }
+
+  private HttpRequest post(String path, String contentType, String body) {
+    return HttpRequest.newBuilder(URI.create(this.baseUrl + path))
+        .header("Content-Type", contentType)
+        .POST(BodyPublishers.ofString(body))
+        .build();
+  }
+
+  private static void print(List<EndpointResult> results, Duration measured) {
+    System.out.printf("%n%-40s %9s %7s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors",
+        "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+    for (var result : results) {
+      System.out.printf("%-40s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", result.getEndpoint(),
+          result.getRequests(), result.getErrors(), result.getThroughput(), result.getP50(),
+          result.getP95(), result.getP99(), result.getMax());
+    }
+    var requests = results.stream().mapToLong(EndpointResult::getRequests).sum();
+    System.out.printf("%nTotal %d requests, %.1f req/s.%n", requests,
+        requests / (double) measured.toSeconds());
+  }
+
+  /**
+   * Opens up /api, ahead of the application's own security, so requests do not need to log in.
+   */
+  @Order(1)
+  static class OpenApi extends WebSecurityConfigurerAdapter {
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+      http.antMatcher("/api/**")
+          .authorizeRequests(a -> a.anyRequest().permitAll())
+          .csrf(c -> c.disable());
+    }
+  }
+
+  /**
+   * Latencies of the requests sent to an endpoint.
+   */
+  private static class Latencies {
+
+    private long[] nanos = new long[1024];
+    private int count;
+    private long errors;
+
+    private synchronized void record(long latency, boolean ok) {
+      if (this.count == this.nanos.length) {
+        this.nanos = Arrays.copyOf(this.nanos, this.count * 2);
+      }
+      this.nanos[this.count++] = latency;
+      if (!ok) {
+        this.errors++;
+      }
+    }
+
+    private synchronized EndpointResult toResult(String endpoint, Duration measured) {
+      var sorted = Arrays.copyOf(this.nanos, this.count);
+      Arrays.sort(sorted);
+      return new EndpointResult(endpoint, this.count, this.errors,
+          this.count / (double) measured.toSeconds(), percentile(sorted, 50),
+          percentile(sorted, 95), percentile(sorted, 99), percentile(sorted, 100));
+    }
+
+    /**
+     * @return latency in milliseconds that the percentage of requests took no longer than.
+     */
+    private static double percentile(long[] sorted, int percentage) {
+      if (sorted.length == 0) {
+        return 0;
+      }
+      var rank = (int) Math.ceil(percentage / 100.0 * sorted.length);
+      return sorted[Math.max(rank, 1) - 1] / 1e6;
+    }
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class EndpointResult {
+
+    private final String endpoint;
+    private final long requests;
+    private final long errors;
+    private final double throughput;
+    private final double p50;
+    private final double p95;
+    private final double p99;
+    private final double max;
+  }
+}
@@ -0,0 +1,266 @@
+package com.cheemcheem.projects.energyusage.load;
+
+import com.cheemcheem.projects.energyusage.util.converter.LocalDateTimeConverter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Random;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Generates the readings of prepaid smart meters, which count down the credit left on them.
+ *
+ * Credit is used every interval, more in the evening and less at night. It is topped up once it
+ * runs low, so readings go up as well as down, as {@link
+ * com.cheemcheem.projects.energyusage.util.mapper.EnergyReadingsMapper} expects. Every so often
+ * the meter stops reporting for a while, leaving a gap in the readings, although credit is still
+ * used during it.
+ *
+ * Readings are the same for the same settings, and are either written as csv files like the
+ * input csv, or inserted into the database of the application for users 1 to the number of users.
+ */
+@Getter
+@Builder
+public class MeterReadingGenerator {
+
+  /**
+   * Readings are inserted this many at a time.
+   */
+  private static final int BATCH_SIZE = 1000;
+
+  @Builder.Default
+  private final int users = 1;
+
+  @Builder.Default
+  private final LocalDateTime start = LocalDateTime.of(2019, 1, 1, 0, 0);
+
+  @Builder.Default
+  private final int years = 1;
+
+  @Builder.Default
+  private final Duration interval = Duration.ofMinutes(30);
+
+  /**
+   * Credit used in an average hour.
+   */
+  @Builder.Default
+  private final BigDecimal hourlyUsage = new BigDecimal("0.08");
+
+  @Builder.Default
+  private final BigDecimal startingCredit = new BigDecimal("50.00");
+
+  /**
+   * Credit is topped up by the top up amount as soon as it is less than this.
+   */
+  @Builder.Default
+  private final BigDecimal topUpBelow = new BigDecimal("5.00");
+
+  @Builder.Default
+  private final BigDecimal topUpAmount = new BigDecimal("30.00");
+
+  /**
+   * Chance of a gap starting after each reading, which lasts up to the max gap.
+   */
+  @Builder.Default
+  private final double gapChance = 0.001;
+
+  @Builder.Default
+  private final Duration maxGap = Duration.ofDays(3);
+
+  @Builder.Default
+  private final long seed = 25;
+
+  /**
+   * Writes readings to csv files, or inserts them into a database with SQL, as told to.
+   *
+   * <pre>
+   * --users=1 --years=1 --interval-minutes=30 --gap-chance=0.001 --format=csv|sql --out=path
+   * </pre>
+   *
+   * A single user's readings are written to the out file as csv. Several users' are each written
+   * to their own file in the out directory. SQL is written to the out file for every user.
+   */
+  public static void main(String[] args) throws IOException {
+    var arguments = Arguments.parse(args);
+    var generator = MeterReadingGenerator.builder()
+        .users(arguments.getInt("users", 1))
+        .years(arguments.getInt("years", 1))
+        .interval(Duration.ofMinutes(arguments.getInt("interval-minutes", 30)))
+        .gapChance(arguments.getDouble("gap-chance", 0.001))
+        .build();
+    var format = arguments.get("format", "csv");
+    var out = Path.of(arguments.get("out", "sql".equals(format) ? "readings.sql" : "input.csv"));
+
+    if ("sql".equals(format)) {
+      try (var writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+        generator.writeSQL(writer);
+      }
+    } else if (generator.users == 1) {
+      try (var writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+        generator.writeCSV(1, writer);
+      }
+    } else {
+      Files.createDirectories(out);
+      for (int userId = 1; userId <= generator.users; userId++) {
+        try (var writer = Files.newBufferedWriter(out.resolve("readings-" + userId + ".csv"),
+            StandardCharsets.UTF_8)) {
+          generator.writeCSV(userId, writer);
+        }
+      }
+    }
+    System.out.println("Wrote " + format + " readings of " + generator.users + " users to " + out
+        + ".");
+  }
+
+  /**
+   * Calls the consumer with each reading of the user in date order.
+   */
+  public <E extends Exception> void forEachReading(int userId, ReadingConsumer<E> consumer)
+      throws E {
+    var random = new Random(this.seed * 31 + userId);
+    var end = this.start.plusYears(this.years);
+    var intervalHours = this.interval.toMillis() / 3_600_000.0;
+    var hourlyPence = this.hourlyUsage.movePointRight(2).doubleValue();
+    var topUpBelowPence = this.topUpBelow.movePointRight(2).longValueExact();
+    var topUpPence = this.topUpAmount.movePointRight(2).longValueExact();
+
+    var credit = this.startingCredit.movePointRight(2).longValueExact();
+    var used = 0.0;
+    var gapUntil = this.start;
+    for (var date = this.start; date.isBefore(end); date = date.plus(this.interval)) {
+      if (!date.isBefore(gapUntil)) {
+        consumer.accept(date, BigDecimal.valueOf(credit, 2));
+        if (random.nextDouble() < this.gapChance) {
+          gapUntil = date.plus(Duration.ofMillis(
+              (long) (random.nextDouble() * this.maxGap.toMillis())));
+        }
+      }
+
+      // whole pence are taken off as they add up, so short intervals still use credit
+      used += hourlyPence * intervalHours * dailyProfile(date) * (0.5 + random.nextDouble());
+      var pence = (long) used;
+      used -= pence;
+      credit -= pence;
+      if (credit < topUpBelowPence) {
+        credit += topUpPence;
+      }
+    }
+  }
+
+  /**
+   * Writes the readings of the user as rows of date and reading, as meter exports are.
+   */
+  public void writeCSV(int userId, Writer writer) throws IOException {
+    var bufferedWriter = new BufferedWriter(writer);
+    forEachReading(userId, (date, reading) -> {
+      bufferedWriter.write(LocalDateTimeConverter.formatCSV(date));
+      bufferedWriter.write(',');
+      bufferedWriter.write(reading.toPlainString());
+      bufferedWriter.write('\n');
+    });
+    bufferedWriter.flush();
+  }
+
+  /**
+   * Writes SQL that inserts every user and their readings, then moves the id sequence on past
+   * them, for H2 and PostgreSQL.
+   */
+  public void writeSQL(Writer writer) throws IOException {
+    var bufferedWriter = new BufferedWriter(writer);
+    for (int userId = 1; userId <= this.users; userId++) {
+      bufferedWriter.write("INSERT INTO user_table (user_id) VALUES (" + userId + ");\n");
+    }
+
+    var id = new int[]{this.users};
+    var inBatch = new int[]{0};
+    for (int userId = 1; userId <= this.users; userId++) {
+      var user = userId;
+      forEachReading(userId, (date, reading) -> {
+        bufferedWriter.write(inBatch[0] == 0
+            ? "INSERT INTO energy_reading (energy_reading_id, date, reading, user_id) VALUES\n"
+            : ",\n");
+        bufferedWriter.write("(" + ++id[0] + ", TIMESTAMP '" + Timestamp.valueOf(date) + "', "
+            + reading.toPlainString() + ", " + user + ")");
+        if (++inBatch[0] == BATCH_SIZE) {
+          bufferedWriter.write(";\n");
+          inBatch[0] = 0;
+        }
+      });
+    }
+    if (inBatch[0] > 0) {
+      bufferedWriter.write(";\n");
+    }
+    bufferedWriter.write("ALTER SEQUENCE hibernate_sequence RESTART WITH " + (id[0] + 1) + ";\n");
+    bufferedWriter.flush();
+  }
+
+  /**
+   * Inserts the same as {@link #writeSQL(Writer)}, in batches.
+   *
+   * @return number of readings inserted.
+   */
+  public int insert(Connection connection) throws SQLException {
+    try (var users = connection.prepareStatement(
+        "INSERT INTO user_table (user_id) VALUES (?)")) {
+      for (int userId = 1; userId <= this.users; userId++) {
+        users.setInt(1, userId);
+        users.addBatch();
+      }
+      users.executeBatch();
+    }
+
+    var id = new int[]{this.users};
+    try (var readings = connection.prepareStatement("INSERT INTO energy_reading"
+        + " (energy_reading_id, date, reading, user_id) VALUES (?, ?, ?, ?)")) {
+      for (int userId = 1; userId <= this.users; userId++) {
+        var user = userId;
+        forEachReading(userId, (date, reading) -> {
+          readings.setInt(1, ++id[0]);
+          readings.setTimestamp(2, Timestamp.valueOf(date));
+          readings.setBigDecimal(3, reading);
+          readings.setInt(4, user);
+          readings.addBatch();
+          if ((id[0] - this.users) % BATCH_SIZE == 0) {
+            readings.executeBatch();
+          }
+        });
+      }
+      readings.executeBatch();
+    }
+
+    try (var statement = connection.createStatement()) {
+      statement.execute("ALTER SEQUENCE hibernate_sequence RESTART WITH " + (id[0] + 1));
+    }
+    return id[0] - this.users;
+  }
+
+  /**
+   * @return how much more or less credit than average is used at the time of day.
+   */
+  private static double dailyProfile(LocalDateTime date) {
+    var hour = date.getHour();
+    if (hour < 6) {
+      return 0.5;
+    }
+    if (hour >= 17 && hour < 22) {
+      return 1.8;
+    }
+    return 0.9;
+  }
+
+  @FunctionalInterface
+  public interface ReadingConsumer<E extends Exception> {
+
+    void accept(LocalDateTime date, BigDecimal reading) throws E;
+  }
+}
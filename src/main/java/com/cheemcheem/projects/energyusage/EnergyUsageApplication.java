@@ -29,7 +29,7 @@ public class EnergyUsageApplication
     http
         .authorizeRequests(a -> a
             .antMatchers("/**/*.{js,html,css}").permitAll()
-            .antMatchers("/", "/error").permitAll()
+            .antMatchers("/", "/error", "/api/ready").permitAll()
             .anyRequest().authenticated()
         )
         .logout(l -> l
@@ -12,9 +12,15 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class AuthInterceptorConfiguration implements WebMvcConfigurer {
 
   private final AuthInterceptor authInterceptor;
+  private final DataVersionInterceptor dataVersionInterceptor;
+  private final ResponseCacheInterceptor responseCacheInterceptor;
   @Override
   public void addInterceptors(InterceptorRegistry registry) {
     registry.addInterceptor(authInterceptor);
+    registry.addInterceptor(dataVersionInterceptor)
+        .addPathPatterns(DataVersionInterceptor.PATH_PATTERNS);
+    registry.addInterceptor(responseCacheInterceptor)
+        .addPathPatterns(DataVersionInterceptor.PATH_PATTERNS);
   }
 
 }
@@ -0,0 +1,104 @@
+package com.cheemcheem.projects.energyusage.config;
+
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.service.DataVersionService;
+import com.cheemcheem.projects.energyusage.util.Constants;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Gives analytics responses a strong ETag from the {@link DataVersionService data version} of the
+ * user and the request, and answers a matching If-None-Match with 304 Not Modified before the
+ * controller is called, so nothing is calculated for it.
+ *
+ * The version is read before the response is worked out, so a response never claims a version
+ * newer than the readings it was worked out from. Must run after the interceptor that sets the
+ * user.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DataVersionInterceptor implements HandlerInterceptor {
+
+  /**
+   * Paths of the responses worked out only from the readings of the user.
+   */
+  public static final String[] PATH_PATTERNS = {"/api/spending/**", "/api/average/**"};
+
+  private static final int REQUEST_HASH_BYTES = 16;
+
+  private final DataVersionService dataVersionService;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    log.debug("DataVersionInterceptor.preHandle");
+    if (!HttpMethod.GET.matches(request.getMethod())
+        && !HttpMethod.HEAD.matches(request.getMethod())) {
+      return true;
+    }
+    var user = (User) request.getAttribute(Constants.USER_ID_ATTRIBUTE_KEY);
+    if (user == null) {
+      return true;
+    }
+
+    var version = dataVersionService.getVersion(user.getUserId());
+    var eTag = "\"" + Long.toHexString(dataVersionService.getEpoch()) + "-" + user.getUserId()
+        + "-" + version + "-" + hashRequest(request) + "\"";
+
+    // cached, but only used once checked with this ETag
+    response.setHeader(HttpHeaders.CACHE_CONTROL,
+        CacheControl.noCache().cachePrivate().getHeaderValue());
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+      log.debug("Readings of user {} still at version {}, not modified.", user.getUserId(),
+          version);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return everything in the request that the response depends on other than the readings, with
+   * the parameters in name order.
+   */
+  static String describeRequest(HttpServletRequest request) {
+    var description = new StringBuilder(request.getServletPath());
+    for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap())
+        .entrySet()) {
+      description.append('\0').append(parameter.getKey()).append('=')
+          .append(Arrays.toString(parameter.getValue()));
+    }
+    var accept = request.getHeader(HttpHeaders.ACCEPT);
+    return description.append('\0').append(accept == null ? "" : accept).toString();
+  }
+
+  private static String hashRequest(HttpServletRequest request) {
+    var hash = getDigest().digest(describeRequest(request).getBytes(StandardCharsets.UTF_8));
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(Arrays.copyOf(hash, REQUEST_HASH_BYTES));
+  }
+
+  private static MessageDigest getDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is always available.", e);
+    }
+  }
+}
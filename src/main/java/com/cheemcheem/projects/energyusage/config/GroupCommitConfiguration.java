@@ -0,0 +1,39 @@
+package com.cheemcheem.projects.energyusage.config;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.service.EnergyReadingService;
+import com.cheemcheem.projects.energyusage.util.GroupCommitQueue;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class GroupCommitConfiguration {
+
+  /**
+   * Saves readings posted one at a time together with others posted at the same time, unless
+   * disabled, in which case each is saved as it is posted.
+   */
+  @Bean(destroyMethod = "close")
+  public GroupCommitQueue<EnergyReading> energyReadingCommitQueue(
+      EnergyReadingService energyReadingService,
+      @Value("${energy-usage.group-commit.enabled:true}") boolean enabled,
+      @Value("${energy-usage.group-commit.capacity:10000}") int capacity,
+      @Value("${energy-usage.group-commit.max-size:500}") int maxSize,
+      @Value("${energy-usage.group-commit.max-latency-ms:5}") long maxLatencyMillis,
+      @Value("${energy-usage.group-commit.max-wait-ms:30000}") long maxWaitMillis
+  ) {
+    if (!enabled) {
+      return GroupCommitQueue.direct(energyReadingService::commitReadings,
+          energyReadingService::readingsSaved);
+    }
+    log.info("Saving up to {} readings at once, waiting at most {}ms for them.", maxSize,
+        maxLatencyMillis);
+    return GroupCommitQueue.withThread("reading-group-commit",
+        energyReadingService::commitReadings, energyReadingService::readingsSaved, capacity,
+        maxSize, Duration.ofMillis(maxLatencyMillis), Duration.ofMillis(maxWaitMillis));
+  }
+}
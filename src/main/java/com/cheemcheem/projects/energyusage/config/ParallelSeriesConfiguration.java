@@ -0,0 +1,29 @@
+package com.cheemcheem.projects.energyusage.config;
+
+import com.cheemcheem.projects.energyusage.util.ParallelSeries;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class ParallelSeriesConfiguration {
+
+  /**
+   * Serial unless enabled, and using every core unless told how many threads to use.
+   */
+  @Bean(destroyMethod = "close")
+  public ParallelSeries parallelSeries(
+      @Value("${energy-usage.parallel.enabled:false}") boolean enabled,
+      @Value("${energy-usage.parallel.threads:0}") int threads,
+      @Value("${energy-usage.parallel.threshold:2048}") int threshold
+  ) {
+    if (!enabled) {
+      return ParallelSeries.SERIAL;
+    }
+    var poolThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    log.info("Calculating series of at least {} buckets on {} threads.", threshold, poolThreads);
+    return ParallelSeries.withThreads(poolThreads, threshold);
+  }
+}
@@ -0,0 +1,60 @@
+package com.cheemcheem.projects.energyusage.config;
+
+import com.cheemcheem.projects.energyusage.service.ResponseCache;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Keeps the body of analytics responses as they are written, and puts them in the {@link
+ * ResponseCache} under the key the {@link ResponseCacheInterceptor} left for them, along with how
+ * long they took.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+  private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+  private final ResponseCache responseCache;
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !responseCache.isEnabled()
+        || !ResponseCacheInterceptor.isCacheable(request)
+        || Arrays.stream(DataVersionInterceptor.PATH_PATTERNS)
+        .noneMatch(pattern -> PATH_MATCHER.match(pattern, request.getServletPath()));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    var wrapper = new ContentCachingResponseWrapper(response);
+    var start = System.nanoTime();
+    try {
+      filterChain.doFilter(request, wrapper);
+
+      var key = (ResponseCache.Key) request
+          .getAttribute(ResponseCacheInterceptor.KEY_ATTRIBUTE);
+      if (key != null && wrapper.getStatus() == HttpStatus.OK.value()
+          && !request.isAsyncStarted()) {
+        responseCache.put(key,
+            new ResponseCache.Response(wrapper.getContentType(), wrapper.getContentAsByteArray()),
+            System.nanoTime() - start);
+      }
+    } finally {
+      wrapper.copyBodyToResponse();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.cheemcheem.projects.energyusage.config;
+
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.service.DataVersionService;
+import com.cheemcheem.projects.energyusage.service.ResponseCache;
+import com.cheemcheem.projects.energyusage.util.Constants;
+import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Answers analytics requests from the {@link ResponseCache} when it can, before the controller is
+ * called. Otherwise leaves the key of the request for the {@link ResponseCacheFilter} to cache the
+ * response under.
+ *
+ * Must run after the {@link DataVersionInterceptor}, so requests it answers with 304 Not Modified
+ * never get here.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ResponseCacheInterceptor implements HandlerInterceptor {
+
+  /**
+   * Request attribute holding the {@link ResponseCache.Key} to cache the response under.
+   */
+  public static final String KEY_ATTRIBUTE = ResponseCacheInterceptor.class.getName() + ".KEY";
+
+  private final DataVersionService dataVersionService;
+  private final ResponseCache responseCache;
+
+  /**
+   * @return whether responses to the request can be cached, which they cannot be when streamed.
+   */
+  static boolean isCacheable(HttpServletRequest request) {
+    var accept = request.getHeader(HttpHeaders.ACCEPT);
+    return HttpMethod.GET.matches(request.getMethod())
+        && (accept == null || !accept.contains(Constants.NDJSON_MEDIA_TYPE));
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) throws IOException {
+    log.debug("ResponseCacheInterceptor.preHandle");
+    if (!responseCache.isEnabled() || !isCacheable(request)) {
+      return true;
+    }
+    var user = (User) request.getAttribute(Constants.USER_ID_ATTRIBUTE_KEY);
+    if (user == null) {
+      return true;
+    }
+
+    var key = responseCache.getKey(user.getUserId(),
+        DataVersionInterceptor.describeRequest(request),
+        dataVersionService.getVersion(user.getUserId()));
+    var cached = responseCache.get(key);
+    if (cached == null) {
+      request.setAttribute(KEY_ATTRIBUTE, key);
+      return true;
+    }
+
+    log.debug("Answering request of user {} from the response cache.", user.getUserId());
+    response.setContentType(cached.getContentType());
+    response.setContentLength(cached.getBody().length);
+    response.getOutputStream().write(cached.getBody());
+    return false;
+  }
+}
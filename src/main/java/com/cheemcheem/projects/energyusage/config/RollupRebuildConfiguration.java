@@ -0,0 +1,55 @@
+package com.cheemcheem.projects.energyusage.config;
+
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.repository.UserRepository;
+import com.cheemcheem.projects.energyusage.service.ReadinessService;
+import com.cheemcheem.projects.energyusage.service.ReadinessService.Load;
+import com.cheemcheem.projects.energyusage.service.RollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the rollups of every user in the background when the application starts, if told to,
+ * such as after changing how they are totalled. The application is not ready until they have all
+ * been rebuilt.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class RollupRebuildConfiguration implements org.springframework.boot.CommandLineRunner {
+
+  private final UserRepository userRepository;
+  private final RollupService rollupService;
+  private final ReadinessService readinessService;
+
+  @Value("${energy-usage.rollup.rebuild-on-startup:false}")
+  private boolean rebuildOnStartup;
+
+  @Override
+  public void run(String... args) {
+    if (!this.rebuildOnStartup) {
+      return;
+    }
+    var load = this.readinessService.begin("rollups");
+    var thread = new Thread(() -> rebuildAll(load), "rollup-rebuild");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void rebuildAll(Load load) {
+    try {
+      var userIds = this.userRepository.findAllUserIds();
+      log.info("Rebuilding rollups of all {} users.", userIds.size());
+      load.stage("rebuilding rollups", userIds.size());
+      for (var userId : userIds) {
+        this.rollupService.rebuild(User.builder().userId(userId).build());
+        load.progress(1);
+      }
+      load.finish();
+    } catch (RuntimeException e) {
+      load.fail(e);
+    }
+  }
+}
@@ -1,9 +1,6 @@
 package com.cheemcheem.projects.energyusage.config.csv;
 
-import com.cheemcheem.projects.energyusage.model.User;
 import com.cheemcheem.projects.energyusage.util.importer.EnergyReadingsFileReader;
-import java.io.IOException;
-import java.util.HashSet;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,18 +17,15 @@ public class CSVFileConfiguration {
   @NonNull
   private final String csvPath;
 
+  /**
+   * Only finds the input csv file, which {@link CSVUserConfiguration} reads in the background.
+   */
   @Bean
-  public User defaultUser() throws IOException {
-    log.info("Reading CSV from input csv file.");
+  public EnergyReadingsFileReader energyReadingsFileReader() {
     log.debug("CSV path {}", csvPath);
-    var csvBeanCreator = new EnergyReadingsFileReader(this.csvPath);
-    csvBeanCreator.initialise();
-    var energyReadings = csvBeanCreator.getEnergyReadings();
-
-    return User.builder()
-        .energyReading(new HashSet<>(energyReadings))
-        .userId(1)
-        .build();
+    var energyReadingsFileReader = new EnergyReadingsFileReader(this.csvPath);
+    energyReadingsFileReader.initialise();
+    return energyReadingsFileReader;
   }
 
 }
@@ -1,5 +1,7 @@
 package com.cheemcheem.projects.energyusage.config.csv;
 
+import com.cheemcheem.projects.energyusage.config.DataVersionInterceptor;
+import com.cheemcheem.projects.energyusage.config.ResponseCacheInterceptor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -14,9 +16,15 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class CSVInterceptorConfiguration implements WebMvcConfigurer {
 
   private final CSVInterceptor csvInterceptor;
+  private final DataVersionInterceptor dataVersionInterceptor;
+  private final ResponseCacheInterceptor responseCacheInterceptor;
 
   @Override
   public void addInterceptors(InterceptorRegistry registry) {
     registry.addInterceptor(csvInterceptor);
+    registry.addInterceptor(dataVersionInterceptor)
+        .addPathPatterns(DataVersionInterceptor.PATH_PATTERNS);
+    registry.addInterceptor(responseCacheInterceptor)
+        .addPathPatterns(DataVersionInterceptor.PATH_PATTERNS);
   }
 }
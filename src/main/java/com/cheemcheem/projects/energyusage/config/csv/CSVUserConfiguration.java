@@ -3,12 +3,25 @@ package com.cheemcheem.projects.energyusage.config.csv;
 import com.cheemcheem.projects.energyusage.model.User;
 import com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository;
 import com.cheemcheem.projects.energyusage.repository.UserRepository;
-import java.util.stream.Collectors;
+import com.cheemcheem.projects.energyusage.service.DataVersionService;
+import com.cheemcheem.projects.energyusage.service.ReadinessService;
+import com.cheemcheem.projects.energyusage.service.ReadinessService.Load;
+import com.cheemcheem.projects.energyusage.service.ResponseCache;
+import com.cheemcheem.projects.energyusage.service.RollupService;
+import com.cheemcheem.projects.energyusage.util.importer.EnergyReadingsFileReader;
+import java.io.IOException;
+import java.util.ArrayList;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+/**
+ * Saves the default user, then reads and saves their readings from the input csv file in the
+ * background, so startup does not wait on the size of the file. The application is not ready
+ * until they have all been saved.
+ */
 @Slf4j
 @RequiredArgsConstructor
 @Component
@@ -17,25 +30,57 @@ public class CSVUserConfiguration implements org.springframework.boot.CommandLin
 
   private final UserRepository userRepository;
   private final EnergyReadingRepository energyReadingRepository;
-  private final User defaultUser;
+  private final DataVersionService dataVersionService;
+  private final RollupService rollupService;
+  private final ResponseCache responseCache;
+  private final ReadinessService readinessService;
+  private final EnergyReadingsFileReader energyReadingsFileReader;
+
+  @Value("${energy-usage.import.batch-size:500}")
+  private int batchSize;
 
   @Override
   public void run(String... args) {
     log.debug("RegisterDefaultUser.run");
 
-    log.debug("Converting default user {}.", this.defaultUser);
-    var user = User.builder().userId(this.defaultUser.getUserId()).build();
+    var defaultUserId = 1;
+    var user = User.builder().userId(defaultUserId).build();
 
-    log.debug("Saving converted user {}.", user);
+    log.debug("Saving default user {}.", user);
     var savedUser = this.userRepository.save(user);
-    log.info("Saved converted user {}.", savedUser);
-
-    log.debug("Saving default readings {}.", this.defaultUser.getEnergyReadings());
-    var savedEnergy = this.energyReadingRepository.saveAll(this.defaultUser.getEnergyReadings()
-        .stream()
-        .peek(energyReading -> energyReading.setUser(savedUser))
-        .collect(Collectors.toList())
-    );
-    log.debug("Saved energy readings {}.", savedEnergy);
+    log.info("Saved default user {}.", savedUser);
+
+    var load = this.readinessService.begin("input csv");
+    var thread = new Thread(() -> loadEnergyReadings(savedUser, load), "csv-bootstrap");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void loadEnergyReadings(User savedUser, Load load) {
+    this.rollupService.hold(savedUser);
+    try {
+      load.stage("reading bytes", this.energyReadingsFileReader.getSize());
+      var energyReadings = this.energyReadingsFileReader.getEnergyReadings(load::progress);
+
+      load.stage("saving readings", energyReadings.size());
+      for (int from = 0; from < energyReadings.size(); from += this.batchSize) {
+        var batch = new ArrayList<>(energyReadings
+            .subList(from, Math.min(energyReadings.size(), from + this.batchSize)));
+        batch.forEach(energyReading -> energyReading.setUser(savedUser));
+        this.energyReadingRepository.saveAll(batch);
+        load.progress(batch.size());
+      }
+      log.debug("Saved {} energy readings.", energyReadings.size());
+
+      load.stage("rolling up", 0);
+      this.dataVersionService.bump(savedUser.getUserId());
+      this.responseCache.invalidate(savedUser.getUserId());
+      this.rollupService.rebuild(savedUser);
+      load.finish();
+    } catch (IOException | RuntimeException e) {
+      load.fail(e);
+    } finally {
+      this.rollupService.release(savedUser);
+    }
   }
 }
@@ -0,0 +1,56 @@
+package com.cheemcheem.projects.energyusage.config.series;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+
+/**
+ * Writes a series as little endian columns of numbers.
+ *
+ * Every series starts with a byte for its layout and an int for its number of buckets. A uniform
+ * series, layout 1, then has a long for the first start date, a long for the step and a long for
+ * each usage. Any other series, layout 0, has a long for each start date, then each end date, then
+ * each usage.
+ *
+ * @see SpendingSeries for the units.
+ */
+public class BinarySeriesConverter extends SpendingSeriesConverter {
+
+  public static final String MEDIA_TYPE = "application/vnd.energy-usage.series";
+
+  static final byte COLUMNS = 0;
+  static final byte UNIFORM = 1;
+
+  public BinarySeriesConverter() {
+    super(MediaType.parseMediaType(MEDIA_TYPE));
+  }
+
+  @Override
+  void write(SpendingSeries spendingSeries, HttpOutputMessage outputMessage) throws IOException {
+    var size = spendingSeries.size();
+    var uniform = spendingSeries.isUniform();
+    var buffer = ByteBuffer
+        .allocate(Byte.BYTES + Integer.BYTES + Long.BYTES * (uniform ? 2 + size : 3 * size))
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    buffer.put(uniform ? UNIFORM : COLUMNS).putInt(size);
+    if (uniform) {
+      buffer.putLong(spendingSeries.getStartDate(0)).putLong(spendingSeries.getStep());
+    } else {
+      for (int i = 0; i < size; i++) {
+        buffer.putLong(spendingSeries.getStartDate(i));
+      }
+      for (int i = 0; i < size; i++) {
+        buffer.putLong(spendingSeries.getEndDate(i));
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      buffer.putLong(spendingSeries.getUsage(i));
+    }
+
+    outputMessage.getHeaders().setContentLength(buffer.capacity());
+    outputMessage.getBody().write(buffer.array());
+  }
+}
@@ -0,0 +1,57 @@
+package com.cheemcheem.projects.energyusage.config.series;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.IOException;
+import java.math.BigDecimal;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+
+/**
+ * Writes a series as columns of JSON numbers, instead of an object of strings for each bucket.
+ *
+ * A uniform series is written as {"start": 0, "step": 86400, "values": [1.23, ...]}, and any
+ * other as {"startDates": [...], "endDates": [...], "values": [...]}.
+ *
+ * @see SpendingSeries for the units.
+ */
+public class ColumnarJsonSeriesConverter extends SpendingSeriesConverter {
+
+  public static final String MEDIA_TYPE = "application/vnd.energy-usage.series+json";
+
+  private final JsonFactory jsonFactory;
+
+  public ColumnarJsonSeriesConverter(JsonFactory jsonFactory) {
+    super(MediaType.parseMediaType(MEDIA_TYPE));
+    this.jsonFactory = jsonFactory;
+  }
+
+  @Override
+  void write(SpendingSeries spendingSeries, HttpOutputMessage outputMessage) throws IOException {
+    try (var generator = jsonFactory
+        .createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)) {
+      generator.writeStartObject();
+      if (spendingSeries.isUniform()) {
+        generator.writeNumberField("start", spendingSeries.getStartDate(0));
+        generator.writeNumberField("step", spendingSeries.getStep());
+      } else {
+        generator.writeArrayFieldStart("startDates");
+        for (int i = 0; i < spendingSeries.size(); i++) {
+          generator.writeNumber(spendingSeries.getStartDate(i));
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("endDates");
+        for (int i = 0; i < spendingSeries.size(); i++) {
+          generator.writeNumber(spendingSeries.getEndDate(i));
+        }
+        generator.writeEndArray();
+      }
+      generator.writeArrayFieldStart("values");
+      for (int i = 0; i < spendingSeries.size(); i++) {
+        generator.writeNumber(BigDecimal.valueOf(spendingSeries.getUsage(i), 2));
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+}
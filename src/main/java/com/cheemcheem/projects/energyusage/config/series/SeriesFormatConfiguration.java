@@ -0,0 +1,34 @@
+package com.cheemcheem.projects.energyusage.config.series;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Lets series endpoints answer in the {@link ColumnarJsonSeriesConverter columnar JSON} and {@link
+ * BinarySeriesConverter binary} formats as well as JSON, by the Accept header of the request.
+ */
+@RequiredArgsConstructor
+@Configuration
+public class SeriesFormatConfiguration implements WebMvcConfigurer {
+
+  private final ObjectMapper objectMapper;
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    // ahead of Jackson, which would otherwise take the +json media type
+    converters.add(0, new ColumnarJsonSeriesConverter(objectMapper.getFactory()));
+    converters.add(1, new BinarySeriesConverter());
+  }
+
+  @Override
+  public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
+    // requests accepting anything still get JSON, rather than whichever converter comes first
+    configurer.defaultContentType(MediaType.APPLICATION_JSON, MediaType.ALL);
+  }
+}
@@ -0,0 +1,111 @@
+package com.cheemcheem.projects.energyusage.config.series;
+
+import com.cheemcheem.projects.energyusage.dto.SpendingRangeDTO;
+import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.util.converter.LocalDateTimeConverter;
+import com.cheemcheem.projects.energyusage.util.mapper.SpendingRangeDTOList;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+/**
+ * A series of spending ranges as columns, for the compact series formats.
+ *
+ * Dates are whole seconds since 1970-01-01 00:00, counting the local date times as UTC, to the
+ * same precision as {@link SpendingRangeDTO}s. Usages are in hundredths, rounded the same way.
+ *
+ * A series is uniform when each bucket starts where the one before it ends and they are all the
+ * same length, as days, weeks and anything shorter are, so only the first start and the length
+ * need to be sent.
+ */
+class SpendingSeries {
+
+  private final long[] startDates;
+  private final long[] endDates;
+  private final long[] usages;
+
+  private SpendingSeries(int size) {
+    this.startDates = new long[size];
+    this.endDates = new long[size];
+    this.usages = new long[size];
+  }
+
+  /**
+   * Reads the spending ranges behind the DTOs if there are any, otherwise parses the DTOs.
+   *
+   * @throws HttpMessageNotWritableException if a usage is too large for the formats.
+   */
+  static SpendingSeries of(List<SpendingRangeDTO> spendingRangeDTOs) {
+    var spendingSeries = new SpendingSeries(spendingRangeDTOs.size());
+    try {
+      if (spendingRangeDTOs instanceof SpendingRangeDTOList) {
+        var spendingRanges = ((SpendingRangeDTOList) spendingRangeDTOs).getSpendingRanges();
+        for (int i = 0; i < spendingRanges.size(); i++) {
+          var spendingRange = spendingRanges.get(i);
+          spendingSeries.set(i, spendingRange.getStartDate(), spendingRange.getEndDate(),
+              spendingRange.getUsage());
+        }
+      } else {
+        for (int i = 0; i < spendingRangeDTOs.size(); i++) {
+          var spendingRangeDTO = spendingRangeDTOs.get(i);
+          spendingSeries.set(i, LocalDateTimeConverter.parseISO(spendingRangeDTO.getStartDateISO()),
+              LocalDateTimeConverter.parseISO(spendingRangeDTO.getEndDateISO()),
+              new BigDecimal(spendingRangeDTO.getUsage()));
+        }
+      }
+    } catch (ArithmeticException | InvalidDateException e) {
+      throw new HttpMessageNotWritableException("Spending series cannot be written compactly.", e);
+    }
+    return spendingSeries;
+  }
+
+  private void set(int index, LocalDateTime startDate, LocalDateTime endDate, BigDecimal usage) {
+    this.startDates[index] = startDate.toEpochSecond(ZoneOffset.UTC);
+    this.endDates[index] = endDate.toEpochSecond(ZoneOffset.UTC);
+    this.usages[index] = usage.setScale(2, RoundingMode.HALF_UP).unscaledValue()
+        .longValueExact();
+  }
+
+  int size() {
+    return this.usages.length;
+  }
+
+  boolean isUniform() {
+    if (size() == 0) {
+      return false;
+    }
+    var step = getStep();
+    for (int i = 0; i < size(); i++) {
+      if (this.endDates[i] - this.startDates[i] != step
+          || (i > 0 && this.startDates[i] != this.endDates[i - 1])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return length of the first bucket in seconds.
+   */
+  long getStep() {
+    return this.endDates[0] - this.startDates[0];
+  }
+
+  long getStartDate(int index) {
+    return this.startDates[index];
+  }
+
+  long getEndDate(int index) {
+    return this.endDates[index];
+  }
+
+  /**
+   * @return usage in hundredths.
+   */
+  long getUsage(int index) {
+    return this.usages[index];
+  }
+}
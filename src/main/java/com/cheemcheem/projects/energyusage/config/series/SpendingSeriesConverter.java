@@ -0,0 +1,77 @@
+package com.cheemcheem.projects.energyusage.config.series;
+
+import com.cheemcheem.projects.energyusage.dto.SpendingRangeDTO;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+/**
+ * Writes series of {@link SpendingRangeDTO}s in a compact format of its media type, and nothing
+ * else. Series are never read.
+ */
+abstract class SpendingSeriesConverter extends
+    AbstractGenericHttpMessageConverter<List<SpendingRangeDTO>> {
+
+  private static final ResolvableType SPENDING_SERIES = ResolvableType
+      .forClassWithGenerics(List.class, SpendingRangeDTO.class);
+
+  SpendingSeriesConverter(MediaType mediaType) {
+    super(mediaType);
+  }
+
+  /**
+   * Writes the series to the body.
+   */
+  abstract void write(SpendingSeries spendingSeries, HttpOutputMessage outputMessage)
+      throws IOException;
+
+  @Override
+  public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+    return type != null && SPENDING_SERIES.isAssignableFrom(ResolvableType.forType(type))
+        && canWrite(mediaType);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    // only series, which can only be told apart from other lists by their generic type
+    return false;
+  }
+
+  /**
+   * Offers the media type for any list, as only the class of the value is known here. Lists that
+   * are not series are still turned down by {@link #canWrite(Type, Class, MediaType)}.
+   */
+  @Override
+  public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+    return List.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : List.of();
+  }
+
+  @Override
+  public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected void writeInternal(List<SpendingRangeDTO> spendingRangeDTOs, Type type,
+      HttpOutputMessage outputMessage) throws IOException {
+    write(SpendingSeries.of(spendingRangeDTOs), outputMessage);
+  }
+
+  @Override
+  protected List<SpendingRangeDTO> readInternal(Class<? extends List<SpendingRangeDTO>> clazz,
+      HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Spending series cannot be read.", inputMessage);
+  }
+
+  @Override
+  public List<SpendingRangeDTO> read(Type type, Class<?> contextClass,
+      HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Spending series cannot be read.", inputMessage);
+  }
+}
@@ -0,0 +1,34 @@
+package com.cheemcheem.projects.energyusage.controller;
+
+import com.cheemcheem.projects.energyusage.dto.CacheStatisticsDTO;
+import com.cheemcheem.projects.energyusage.dto.ResponseCacheStatisticsDTO;
+import com.cheemcheem.projects.energyusage.service.ResponseCache;
+import com.cheemcheem.projects.energyusage.service.SpendingRangeCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+  private final SpendingRangeCache spendingRangeCache;
+  private final ResponseCache responseCache;
+
+  @GetMapping("/statistics")
+  public ResponseEntity<CacheStatisticsDTO> getStatistics() {
+    log.info("Get cache statistics.");
+    return ResponseEntity.ok(spendingRangeCache.getStatistics());
+  }
+
+  @GetMapping("/responses/statistics")
+  public ResponseEntity<ResponseCacheStatisticsDTO> getResponseStatistics() {
+    log.info("Get response cache statistics.");
+    return ResponseEntity.ok(responseCache.getStatistics());
+  }
+}
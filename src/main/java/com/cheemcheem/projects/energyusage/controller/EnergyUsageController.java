@@ -1,22 +1,32 @@
 package com.cheemcheem.projects.energyusage.controller;
 
+import com.cheemcheem.projects.energyusage.dto.QueryDTO;
+import com.cheemcheem.projects.energyusage.dto.QueryResultDTO;
 import com.cheemcheem.projects.energyusage.dto.SpendingRangeDTO;
 import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
 import com.cheemcheem.projects.energyusage.model.User;
 import com.cheemcheem.projects.energyusage.service.EnergyUsageService;
 import com.cheemcheem.projects.energyusage.util.Constants;
+import com.cheemcheem.projects.energyusage.util.Granularity;
 import com.cheemcheem.projects.energyusage.util.converter.LocalDateTimeConverter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -25,6 +35,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class EnergyUsageController {
 
   private final EnergyUsageService energyUsageService;
+  private final ObjectMapper objectMapper;
 
   @GetMapping("/spending/daily/all")
   public ResponseEntity<List<SpendingRangeDTO>> getTotalSpendinDailyAll(
@@ -47,6 +58,67 @@ public class EnergyUsageController {
     return ResponseEntity.ok(energyUsageService.getTotalSpendingMonthly(user));
   }
 
+  /**
+   * Total spending of each calendar bucket of the granularity, between the dates if both are given
+   * or over all days if neither is. Billing cycles start on the billing day of each month.
+   */
+  @GetMapping("/spending/series")
+  public ResponseEntity<List<SpendingRangeDTO>> getTotalSpendingSeries(
+      @RequestParam("granularity") Granularity granularity,
+      @RequestParam(value = "billingDay", defaultValue = "1") int billingDay,
+      @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = LocalDateTimeConverter.CSV_PATTERN) LocalDateTime startDate,
+      @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = LocalDateTimeConverter.CSV_PATTERN) LocalDateTime endDate,
+      @RequestAttribute(Constants.USER_ID_ATTRIBUTE_KEY) User user
+  ) {
+    log.info("Get total {} spending from '{}' to '{}'.", granularity, startDate, endDate);
+    if ((startDate == null) != (endDate == null)) {
+      log.warn("Only one of start date and end date given.");
+      return ResponseEntity.badRequest().build();
+    }
+    try {
+      if (startDate == null) {
+        return ResponseEntity
+            .ok(energyUsageService.getTotalSpending(granularity, billingDay, user));
+      }
+      return ResponseEntity.ok(energyUsageService
+          .getTotalSpending(startDate, endDate, granularity, billingDay, user));
+    } catch (InvalidDateException | IllegalArgumentException e) {
+      log.warn(e.getMessage());
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  /**
+   * Same as {@link #getTotalSpendingSeries}, but each bucket is written on its own line as soon as
+   * it is worked out, instead of the whole series being held to write at the end.
+   */
+  @GetMapping(value = "/spending/series", produces = Constants.NDJSON_MEDIA_TYPE)
+  public ResponseEntity<StreamingResponseBody> streamTotalSpendingSeries(
+      @RequestParam("granularity") Granularity granularity,
+      @RequestParam(value = "billingDay", defaultValue = "1") int billingDay,
+      @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = LocalDateTimeConverter.CSV_PATTERN) LocalDateTime startDate,
+      @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = LocalDateTimeConverter.CSV_PATTERN) LocalDateTime endDate,
+      @RequestAttribute(Constants.USER_ID_ATTRIBUTE_KEY) User user
+  ) {
+    log.info("Stream total {} spending from '{}' to '{}'.", granularity, startDate, endDate);
+    if ((startDate == null) != (endDate == null)) {
+      log.warn("Only one of start date and end date given.");
+      return ResponseEntity.badRequest().build();
+    }
+    try {
+      var spendingRanges = startDate == null
+          ? energyUsageService.streamTotalSpending(granularity, billingDay, user)
+          : energyUsageService
+              .streamTotalSpending(startDate, endDate, granularity, billingDay, user);
+      return ResponseEntity.ok()
+          .contentType(MediaType.parseMediaType(Constants.NDJSON_MEDIA_TYPE))
+          .body(toNdjson(spendingRanges));
+    } catch (InvalidDateException | IllegalArgumentException e) {
+      log.warn(e.getMessage());
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
   @GetMapping("/spending/all")
   public SpendingRangeDTO getAllSpending(
       @RequestAttribute(Constants.USER_ID_ATTRIBUTE_KEY) User user) {
@@ -196,5 +268,31 @@ public class EnergyUsageController {
     return ResponseEntity.ok(energyUsageService.getLastAverageSpendingBetweenMonthly(user));
   }
 
+  @PostMapping("/query")
+  public ResponseEntity<List<QueryResultDTO>> query(
+      @RequestBody List<QueryDTO> queries,
+      @RequestAttribute(Constants.USER_ID_ATTRIBUTE_KEY) User user
+  ) {
+    log.info("Run {} queries.", queries.size());
+    return ResponseEntity.ok(energyUsageService.query(queries, user));
+  }
+
+  /**
+   * Writes each value as a line of JSON, leaving it to the response to flush once its buffer is
+   * full.
+   */
+  private StreamingResponseBody toNdjson(Stream<?> values) {
+    return outputStream -> {
+      var generator = objectMapper.getFactory().createGenerator(outputStream)
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      try (values; generator) {
+        for (var iterator = values.iterator(); iterator.hasNext(); ) {
+          generator.writeObject(iterator.next());
+          generator.writeRaw('\n');
+        }
+      }
+    };
+  }
 
 }
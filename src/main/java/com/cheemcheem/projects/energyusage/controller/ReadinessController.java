@@ -0,0 +1,33 @@
+package com.cheemcheem.projects.energyusage.controller;
+
+import com.cheemcheem.projects.energyusage.dto.ReadinessDTO;
+import com.cheemcheem.projects.energyusage.service.ReadinessService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Readiness probe, which answers 503 with the progress of whatever is still loading.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/ready")
+public class ReadinessController {
+
+  private final ReadinessService readinessService;
+
+  @GetMapping
+  public ResponseEntity<ReadinessDTO> getReadiness() {
+    log.debug("Get readiness.");
+    var readiness = this.readinessService.getReadiness();
+    if (!readiness.isReady()) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(readiness);
+    }
+    return ResponseEntity.ok(readiness);
+  }
+}
@@ -1,19 +1,31 @@
 package com.cheemcheem.projects.energyusage.controller;
 
 import com.cheemcheem.projects.energyusage.dto.EnergyReadingDTO;
+import com.cheemcheem.projects.energyusage.dto.ImportResultDTO;
+import com.cheemcheem.projects.energyusage.dto.ReadingAcceptanceDTO;
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
 import com.cheemcheem.projects.energyusage.model.User;
 import com.cheemcheem.projects.energyusage.service.EnergyReadingService;
 import com.cheemcheem.projects.energyusage.util.Constants;
+import com.cheemcheem.projects.energyusage.util.GroupCommitQueue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -22,6 +34,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class ReadingController {
 
   private final EnergyReadingService energyReadingService;
+  private final GroupCommitQueue<EnergyReading> energyReadingCommitQueue;
 
   @PostMapping("/add")
   public ResponseEntity<Object> addReading(
@@ -31,16 +44,73 @@ public class ReadingController {
     log.info("Adding new reading.");
     log.debug("Adding reading {} to user {}.", energyReadingDTO, user);
 
-    var added = this.energyReadingService.addReading(user, energyReadingDTO);
-    if (!added) {
+    var energyReading = this.energyReadingService.toEnergyReading(user, energyReadingDTO);
+    if (energyReading.isEmpty()) {
       log.debug("Failed to save reading.");
       return ResponseEntity.badRequest().build();
     }
+    this.energyReadingCommitQueue.write(energyReading.get());
 
     log.debug("Saved reading.");
     return ResponseEntity.accepted().build();
   }
 
+  /**
+   * Saves every reading that can be parsed together, and rejects the rest.
+   */
+  @PostMapping("/batch")
+  public ResponseEntity<List<ReadingAcceptanceDTO>> addReadings(
+      @RequestAttribute(Constants.USER_ID_ATTRIBUTE_KEY) User user,
+      @RequestBody List<EnergyReadingDTO> energyReadingDTOs
+  ) {
+    log.info("Adding batch of new readings.");
+    log.debug("Adding {} readings to user {}.", energyReadingDTOs.size(), user);
+
+    var acceptances = this.energyReadingService.addReadings(user, energyReadingDTOs);
+    if (!acceptances.isEmpty()
+        && acceptances.stream().noneMatch(ReadingAcceptanceDTO::isAccepted)) {
+      log.debug("Failed to save any readings.");
+      return ResponseEntity.badRequest().body(acceptances);
+    }
+
+    log.debug("Saved readings {}.", acceptances);
+    return ResponseEntity.accepted().body(acceptances);
+  }
+
+  /**
+   * Imports a meter export uploaded as the file part of a form.
+   */
+  @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<ImportResultDTO> importReadings(
+      @RequestAttribute(Constants.USER_ID_ATTRIBUTE_KEY) User user,
+      @RequestParam("file") MultipartFile file
+  ) throws IOException {
+    log.info("Importing readings from file.");
+    log.debug("Importing readings from file '{}' to user {}.", file.getOriginalFilename(), user);
+    return importCSV(user, file.getInputStream());
+  }
+
+  /**
+   * Imports a meter export sent as the body, which is read as it arrives.
+   */
+  @PostMapping(value = "/import", consumes = "text/csv")
+  public ResponseEntity<ImportResultDTO> importReadings(
+      @RequestAttribute(Constants.USER_ID_ATTRIBUTE_KEY) User user,
+      InputStream body
+  ) throws IOException {
+    log.info("Importing readings from body.");
+    log.debug("Importing readings from body to user {}.", user);
+    return importCSV(user, body);
+  }
+
+  private ResponseEntity<ImportResultDTO> importCSV(User user, InputStream csv)
+      throws IOException {
+    var result = this.energyReadingService
+        .importReadings(user, new InputStreamReader(csv, StandardCharsets.UTF_8));
+    log.debug("Imported readings {}.", result);
+    return ResponseEntity.ok(result);
+  }
+
   @GetMapping("/all")
   public ResponseEntity<Collection<EnergyReadingDTO>> getReadings(
       @RequestAttribute(Constants.USER_ID_ATTRIBUTE_KEY) User user) {
@@ -0,0 +1,29 @@
+package com.cheemcheem.projects.energyusage.controller;
+
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.service.RollupService;
+import com.cheemcheem.projects.energyusage.util.Constants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/rollup")
+public class RollupController {
+
+  private final RollupService rollupService;
+
+  @PostMapping("/rebuild")
+  public ResponseEntity<Object> rebuild(
+      @RequestAttribute(Constants.USER_ID_ATTRIBUTE_KEY) User user) {
+    log.info("Rebuild rollups.");
+    this.rollupService.rebuild(user);
+    return ResponseEntity.accepted().build();
+  }
+}
@@ -0,0 +1,17 @@
+package com.cheemcheem.projects.energyusage.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class CacheStatisticsDTO {
+
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final long updates;
+  private final int entries;
+  private final long estimatedBytes;
+  private final long maxBytes;
+}
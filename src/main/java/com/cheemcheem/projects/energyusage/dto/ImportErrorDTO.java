@@ -0,0 +1,19 @@
+package com.cheemcheem.projects.energyusage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Why a row of an import was rejected, with rows counted from 1.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportErrorDTO {
+
+  private long row;
+
+  private String error;
+
+}
@@ -0,0 +1,20 @@
+package com.cheemcheem.projects.energyusage.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * How many readings an import saved and rejected. Errors are only given for the first rejected
+ * rows, up to {@code energy-usage.import.max-errors}, but every rejected row is counted.
+ */
+@Builder
+@Data
+public class ImportResultDTO {
+
+  private final long imported;
+
+  private final long rejected;
+
+  private final List<ImportErrorDTO> errors;
+}
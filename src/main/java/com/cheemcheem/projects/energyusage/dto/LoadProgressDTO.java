@@ -0,0 +1,20 @@
+package com.cheemcheem.projects.energyusage.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * How far through its current stage a background load is, counted in whatever that stage works
+ * through, like bytes or readings.
+ */
+@Builder
+@Data
+public class LoadProgressDTO {
+
+  private final String name;
+  private final String stage;
+  private final long done;
+  private final long total;
+  private final boolean finished;
+  private final String error;
+}
@@ -0,0 +1,44 @@
+package com.cheemcheem.projects.energyusage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One query of a batch, each answering what one of the spending or average endpoints would.
+ *
+ * Dates are optional. Series of buckets need both or neither, in which case they cover every
+ * reading, while a {@link Granularity#TOTAL} can have either one on its own.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueryDTO {
+
+  private Type type;
+
+  private Granularity granularity;
+
+  private String startDateISO;
+
+  private String endDateISO;
+
+  /**
+   * Days in each bucket of a {@link Granularity#DAY_GAP} average, 7 if not given.
+   */
+  private Integer dayGap;
+
+  public enum Type {
+    SPENDING,
+    AVERAGE
+  }
+
+  public enum Granularity {
+    TOTAL,
+    DAILY,
+    WEEKLY,
+    MONTHLY,
+    DAY_GAP,
+    LAST_MONTH
+  }
+}
@@ -0,0 +1,18 @@
+package com.cheemcheem.projects.energyusage.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Result of a {@link QueryDTO}, with either its spending ranges or why it could not be answered.
+ * Queries for a single range still give a list of one.
+ */
+@Builder
+@Data
+public class QueryResultDTO {
+
+  private final List<SpendingRangeDTO> spendingRanges;
+
+  private final String error;
+}
@@ -0,0 +1,13 @@
+package com.cheemcheem.projects.energyusage.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class ReadinessDTO {
+
+  private final boolean ready;
+  private final List<LoadProgressDTO> loads;
+}
@@ -0,0 +1,19 @@
+package com.cheemcheem.projects.energyusage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Whether a reading posted in a batch was saved, or why it was not.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReadingAcceptanceDTO {
+
+  private boolean accepted;
+
+  private String error;
+
+}
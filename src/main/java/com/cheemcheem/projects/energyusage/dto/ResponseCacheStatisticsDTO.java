@@ -0,0 +1,25 @@
+package com.cheemcheem.projects.energyusage.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class ResponseCacheStatisticsDTO {
+
+  private final long hits;
+  private final long misses;
+  private final double hitRatio;
+  private final long evictions;
+  private final long expirations;
+  private final long invalidations;
+
+  /**
+   * Time the hits would have taken to work out again.
+   */
+  private final long savedMillis;
+
+  private final int entries;
+  private final long estimatedBytes;
+  private final long maxBytes;
+}
@@ -1,8 +1,5 @@
 package com.cheemcheem.projects.energyusage.model;
 
-import com.cheemcheem.projects.energyusage.util.importer.CSVDateColumnConverter;
-import com.cheemcheem.projects.energyusage.util.importer.CSVReadingColumnConverter;
-import com.opencsv.bean.CsvCustomBindByPosition;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import javax.persistence.Entity;
@@ -10,8 +7,10 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
@@ -25,6 +24,7 @@ import lombok.ToString;
 @Entity
 @NoArgsConstructor
 @RequiredArgsConstructor
+@Table(indexes = @Index(name = "energy_reading_user_date", columnList = "user_id, date"))
 public class EnergyReading implements Comparable<EnergyReading> {
 
   @Id
@@ -35,11 +35,9 @@ public class EnergyReading implements Comparable<EnergyReading> {
   @JoinColumn(name = "user_id", nullable = false)
   private User user;
 
-  @CsvCustomBindByPosition(converter = CSVDateColumnConverter.class, position = 0)
   @NonNull
   private LocalDateTime date;
 
-  @CsvCustomBindByPosition(converter = CSVReadingColumnConverter.class, position = 1)
   @NonNull
   private BigDecimal reading;
 
@@ -0,0 +1,61 @@
+package com.cheemcheem.projects.energyusage.model;
+
+import com.cheemcheem.projects.energyusage.util.Granularity;
+import java.time.LocalDateTime;
+
+/**
+ * Calendar periods whose spending is totalled in {@link UsageRollup}s.
+ *
+ * Each period is a bucket of its {@link Granularity}, so a rollup can stand in for exactly that
+ * bucket of a {@link com.cheemcheem.projects.energyusage.util.Calculator} series: days and weeks
+ * end at the start of the next one, and months a nanosecond before it.
+ */
+public enum RollupPeriod {
+
+  DAY(Granularity.DAILY),
+
+  /**
+   * Weeks starting on a Monday.
+   */
+  ISO_WEEK(Granularity.WEEKLY),
+
+  MONTH(Granularity.MONTHLY);
+
+  private final Granularity granularity;
+
+  RollupPeriod(Granularity granularity) {
+    this.granularity = granularity;
+  }
+
+  public Granularity getGranularity() {
+    return this.granularity;
+  }
+
+  /**
+   * @return start of the period the date falls in.
+   */
+  public LocalDateTime getStart(LocalDateTime date) {
+    return this.granularity.getStart(date, 1);
+  }
+
+  /**
+   * @return end of the period starting at the given date.
+   */
+  public LocalDateTime getEnd(LocalDateTime periodStart) {
+    return this.granularity.getEnd(periodStart, 1);
+  }
+
+  /**
+   * @return start of the period after the one starting at the given date.
+   */
+  public LocalDateTime getNextStart(LocalDateTime periodStart) {
+    return this.granularity.plus(periodStart, 1, 1);
+  }
+
+  /**
+   * @return whether the dates are exactly the start and end of one of these periods.
+   */
+  public boolean isPeriod(LocalDateTime startDate, LocalDateTime endDate) {
+    return getStart(startDate).equals(startDate) && getEnd(startDate).equals(endDate);
+  }
+}
@@ -0,0 +1,62 @@
+package com.cheemcheem.projects.energyusage.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Total spending of a user over one {@link RollupPeriod}, worked out from their {@link
+ * EnergyReading}s and kept up to date as readings are added.
+ */
+@Getter
+@Setter
+@ToString(exclude = {"user"})
+@Entity
+@NoArgsConstructor
+@RequiredArgsConstructor
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "period", "period_start"}))
+public class UsageRollup {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.AUTO)
+  private int usageRollupId;
+
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "user_id", nullable = false)
+  @NonNull
+  private User user;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "period", nullable = false, length = 16)
+  @NonNull
+  private RollupPeriod period;
+
+  @Column(name = "period_start", nullable = false)
+  @NonNull
+  private LocalDateTime periodStart;
+
+  /**
+   * Exactly as worked out, in a numeric column without a precision or scale so it is not rounded.
+   */
+  @Column(nullable = false, columnDefinition = "numeric")
+  @NonNull
+  private BigDecimal usage;
+
+}
@@ -15,7 +15,7 @@ import lombok.ToString;
 
 @Getter
 @Setter
-@ToString
+@ToString(exclude = {"energyReadings"})
 @NoArgsConstructor
 @Entity(name = "user_table")
 public class User {
@@ -24,7 +24,11 @@ public class User {
   @GeneratedValue(strategy = GenerationType.AUTO)
   private int userId;
 
-  @OneToMany(mappedBy = "user", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+  /**
+   * Only loaded if asked for, readings are read through {@link
+   * com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository} instead.
+   */
+  @OneToMany(mappedBy = "user", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
   private Set<EnergyReading> energyReadings;
 
   User(int userId, Set<EnergyReading> energyReadings) {
@@ -1,8 +1,66 @@
 package com.cheemcheem.projects.energyusage.repository;
 
 import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.model.User;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+/**
+ * Readings are looked up by user and date, which the (user_id, date) index of {@link
+ * EnergyReading} covers, so a range of dates only reads the readings in it.
+ */
 public interface EnergyReadingRepository extends JpaRepository<EnergyReading, Integer> {
 
+  List<EnergyReading> findAllByUser(User user);
+
+  List<EnergyReading> findAllByUserOrderByDateAsc(User user);
+
+  List<EnergyReading> findAllByUserAndDateBetweenOrderByDateAsc(User user,
+      LocalDateTime startDate, LocalDateTime endDate);
+
+  Optional<EnergyReading> findFirstByUserOrderByDateAsc(User user);
+
+  Optional<EnergyReading> findFirstByUserOrderByDateDesc(User user);
+
+  Optional<EnergyReading> findFirstByUserAndDateBeforeOrderByDateDesc(User user,
+      LocalDateTime date);
+
+  Optional<EnergyReading> findFirstByUserAndDateAfterOrderByDateAsc(User user, LocalDateTime date);
+
+  /**
+   * @return readings between the dates, inclusive, and the nearest reading either side of them, in
+   * date order. These are every reading that a spending range overlapping the dates starts or ends
+   * at.
+   */
+  default List<EnergyReading> findAllByUserAround(User user, LocalDateTime startDate,
+      LocalDateTime endDate) {
+    var between = findAllByUserAndDateBetweenOrderByDateAsc(user, startDate, endDate);
+    var around = new ArrayList<EnergyReading>(between.size() + 2);
+    findFirstByUserAndDateBeforeOrderByDateDesc(user, startDate).ifPresent(around::add);
+    around.addAll(between);
+    findFirstByUserAndDateAfterOrderByDateAsc(user, endDate).ifPresent(around::add);
+    return around;
+  }
+
+  /**
+   * @return the latest reading id and number of readings of every user with readings, which change
+   * whenever their readings do, as ids only go up.
+   */
+  @Query("select r.user.userId as userId, max(r.energyReadingId) as latestEnergyReadingId,"
+      + " count(r) as energyReadingCount from EnergyReading r group by r.user.userId")
+  List<ReadingStatistics> findReadingStatistics();
+
+  interface ReadingStatistics {
+
+    Integer getUserId();
+
+    Integer getLatestEnergyReadingId();
+
+    Long getEnergyReadingCount();
+  }
+
 }
@@ -0,0 +1,268 @@
+package com.cheemcheem.projects.energyusage.repository;
+
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.util.Buckets;
+import com.cheemcheem.projects.energyusage.util.Calculator;
+import com.cheemcheem.projects.energyusage.util.Granularity;
+import com.cheemcheem.projects.energyusage.util.mapper.EnergyReadingsMapper;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Totals spending inside the database, straight from the readings of a user, so only the total of
+ * each bucket comes back rather than every reading.
+ *
+ * Spending ranges are paired up from consecutive readings with {@code LAG}, skipping those where
+ * the meter went up, the same as {@link EnergyReadingsMapper}. Buckets are generated from their
+ * position in the series. The usage up to each bucket boundary is the running total of the ranges
+ * before it, plus the portion of the range it falls in by milliseconds, and each bucket is the
+ * difference between its end and start. That gives the same spending as {@link Calculator}, apart
+ * from it taking portions as doubles, for dates to the millisecond.
+ *
+ * The SQL is written for H2 and PostgreSQL, whichever the data source turns out to be.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class SpendingAggregationRepository {
+
+  /**
+   * Buckets of a month or longer are counted in months from here. January has every day a
+   * billing cycle can start on, so adding months to it lands on the same days as {@link
+   * Granularity#plus(LocalDateTime, long, int)}.
+   */
+  private static final YearMonth MONTH_ANCHOR = YearMonth.of(2000, 1);
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+
+  private volatile Dialect dialect;
+
+  /**
+   * @return spending from the start of the first range to the end of the last, or nothing if the
+   * user has no ranges.
+   */
+  public Optional<SpendingRange> findAllSpending(User user) {
+    var sql = ""
+        + "WITH pairs AS ("
+        + " SELECT LAG(date) OVER (ORDER BY date) AS start_date, date AS end_date,"
+        + "  LAG(reading) OVER (ORDER BY date) - reading AS usage"
+        + " FROM energy_reading WHERE user_id = :userId"
+        + ") "
+        + "SELECT MIN(start_date) AS start_date, MAX(end_date) AS end_date, SUM(usage) AS usage"
+        + " FROM pairs WHERE start_date IS NOT NULL AND usage >= 0";
+
+    return jdbcTemplate.query(sql, Map.of("userId", user.getUserId()), resultSet -> {
+      resultSet.next();
+      var startDate = resultSet.getObject("start_date", LocalDateTime.class);
+      if (startDate == null) {
+        return Optional.empty();
+      }
+      return Optional.of(new SpendingRange(startDate,
+          resultSet.getObject("end_date", LocalDateTime.class),
+          resultSet.getBigDecimal("usage")));
+    });
+  }
+
+  /**
+   * @return spending between the dates, which must be in order.
+   */
+  public BigDecimal sumBetween(User user, LocalDateTime startDate, LocalDateTime endDate) {
+    var startMillis = toEpochMilli(startDate);
+    var parameters = new MapSqlParameterSource()
+        .addValue("first", startMillis)
+        .addValue("step", toEpochMilli(endDate) - startMillis);
+    return sumBuckets(user, startDate, endDate, 1, ":first + (%1$s) * :step", false,
+        parameters)[0];
+  }
+
+  /**
+   * @return spending of each calendar bucket of the granularity between the dates, with the first
+   * and last cut down to start and end with them, as {@link Buckets#calendar(Granularity, int,
+   * LocalDateTime, LocalDateTime)} gives them. There must be at least one bucket.
+   */
+  public List<BigDecimal> sumCalendarBuckets(User user, Granularity granularity, int billingDay,
+      LocalDateTime startDate, LocalDateTime endDate, int size) {
+    var first = granularity.getStart(startDate, billingDay);
+    var parameters = new MapSqlParameterSource();
+    String bucketStart;
+    if (granularity.getLength() != null) {
+      parameters.addValue("first", toEpochMilli(first))
+          .addValue("step", granularity.getLength().toMillis());
+      bucketStart = ":first + (%1$s) * :step";
+    } else {
+      var anchor = MONTH_ANCHOR.atDay(granularity == Granularity.BILLING_CYCLE ? billingDay : 1);
+      parameters.addValue("offset", ChronoUnit.MONTHS.between(MONTH_ANCHOR, YearMonth.from(first)))
+          .addValue("months", granularity.getMonths());
+      bucketStart = getDialect().epochMillis(getDialect().plusMonths(
+          "TIMESTAMP '" + anchor + " 00:00:00'", ":offset + (%1$s) * :months"));
+    }
+    return Arrays.asList(sumBuckets(user, startDate, endDate, size, bucketStart,
+        granularity.endsBeforeNext(), parameters));
+  }
+
+  /**
+   * @param bucketStart SQL for the start of a bucket in epoch milliseconds, before it is cut down
+   * to the dates, with %1$s for its position.
+   */
+  private BigDecimal[] sumBuckets(User user, LocalDateTime startDate, LocalDateTime endDate,
+      int size, String bucketStart, boolean endsBeforeNext, MapSqlParameterSource parameters) {
+    var dialect = getDialect();
+    var sql = ""
+        + "WITH readings AS ("
+        + " SELECT " + dialect.epochMillis("date") + " AS date_ms, reading"
+        + " FROM energy_reading WHERE user_id = :userId"
+        + " AND date >= COALESCE((SELECT MAX(date) FROM energy_reading"
+        + "  WHERE user_id = :userId AND date < :startDate), :startDate)"
+        + " AND date <= COALESCE((SELECT MIN(date) FROM energy_reading"
+        + "  WHERE user_id = :userId AND date > :endDate), :endDate)"
+        + "), ranges AS ("
+        + " SELECT start_ms, end_ms, usage,"
+        + "  SUM(usage) OVER (ORDER BY start_ms) - usage AS usage_before"
+        + " FROM ("
+        + "  SELECT LAG(date_ms) OVER (ORDER BY date_ms) AS start_ms, date_ms AS end_ms,"
+        + "   LAG(reading) OVER (ORDER BY date_ms) - reading AS usage"
+        + "  FROM readings"
+        + " ) pairs WHERE start_ms IS NOT NULL AND usage >= 0"
+        + "), buckets AS ("
+        + " SELECT k, GREATEST(" + String.format(bucketStart, "k") + ", :startMs) AS start_ms,"
+        + "  LEAST(" + String.format(bucketStart, "k + 1") + " - :endOffset, :endMs) AS end_ms"
+        + " FROM " + dialect.series(":lastBucket")
+        // boundaries sort after ranges starting at the same time, so they fall in those ranges
+        + "), points AS ("
+        + " SELECT start_ms AS t, 0 AS kind, CAST(NULL AS INTEGER) AS k, 0 AS direction,"
+        + "  start_ms, end_ms, usage, usage_before FROM ranges"
+        + " UNION ALL SELECT start_ms, 1, k, -1, NULL, NULL, NULL, NULL FROM buckets"
+        + " UNION ALL SELECT end_ms, 1, k, 1, NULL, NULL, NULL, NULL FROM buckets"
+        // each boundary is grouped with the last range starting before it
+        + "), counted AS ("
+        + " SELECT points.*,"
+        + "  COUNT(start_ms) OVER (ORDER BY t, kind ROWS UNBOUNDED PRECEDING) AS grp"
+        + " FROM points"
+        + "), located AS ("
+        + " SELECT t, kind, k, direction,"
+        + "  MAX(start_ms) OVER (PARTITION BY grp) AS start_ms,"
+        + "  MAX(end_ms) OVER (PARTITION BY grp) AS end_ms,"
+        + "  MAX(usage) OVER (PARTITION BY grp) AS usage,"
+        + "  MAX(usage_before) OVER (PARTITION BY grp) AS usage_before"
+        + " FROM counted"
+        + ") "
+        + "SELECT k, SUM(direction * CASE"
+        + "  WHEN start_ms IS NULL THEN 0"
+        + "  WHEN t >= end_ms THEN usage_before + usage"
+        + "  ELSE usage_before + usage * (t - start_ms) / (end_ms - start_ms) END) AS usage"
+        + " FROM located WHERE kind = 1 GROUP BY k ORDER BY k";
+
+    parameters.addValue("userId", user.getUserId())
+        .addValue("startDate", startDate)
+        .addValue("endDate", endDate)
+        .addValue("startMs", toEpochMilli(startDate))
+        .addValue("endMs", toEpochMilli(endDate))
+        .addValue("endOffset", endsBeforeNext ? 1 : 0)
+        .addValue("lastBucket", size - 1);
+
+    var totals = new BigDecimal[size];
+    jdbcTemplate.query(sql, parameters,
+        resultSet -> {
+          totals[resultSet.getInt("k")] = resultSet.getBigDecimal("usage");
+        });
+    log.debug("Totalled {} buckets of user {} from '{}' to '{}' in the database.", size,
+        user.getUserId(), startDate, endDate);
+    return totals;
+  }
+
+  private static long toEpochMilli(LocalDateTime date) {
+    return date.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  private Dialect getDialect() {
+    if (this.dialect == null) {
+      var productName = jdbcTemplate.getJdbcTemplate().execute(
+          (ConnectionCallback<String>) connection -> connection.getMetaData()
+              .getDatabaseProductName());
+      this.dialect = Dialect.of(productName);
+      log.info("Totalling spending with SQL for {}.", this.dialect);
+    }
+    return this.dialect;
+  }
+
+  /**
+   * The parts of the SQL that H2 and PostgreSQL write differently.
+   */
+  enum Dialect {
+
+    H2 {
+      @Override
+      String epochMillis(String timestamp) {
+        return "DATEDIFF('MILLISECOND', TIMESTAMP '1970-01-01 00:00:00', " + timestamp + ")";
+      }
+
+      @Override
+      String plusMonths(String timestamp, String months) {
+        return "DATEADD('MONTH', " + months + ", " + timestamp + ")";
+      }
+
+      @Override
+      String series(String last) {
+        return "(SELECT X AS k FROM SYSTEM_RANGE(0, " + last + ")) series";
+      }
+    },
+
+    POSTGRESQL {
+      @Override
+      String epochMillis(String timestamp) {
+        return "CAST(EXTRACT(EPOCH FROM DATE_TRUNC('milliseconds', " + timestamp
+            + ")) * 1000 AS BIGINT)";
+      }
+
+      @Override
+      String plusMonths(String timestamp, String months) {
+        return "(" + timestamp + " + (" + months + ") * INTERVAL '1 month')";
+      }
+
+      @Override
+      String series(String last) {
+        return "GENERATE_SERIES(0, " + last + ") AS series(k)";
+      }
+    };
+
+    /**
+     * @throws UnsupportedOperationException if the database is neither.
+     */
+    static Dialect of(String productName) {
+      if ("H2".equalsIgnoreCase(productName)) {
+        return H2;
+      }
+      if ("PostgreSQL".equalsIgnoreCase(productName)) {
+        return POSTGRESQL;
+      }
+      throw new UnsupportedOperationException(
+          "Cannot total spending with SQL for database '" + productName + "'.");
+    }
+
+    /**
+     * @return SQL for the milliseconds from the epoch to the timestamp, taken as UTC.
+     */
+    abstract String epochMillis(String timestamp);
+
+    abstract String plusMonths(String timestamp, String months);
+
+    /**
+     * @return SQL for a table of positions k from 0 to last, inclusive.
+     */
+    abstract String series(String last);
+  }
+}
@@ -2,41 +2,87 @@ package com.cheemcheem.projects.energyusage.repository;
 
 import com.cheemcheem.projects.energyusage.exception.EmptyRepositoryException;
 import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.util.index.SpendingRangeIndex;
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.Objects;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-@Data
+/**
+ * Holds the spending ranges of a single user.
+ *
+ * The ranges are sorted by start date into a {@link SpendingRangeIndex} on first use, so lookups
+ * are binary searches and the earliest and latest dates are known up front. The collection must
+ * not be changed after the first lookup.
+ *
+ * @see SpendingRangeIndex
+ */
 @Repository
 public class SpendingRangeRepository {
 
+  @Getter
   @NonNull
-  private Collection<SpendingRange> spendingRanges;
+  private final Collection<SpendingRange> spendingRanges;
 
+  private SpendingRangeIndex spendingRangeIndex;
+
+  @Autowired
+  public SpendingRangeRepository(@NonNull Collection<SpendingRange> spendingRanges) {
+    this.spendingRanges = spendingRanges;
+  }
+
+  /**
+   * Repository over ranges that have already been indexed.
+   */
+  public SpendingRangeRepository(@NonNull SpendingRangeIndex spendingRangeIndex) {
+    this.spendingRanges = spendingRangeIndex.subList(0, spendingRangeIndex.size());
+    this.spendingRangeIndex = spendingRangeIndex;
+  }
+
+  public SpendingRangeIndex getIndex() {
+    if (this.spendingRangeIndex == null) {
+      this.spendingRangeIndex = SpendingRangeIndex.of(this.spendingRanges);
+    }
+    return this.spendingRangeIndex;
+  }
+
+  /**
+   * @return ranges overlapping the given dates in start date order, as a read only view.
+   */
   public Collection<SpendingRange> getBetweenDates(LocalDateTime startDate, LocalDateTime endDate) {
+    var index = getIndex();
+
+    if (!index.isSearchable()) {
+      return index.subList(0, index.size()).stream()
+          .filter(s -> !s.getEndDate().isBefore(startDate))
+          .filter(s -> !s.getStartDate().isAfter(endDate))
+          .collect(Collectors.toList());
+    }
 
-    return spendingRanges.stream()
-        .filter(s -> !s.getEndDate().isBefore(startDate))
-        .filter(s -> !s.getStartDate().isAfter(endDate))
-        .collect(Collectors.toList());
+    var first = index.firstEndingNotBefore(startDate);
+    var last = index.lastStartingNotAfter(endDate);
+    return index.subList(first, Math.max(first, last + 1));
   }
 
   public LocalDateTime earliest() throws EmptyRepositoryException {
-    return this.spendingRanges.stream()
-        .map(SpendingRange::getStartDate)
-        .min(LocalDateTime::compareTo)
-        .orElseThrow(throwBecauseNothingInStream());
+    var earliest = getIndex().earliestStartDate();
+    if (Objects.isNull(earliest)) {
+      throw throwBecauseNothingInStream().get();
+    }
+    return earliest;
   }
 
   public LocalDateTime latest() throws EmptyRepositoryException {
-    return this.spendingRanges.stream()
-        .map(SpendingRange::getEndDate)
-        .max(LocalDateTime::compareTo)
-        .orElseThrow(throwBecauseNothingInStream());
+    var latest = getIndex().latestEndDate();
+    if (Objects.isNull(latest)) {
+      throw throwBecauseNothingInStream().get();
+    }
+    return latest;
   }
 
   private Supplier<EmptyRepositoryException> throwBecauseNothingInStream() {
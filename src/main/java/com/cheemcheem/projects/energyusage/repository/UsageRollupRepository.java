@@ -0,0 +1,17 @@
+package com.cheemcheem.projects.energyusage.repository;
+
+import com.cheemcheem.projects.energyusage.model.RollupPeriod;
+import com.cheemcheem.projects.energyusage.model.UsageRollup;
+import com.cheemcheem.projects.energyusage.model.User;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UsageRollupRepository extends JpaRepository<UsageRollup, Integer> {
+
+  List<UsageRollup> findAllByUserAndPeriod(User user, RollupPeriod period);
+
+  List<UsageRollup> findAllByUserAndPeriodAndPeriodStartBetween(User user, RollupPeriod period,
+      LocalDateTime from, LocalDateTime to);
+
+}
@@ -1,8 +1,16 @@
 package com.cheemcheem.projects.energyusage.repository;
 
 import com.cheemcheem.projects.energyusage.model.User;
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
 
+  /**
+   * @return ids of every user, without loading their readings.
+   */
+  @Query("select u.userId from user_table u")
+  List<Integer> findAllUserIds();
+
 }
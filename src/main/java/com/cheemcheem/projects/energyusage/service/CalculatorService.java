@@ -0,0 +1,143 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository;
+import com.cheemcheem.projects.energyusage.repository.SpendingRangeRepository;
+import com.cheemcheem.projects.energyusage.util.ArithmeticMode;
+import com.cheemcheem.projects.energyusage.util.Calculator;
+import com.cheemcheem.projects.energyusage.util.ParallelSeries;
+import com.cheemcheem.projects.energyusage.util.SpendingRollups;
+import com.cheemcheem.projects.energyusage.util.index.EnergyReadingColumns;
+import com.cheemcheem.projects.energyusage.util.mapper.EnergyReadingsMapper;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Creates {@link Calculator}s over the cached spending ranges of a user.
+ *
+ * Calculators for a window of dates use the cached ranges if they are there, and otherwise only
+ * load the readings around the window, without caching them.
+ *
+ * @see SpendingRangeCache
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CalculatorService {
+
+  private final EnergyReadingRepository energyReadingRepository;
+  private final DataVersionService dataVersionService;
+  private final SpendingRangeCache spendingRangeCache;
+  private final ParallelSeries parallelSeries;
+
+  @Value("${energy-usage.arithmetic-mode:BIG_DECIMAL}")
+  private ArithmeticMode arithmeticMode;
+
+  /**
+   * @return calculator using the configured {@link ArithmeticMode}.
+   */
+  public Calculator getCalculator(User user, SpendingRollups spendingRollups) {
+    return getCalculator(user, arithmeticMode, spendingRollups);
+  }
+
+  public Calculator getCalculator(User user, ArithmeticMode arithmeticMode,
+      SpendingRollups spendingRollups) {
+    // read the version before the readings, so the cached ranges are never older than it says
+    var version = dataVersionService.getVersion(user.getUserId());
+    var spendingRangeRepository = spendingRangeCache.get(user.getUserId(), version,
+        () -> loadSpendingRanges(user));
+    return new Calculator(spendingRangeRepository, arithmeticMode, spendingRollups,
+        parallelSeries);
+  }
+
+  /**
+   * @return calculator that gives the same results as one over every reading, for anything between
+   * the dates, including averages, which start at midnight of the start date.
+   */
+  public Calculator getCalculator(User user, LocalDateTime startDate, LocalDateTime endDate,
+      SpendingRollups spendingRollups) {
+    return getCalculator(user, spendingRollups, () -> energyReadingRepository
+        .findAllByUserAround(user, startDate.truncatedTo(ChronoUnit.DAYS), endDate));
+  }
+
+  /**
+   * Same as {@link #getCalculator(User, LocalDateTime, LocalDateTime, SpendingRollups)}, from the
+   * date to the last reading.
+   */
+  public Calculator getCalculatorFrom(User user, LocalDateTime startDate,
+      SpendingRollups spendingRollups) {
+    return getCalculator(user, spendingRollups, () -> {
+      var last = energyReadingRepository.findFirstByUserOrderByDateDesc(user)
+          .map(EnergyReading::getDate)
+          .orElse(startDate);
+      // a start date after the last reading still needs the range that ends at it
+      return energyReadingRepository
+          .findAllByUserAround(user, startDate.isAfter(last) ? last : startDate, last);
+    });
+  }
+
+  /**
+   * Same as {@link #getCalculator(User, LocalDateTime, LocalDateTime, SpendingRollups)}, from the
+   * first reading to the date.
+   */
+  public Calculator getCalculatorUntil(User user, LocalDateTime endDate,
+      SpendingRollups spendingRollups) {
+    return getCalculator(user, spendingRollups, () -> {
+      var first = energyReadingRepository.findFirstByUserOrderByDateAsc(user)
+          .map(EnergyReading::getDate)
+          .orElse(endDate);
+      return energyReadingRepository
+          .findAllByUserAround(user, first, endDate.isBefore(first) ? first : endDate);
+    });
+  }
+
+  /**
+   * @param window loads the readings around a window of dates, if none are cached.
+   */
+  private Calculator getCalculator(User user, SpendingRollups spendingRollups,
+      Supplier<List<EnergyReading>> window) {
+    var version = dataVersionService.getVersion(user.getUserId());
+    var spendingRangeRepository = spendingRangeCache.getIfPresent(user.getUserId(), version);
+    if (spendingRangeRepository == null) {
+      log.debug("Building spending ranges for a window of user {}.", user.getUserId());
+      spendingRangeRepository = loadSpendingRanges(window.get()).getSpendingRangeRepository();
+    }
+    return new Calculator(spendingRangeRepository, arithmeticMode, spendingRollups,
+        parallelSeries);
+  }
+
+  private SpendingRangeCache.Loaded loadSpendingRanges(User user) {
+    log.debug("Building spending ranges for user {}.", user.getUserId());
+    return loadSpendingRanges(energyReadingRepository.findAllByUser(user));
+  }
+
+  private SpendingRangeCache.Loaded loadSpendingRanges(List<EnergyReading> energyReadings) {
+    // readings that can be kept in columns take new readings without being built again
+    var energyReadingColumns = EnergyReadingColumns.of(energyReadings);
+    if (energyReadingColumns.isPresent()) {
+      return new SpendingRangeCache.Loaded(energyReadingColumns.get());
+    }
+
+    var energyReadingsMapper = new EnergyReadingsMapper(energyReadings);
+    Collection<SpendingRange> spendingRanges;
+    try {
+      spendingRanges = energyReadingsMapper.getEnergyReadingsColumns();
+    } catch (ArithmeticException e) {
+      log.warn("Readings do not fit in columns, using spending range objects instead.", e);
+      spendingRanges = energyReadingsMapper.getEnergyReadingsRange();
+    }
+    var spendingRangeRepository = new SpendingRangeRepository(spendingRanges);
+    // index now, while nothing else can see the repository
+    spendingRangeRepository.getIndex();
+    return new SpendingRangeCache.Loaded(spendingRangeRepository);
+  }
+}
@@ -0,0 +1,47 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Counts changes to the readings of each user, so anything built from them can tell when it is
+ * out of date.
+ *
+ * Versions only go up, and are read before the readings they describe are loaded, so something
+ * built from a version is at least as new as that version.
+ *
+ * Versions are only kept in memory and start again at 0, so anything that outlives the
+ * application, like an ETag, also needs the {@link #getEpoch() epoch} they were counted from.
+ */
+@Slf4j
+@Service
+public class DataVersionService {
+
+  private final Map<Integer, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  private final long epoch = System.currentTimeMillis();
+
+  /**
+   * @return when these versions started being counted.
+   */
+  public long getEpoch() {
+    return this.epoch;
+  }
+
+  public long getVersion(int userId) {
+    var version = this.versions.get(userId);
+    return version == null ? 0 : version.get();
+  }
+
+  /**
+   * Call once the change to the readings has been saved.
+   */
+  public long bump(int userId) {
+    var version = this.versions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    log.debug("Readings of user {} are now at version {}.", userId, version);
+    return version;
+  }
+}
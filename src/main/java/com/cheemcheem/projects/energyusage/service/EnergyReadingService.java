@@ -1,16 +1,29 @@
 package com.cheemcheem.projects.energyusage.service;
 
 import com.cheemcheem.projects.energyusage.dto.EnergyReadingDTO;
+import com.cheemcheem.projects.energyusage.dto.ImportErrorDTO;
+import com.cheemcheem.projects.energyusage.dto.ImportResultDTO;
+import com.cheemcheem.projects.energyusage.dto.ReadingAcceptanceDTO;
 import com.cheemcheem.projects.energyusage.exception.InvalidBigDecimalException;
 import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
 import com.cheemcheem.projects.energyusage.model.EnergyReading;
 import com.cheemcheem.projects.energyusage.model.User;
 import com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository;
+import com.cheemcheem.projects.energyusage.util.importer.EnergyReadingsLineParser;
 import com.cheemcheem.projects.energyusage.util.mapper.DTOMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Slf4j
@@ -19,9 +32,31 @@ import org.springframework.stereotype.Service;
 public class EnergyReadingService {
 
   private final EnergyReadingRepository energyReadingRepository;
+  private final DataVersionService dataVersionService;
+  private final SpendingRangeCache spendingRangeCache;
+  private final RollupService rollupService;
+  private final ResponseCache responseCache;
+
+  @Value("${energy-usage.import.batch-size:500}")
+  private int importBatchSize;
+
+  @Value("${energy-usage.import.max-errors:1000}")
+  private int importMaxErrors;
 
   public boolean addReading(User user, EnergyReadingDTO energyReadingDTO) {
     log.debug("EnergyReadingService.addReading");
+    var energyReading = toEnergyReading(user, energyReadingDTO);
+    if (energyReading.isEmpty()) {
+      return false;
+    }
+    saveReadings(List.of(energyReading.get()));
+    return true;
+  }
+
+  /**
+   * @return the reading of the user in the request body, or nothing if it cannot be parsed.
+   */
+  public Optional<EnergyReading> toEnergyReading(User user, EnergyReadingDTO energyReadingDTO) {
     log.debug("Creating energy reading from request body {}.", energyReadingDTO);
 
     EnergyReading energyReading;
@@ -29,26 +64,205 @@ public class EnergyReadingService {
       energyReading = DTOMapper.toEnergyReadingModel(energyReadingDTO);
     } catch (InvalidDateException | InvalidBigDecimalException e) {
       log.warn("Failed to parse request body. Reason: {}", e.getMessage(), e);
-      return false;
+      return Optional.empty();
     }
     log.debug("Created energy reading {}. Adding user {}.", energyReading, user);
 
     energyReading.setUser(user);
-    log.debug("Added user to energy reading {}. Saving in repository.", energyReading);
+    return Optional.of(energyReading);
+  }
 
-    var saved = this.energyReadingRepository.save(energyReading);
-    log.debug("Saved energy reading in repository {}.", saved);
+  /**
+   * Saves every reading that can be parsed in one transaction.
+   *
+   * @return whether each reading was accepted, in the order they were given.
+   */
+  public List<ReadingAcceptanceDTO> addReadings(User user,
+      List<EnergyReadingDTO> energyReadingDTOs) {
+    log.debug("EnergyReadingService.addReadings");
+    log.debug("Creating {} energy readings for user {}.", energyReadingDTOs.size(), user);
 
-    return true;
+    var acceptances = new ArrayList<ReadingAcceptanceDTO>(energyReadingDTOs.size());
+    var energyReadings = new ArrayList<EnergyReading>(energyReadingDTOs.size());
+    for (var energyReadingDTO : energyReadingDTOs) {
+      try {
+        var energyReading = DTOMapper.toEnergyReadingModel(energyReadingDTO);
+        energyReading.setUser(user);
+        energyReadings.add(energyReading);
+        acceptances.add(new ReadingAcceptanceDTO(true, null));
+      } catch (InvalidDateException | InvalidBigDecimalException e) {
+        log.debug("Rejected reading {}. Reason: {}", energyReadingDTO, e.getMessage());
+        acceptances.add(new ReadingAcceptanceDTO(false, e.getMessage()));
+      }
+    }
+
+    saveReadings(energyReadings);
+    return acceptances;
+  }
+
+  /**
+   * Saves readings, of any number of users, in one transaction, then brings the caches of each
+   * user up to date with them, and has their rollups updated in the background.
+   */
+  public void saveReadings(List<EnergyReading> energyReadings) {
+    commitReadings(energyReadings);
+    readingsSaved(energyReadings);
+  }
+
+  /**
+   * Saves readings, of any number of users, in one transaction, holding the rollups of each user
+   * until {@link #readingsSaved(List)} is called with the same readings.
+   *
+   * @throws RuntimeException if the readings could not be saved, in which case none were.
+   */
+  public void commitReadings(List<EnergyReading> energyReadings) {
+    if (energyReadings.isEmpty()) {
+      return;
+    }
+    var users = getUsers(energyReadings);
+    users.forEach(this.rollupService::hold);
+    try {
+      this.energyReadingRepository.saveAll(energyReadings);
+    } catch (RuntimeException e) {
+      users.forEach(this.rollupService::release);
+      throw e;
+    }
+    log.debug("Saved {} energy readings in repository.", energyReadings.size());
+  }
+
+  /**
+   * Brings the caches of each user up to date with readings saved by {@link
+   * #commitReadings(List)}, and has their rollups updated in the background, which holds them until
+   * it has run. The readings are saved either way, so if this fails the cached ranges and responses
+   * of each user are dropped instead of failing.
+   */
+  public void readingsSaved(List<EnergyReading> energyReadings) {
+    if (energyReadings.isEmpty()) {
+      return;
+    }
+    var users = getUsers(energyReadings);
+    try {
+      // each reading is its own version, so the cached ranges can take them one at a time
+      for (var energyReading : energyReadings) {
+        var userId = energyReading.getUser().getUserId();
+        var version = this.dataVersionService.bump(userId);
+        this.spendingRangeCache
+            .addReading(userId, version, energyReading.getDate(), energyReading.getReading());
+      }
+      for (var user : users) {
+        this.responseCache.invalidate(user.getUserId());
+        var dates = energyReadings.stream()
+            .filter(energyReading -> energyReading.getUser().getUserId() == user.getUserId())
+            .map(EnergyReading::getDate)
+            .collect(Collectors.toList());
+        this.rollupService.updateLater(user, Collections.min(dates), Collections.max(dates));
+      }
+    } catch (RuntimeException e) {
+      log.error("Failed to update caches with {} saved energy readings, dropping them.",
+          energyReadings.size(), e);
+      for (var user : users) {
+        this.dataVersionService.bump(user.getUserId());
+        this.spendingRangeCache.invalidate(user.getUserId());
+        this.responseCache.invalidate(user.getUserId());
+      }
+    } finally {
+      users.forEach(this.rollupService::release);
+    }
+  }
+
+  private static Collection<User> getUsers(List<EnergyReading> energyReadings) {
+    var users = new LinkedHashMap<Integer, User>();
+    energyReadings.forEach(energyReading -> users
+        .putIfAbsent(energyReading.getUser().getUserId(), energyReading.getUser()));
+    return users.values();
+  }
+
+  /**
+   * Saves the readings of a meter export as they are read, a batch at a time, so only one batch
+   * is held at once. Rows that cannot be parsed are reported and skipped, and blank rows are
+   * skipped without being reported. Batches that were saved before the reader fails are kept.
+   * Rollups of the user are rebuilt afterwards without waiting for them.
+   */
+  public ImportResultDTO importReadings(User user, Reader reader) throws IOException {
+    log.debug("EnergyReadingService.importReadings");
+    log.debug("Importing energy readings for user {}.", user);
+
+    var batch = new ArrayList<EnergyReading>(this.importBatchSize);
+    var errors = new ArrayList<ImportErrorDTO>();
+    long imported = 0;
+    long rejected = 0;
+    long row = 0;
+
+    this.rollupService.hold(user);
+    try (var lines = new BufferedReader(reader)) {
+      String line;
+      while ((line = lines.readLine()) != null) {
+        row++;
+        if (line.isBlank()) {
+          continue;
+        }
+
+        EnergyReading energyReading;
+        try {
+          energyReading = EnergyReadingsLineParser.parse(line);
+        } catch (InvalidDateException | InvalidBigDecimalException e) {
+          log.debug("Rejected row {}. Reason: {}", row, e.getMessage());
+          rejected++;
+          if (errors.size() < this.importMaxErrors) {
+            errors.add(new ImportErrorDTO(row, e.getMessage()));
+          }
+          continue;
+        }
+
+        energyReading.setUser(user);
+        batch.add(energyReading);
+        if (batch.size() == this.importBatchSize) {
+          imported += saveBatch(batch);
+        }
+      }
+      imported += saveBatch(batch);
+    } finally {
+      try {
+        if (imported > 0) {
+          this.dataVersionService.bump(user.getUserId());
+          this.responseCache.invalidate(user.getUserId());
+          this.spendingRangeCache.invalidate(user.getUserId());
+          this.rollupService.rebuildLater(user);
+        }
+      } finally {
+        this.rollupService.release(user);
+      }
+    }
+    log.info("Imported {} energy readings and rejected {} for user {}.", imported, rejected,
+        user.getUserId());
+
+    return ImportResultDTO.builder()
+        .imported(imported)
+        .rejected(rejected)
+        .errors(errors)
+        .build();
+  }
+
+  /**
+   * Saves the batch in one transaction, which Hibernate sends as JDBC batches, then empties it.
+   */
+  private int saveBatch(List<EnergyReading> batch) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    this.energyReadingRepository.saveAll(batch);
+    var saved = batch.size();
+    log.debug("Saved batch of {} energy readings.", saved);
+    batch.clear();
+    return saved;
   }
 
   public Collection<EnergyReadingDTO> convertReadingsForUser(User user) {
     log.info("EnergyReadingService.convertReadingsForUser");
     log.debug("Converting energy readings in user {}.", user);
 
-    var converted = user.getEnergyReadings()
+    var converted = this.energyReadingRepository.findAllByUserOrderByDateAsc(user)
         .stream()
-        .sorted()
         .map(DTOMapper::toEnergyReadingDTO)
         .collect(Collectors.toList());
     log.debug("Converted energy readings: {}.", converted);
@@ -60,12 +274,8 @@ public class EnergyReadingService {
     log.info("EnergyReadingService.getLastReadingForUser");
     log.debug("Getting last energy reading for user {}.", user);
 
-    var ordered = user.getEnergyReadings()
-        .stream()
-        .sorted()
-        .collect(Collectors.toList());
-
-    var last = DTOMapper.toEnergyReadingDTO(ordered.get(ordered.size() - 1));
+    var last = DTOMapper.toEnergyReadingDTO(
+        this.energyReadingRepository.findFirstByUserOrderByDateDesc(user).orElseThrow());
     log.debug("Last energy reading: {}.", last);
 
     return last;
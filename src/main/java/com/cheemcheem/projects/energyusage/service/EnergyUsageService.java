@@ -1,20 +1,25 @@
 package com.cheemcheem.projects.energyusage.service;
 
+import com.cheemcheem.projects.energyusage.dto.QueryDTO;
+import com.cheemcheem.projects.energyusage.dto.QueryResultDTO;
 import com.cheemcheem.projects.energyusage.dto.SpendingRangeDTO;
 import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
 import com.cheemcheem.projects.energyusage.model.EnergyReading;
 import com.cheemcheem.projects.energyusage.model.SpendingRange;
 import com.cheemcheem.projects.energyusage.model.User;
-import com.cheemcheem.projects.energyusage.repository.SpendingRangeRepository;
 import com.cheemcheem.projects.energyusage.util.Calculator;
+import com.cheemcheem.projects.energyusage.util.CalculatorBackend;
+import com.cheemcheem.projects.energyusage.util.Granularity;
+import com.cheemcheem.projects.energyusage.util.converter.LocalDateTimeConverter;
 import com.cheemcheem.projects.energyusage.util.mapper.DTOMapper;
-import com.cheemcheem.projects.energyusage.util.mapper.EnergyReadingsMapper;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -23,7 +28,11 @@ import org.springframework.stereotype.Service;
  * The DTO used is {@link SpendingRangeDTO}. The Models used are {@link EnergyReading} and {@link
  * SpendingRange}
  *
+ * Total spending over all dates, between dates, and of calendar series is worked out in the
+ * database instead when the {@link CalculatorBackend#SQL} backend is configured.
+ *
  * @see Calculator for calculations
+ * @see SpendingAggregationService for calculations in the database
  * @see DTOMapper for DTO/Model mapping
  */
 @Slf4j
@@ -31,12 +40,28 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class EnergyUsageService {
 
+  private final CalculatorService calculatorService;
+  private final RollupService rollupService;
+  private final SpendingAggregationService spendingAggregationService;
+
+  @Value("${energy-usage.calculator.backend:IN_MEMORY}")
+  private CalculatorBackend calculatorBackend;
+
+  private boolean isSql() {
+    return calculatorBackend == CalculatorBackend.SQL;
+  }
 
   private Calculator getCalculatorService(User user) {
-    var energyReadings = new ArrayList<>(user.getEnergyReadings());
-    var spendingRanges = new EnergyReadingsMapper(energyReadings).getEnergyReadingsRange();
-    var spendingRangeRepository = new SpendingRangeRepository(spendingRanges);
-    return new Calculator(spendingRangeRepository);
+    return calculatorService.getCalculator(user, rollupService.getRollups(user));
+  }
+
+  /**
+   * @return calculator for requests between the dates, which only needs the readings around them.
+   */
+  private Calculator getCalculatorService(User user, LocalDateTime startDate,
+      LocalDateTime endDate) {
+    return calculatorService
+        .getCalculator(user, startDate, endDate, rollupService.getRollups(user));
   }
 
   public List<SpendingRangeDTO> getTotalSpendingDaily(User user) {
@@ -44,9 +69,7 @@ public class EnergyUsageService {
 
     var totalDailySpending = getCalculatorService(user).calculateTotalDailySpending();
 
-    return totalDailySpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(totalDailySpending);
   }
 
   public List<SpendingRangeDTO> getTotalSpendingWeekly(User user) {
@@ -54,9 +77,7 @@ public class EnergyUsageService {
 
     var totalWeeklySpending = getCalculatorService(user).calculateTotalWeeklySpending();
 
-    return totalWeeklySpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(totalWeeklySpending);
   }
 
   public List<SpendingRangeDTO> getTotalSpendingMonthly(User user) {
@@ -64,14 +85,73 @@ public class EnergyUsageService {
 
     var totalMonthlySpending = getCalculatorService(user).calculateTotalMonthlySpending();
 
-    return totalMonthlySpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(totalMonthlySpending);
+  }
+
+  public List<SpendingRangeDTO> getTotalSpending(Granularity granularity, int billingDay,
+      User user) {
+    log.info("Get total {} spending over all days.", granularity);
+
+    var totalSpending = isSql()
+        ? spendingAggregationService.calculateTotalSpending(user, granularity, billingDay)
+        : getCalculatorService(user).calculateTotalSpending(granularity, billingDay);
+
+    return DTOMapper.toSpendingRangeDTOs(totalSpending);
+  }
+
+  public List<SpendingRangeDTO> getTotalSpending(LocalDateTime startDate, LocalDateTime endDate,
+      Granularity granularity, int billingDay, User user)
+      throws InvalidDateException {
+    log.info("Get total {} spending from '{}' to '{}'.", granularity, startDate, endDate);
+
+    var totalSpending = isSql()
+        ? spendingAggregationService.calculateTotalSpending(user, startDate, endDate, granularity,
+            billingDay)
+        : getCalculatorService(user, startDate, endDate)
+            .calculateTotalSpending(startDate, endDate, granularity, billingDay);
+
+    return DTOMapper.toSpendingRangeDTOs(totalSpending);
+  }
+
+  /**
+   * @return total spending of each bucket, only worked out as the stream gets to it.
+   */
+  public Stream<SpendingRangeDTO> streamTotalSpending(Granularity granularity, int billingDay,
+      User user) {
+    log.info("Stream total {} spending over all days.", granularity);
+
+    if (isSql()) {
+      return spendingAggregationService.calculateTotalSpending(user, granularity, billingDay)
+          .stream()
+          .map(DTOMapper::toSpendingRangeDTO);
+    }
+    return getCalculatorService(user).streamTotalSpending(granularity, billingDay)
+        .map(DTOMapper::toSpendingRangeDTO);
+  }
+
+  /**
+   * @return total spending of each bucket, only worked out as the stream gets to it.
+   */
+  public Stream<SpendingRangeDTO> streamTotalSpending(LocalDateTime startDate,
+      LocalDateTime endDate, Granularity granularity, int billingDay, User user)
+      throws InvalidDateException {
+    log.info("Stream total {} spending from '{}' to '{}'.", granularity, startDate, endDate);
+
+    if (isSql()) {
+      return spendingAggregationService
+          .calculateTotalSpending(user, startDate, endDate, granularity, billingDay).stream()
+          .map(DTOMapper::toSpendingRangeDTO);
+    }
+    return getCalculatorService(user, startDate, endDate)
+        .streamTotalSpending(startDate, endDate, granularity, billingDay)
+        .map(DTOMapper::toSpendingRangeDTO);
   }
 
   public SpendingRangeDTO getAllSpending(User user) {
     log.info("Get all spending.");
-    var spendingRange = getCalculatorService(user).calculateAllSpending();
+    var spendingRange = isSql()
+        ? spendingAggregationService.calculateAllSpending(user)
+        : getCalculatorService(user).calculateAllSpending();
     return DTOMapper.toSpendingRangeDTO(spendingRange);
 
   }
@@ -79,7 +159,10 @@ public class EnergyUsageService {
   public SpendingRangeDTO getSpendingFrom(LocalDateTime startDate, User user) {
     log.info("Get spending from '" + startDate + "'.");
 
-    var spendingRange = getCalculatorService(user).calculateSpendingAfterDate(startDate);
+    var spendingRange = isSql()
+        ? spendingAggregationService.calculateSpendingAfterDate(user, startDate)
+        : calculatorService.getCalculatorFrom(user, startDate, rollupService.getRollups(user))
+            .calculateSpendingAfterDate(startDate);
     return DTOMapper.toSpendingRangeDTO(spendingRange);
 
   }
@@ -87,7 +170,10 @@ public class EnergyUsageService {
   public SpendingRangeDTO getSpendingTo(LocalDateTime endDate, User user) {
     log.info("Get spending to '" + endDate + "'.");
 
-    var spendingRange = getCalculatorService(user).calculateSpendingUntilDate(endDate);
+    var spendingRange = isSql()
+        ? spendingAggregationService.calculateSpendingUntilDate(user, endDate)
+        : calculatorService.getCalculatorUntil(user, endDate, rollupService.getRollups(user))
+            .calculateSpendingUntilDate(endDate);
     return DTOMapper.toSpendingRangeDTO(spendingRange);
 
   }
@@ -97,8 +183,10 @@ public class EnergyUsageService {
       throws InvalidDateException {
     log.info("Get spending from '" + startDate + "' to '" + endDate + "'.");
 
-    var spendingRange = getCalculatorService(user)
-        .calculateSpendingBetweenDates(startDate, endDate);
+    var spendingRange = isSql()
+        ? spendingAggregationService.calculateSpendingBetweenDates(user, startDate, endDate)
+        : getCalculatorService(user, startDate, endDate)
+            .calculateSpendingBetweenDates(startDate, endDate);
     return DTOMapper.toSpendingRangeDTO(spendingRange);
 
   }
@@ -110,9 +198,7 @@ public class EnergyUsageService {
     var averageSpending = getCalculatorService(user)
         .calculateAverageSpending(dayGap);
 
-    return averageSpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(averageSpending);
   }
 
   public List<SpendingRangeDTO> getAverageSpending(LocalDateTime startDate, LocalDateTime endDate,
@@ -121,12 +207,10 @@ public class EnergyUsageService {
     log.info("Get average spending from '" + startDate + "' to '" + endDate + "' over '" + dayGap
         + "' day periods.");
 
-    var averageSpending = getCalculatorService(user)
+    var averageSpending = getCalculatorService(user, startDate, endDate)
         .calculateAverageSpending(startDate, endDate, dayGap);
 
-    return averageSpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(averageSpending);
 
   }
 
@@ -135,9 +219,7 @@ public class EnergyUsageService {
 
     var averageDailySpending = getCalculatorService(user).calculateAverageDailySpending();
 
-    return averageDailySpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(averageDailySpending);
   }
 
   public List<SpendingRangeDTO> getAverageSpendingBetweenDaily(LocalDateTime startDate,
@@ -145,12 +227,10 @@ public class EnergyUsageService {
       throws InvalidDateException {
     log.info("Get average daily spending from '" + startDate + "' to '" + endDate + "'.");
 
-    var averageDailySpending = getCalculatorService(user)
+    var averageDailySpending = getCalculatorService(user, startDate, endDate)
         .calculateAverageDailySpending(startDate, endDate);
 
-    return averageDailySpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(averageDailySpending);
 
   }
 
@@ -159,9 +239,7 @@ public class EnergyUsageService {
 
     var averageWeeklySpending = getCalculatorService(user).calculateAverageWeeklySpending();
 
-    return averageWeeklySpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(averageWeeklySpending);
   }
 
   public List<SpendingRangeDTO> getAverageSpendingBetweenWeekly(LocalDateTime startDate,
@@ -169,12 +247,10 @@ public class EnergyUsageService {
       throws InvalidDateException {
     log.info("Get average weekly spending from '" + startDate + "' to '" + endDate + "'.");
 
-    var averageWeeklySpending = getCalculatorService(user)
+    var averageWeeklySpending = getCalculatorService(user, startDate, endDate)
         .calculateAverageWeeklySpending(startDate, endDate);
 
-    return averageWeeklySpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(averageWeeklySpending);
 
   }
 
@@ -183,9 +259,7 @@ public class EnergyUsageService {
 
     var averageMonthlySpending = getCalculatorService(user).calculateAverageMonthlySpending();
 
-    return averageMonthlySpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(averageMonthlySpending);
   }
 
   public List<SpendingRangeDTO> getAverageSpendingBetweenMonthly(LocalDateTime startDate,
@@ -193,12 +267,10 @@ public class EnergyUsageService {
       throws InvalidDateException {
     log.info("Get average weekly monthly from '" + startDate + "' to '" + endDate + "'.");
 
-    var averageMonthlySpending = getCalculatorService(user)
+    var averageMonthlySpending = getCalculatorService(user, startDate, endDate)
         .calculateAverageMonthlySpending(startDate, endDate);
 
-    return averageMonthlySpending.stream()
-        .map(DTOMapper::toSpendingRangeDTO)
-        .collect(Collectors.toList());
+    return DTOMapper.toSpendingRangeDTOs(averageMonthlySpending);
 
   }
 
@@ -214,4 +286,114 @@ public class EnergyUsageService {
 
     return averages.get(averages.size() - 1);
   }
+
+  /**
+   * Answers every query with the same calculator, so the spending ranges and rollups of the user
+   * are only looked up once for the whole batch.
+   *
+   * @return a result for each query, in the same order.
+   */
+  public List<QueryResultDTO> query(List<QueryDTO> queries, User user) {
+    log.info("Run {} queries.", queries.size());
+
+    var calculator = getCalculatorService(user);
+
+    return queries.stream()
+        .map(query -> query(query, calculator))
+        .collect(Collectors.toList());
+  }
+
+  private QueryResultDTO query(QueryDTO query, Calculator calculator) {
+    log.debug("Run query {}.", query);
+    try {
+      var spendingRanges = calculate(query, calculator).stream()
+          .map(DTOMapper::toSpendingRangeDTO)
+          .collect(Collectors.toList());
+      return QueryResultDTO.builder().spendingRanges(spendingRanges).build();
+    } catch (InvalidDateException | IllegalArgumentException e) {
+      log.warn("Failed to run query {}. Reason: {}", query, e.getMessage());
+      return QueryResultDTO.builder().error(e.getMessage()).build();
+    }
+  }
+
+  private List<SpendingRange> calculate(QueryDTO query, Calculator calculator)
+      throws InvalidDateException {
+    var type = query.getType();
+    var granularity = query.getGranularity();
+    if (type == null || granularity == null) {
+      throw new IllegalArgumentException("Query needs a type and a granularity.");
+    }
+
+    var startDate = query.getStartDateISO() == null ? null
+        : LocalDateTimeConverter.parseISO(query.getStartDateISO());
+    var endDate = query.getEndDateISO() == null ? null
+        : LocalDateTimeConverter.parseISO(query.getEndDateISO());
+    var all = startDate == null && endDate == null;
+    if (granularity != QueryDTO.Granularity.TOTAL && !all
+        && (startDate == null || endDate == null)) {
+      throw new IllegalArgumentException(
+          "Query for " + granularity + " needs both a start and end date, or neither.");
+    }
+
+    switch (type) {
+      case SPENDING:
+        switch (granularity) {
+          case TOTAL:
+            if (all) {
+              return List.of(calculator.calculateAllSpending());
+            }
+            if (endDate == null) {
+              return List.of(calculator.calculateSpendingAfterDate(startDate));
+            }
+            if (startDate == null) {
+              return List.of(calculator.calculateSpendingUntilDate(endDate));
+            }
+            return List.of(calculator.calculateSpendingBetweenDates(startDate, endDate));
+          case DAILY:
+            return all ? calculator.calculateTotalDailySpending()
+                : calculator.calculateTotalSpending(startDate, endDate, 1);
+          case WEEKLY:
+            return all ? calculator.calculateTotalWeeklySpending()
+                : calculator.calculateTotalWeeklySpending(startDate, endDate);
+          case MONTHLY:
+            return all ? calculator.calculateTotalMonthlySpending()
+                : calculator.calculateTotalMonthlySpending(startDate, endDate);
+          default:
+            break;
+        }
+        break;
+      case AVERAGE:
+        switch (granularity) {
+          case DAILY:
+            return all ? calculator.calculateAverageDailySpending()
+                : calculator.calculateAverageDailySpending(startDate, endDate);
+          case WEEKLY:
+            return all ? calculator.calculateAverageWeeklySpending()
+                : calculator.calculateAverageWeeklySpending(startDate, endDate);
+          case MONTHLY:
+            return all ? calculator.calculateAverageMonthlySpending()
+                : calculator.calculateAverageMonthlySpending(startDate, endDate);
+          case DAY_GAP:
+            var dayGap = query.getDayGap() == null ? 7 : query.getDayGap();
+            if (dayGap < 1) {
+              throw new IllegalArgumentException("Day gap must be at least 1, not " + dayGap + ".");
+            }
+            return all ? calculator.calculateAverageSpending(dayGap)
+                : calculator.calculateAverageSpending(startDate, endDate, dayGap);
+          case LAST_MONTH:
+            if (!all) {
+              break;
+            }
+            var averages = calculator.calculateAverageMonthlySpending();
+            return averages.isEmpty() ? List.of() : List.of(Collections.max(averages));
+          default:
+            break;
+        }
+        break;
+      default:
+        break;
+    }
+    throw new IllegalArgumentException(
+        "Query for " + type + " with " + granularity + " is not supported.");
+  }
 }
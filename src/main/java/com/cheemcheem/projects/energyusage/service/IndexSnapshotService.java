@@ -0,0 +1,209 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository;
+import com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository.ReadingStatistics;
+import com.cheemcheem.projects.energyusage.service.ReadinessService.Load;
+import com.cheemcheem.projects.energyusage.service.SpendingRangeCache.Loaded;
+import com.cheemcheem.projects.energyusage.util.index.EnergyReadingColumns;
+import com.cheemcheem.projects.energyusage.util.index.IndexSnapshot;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Saves the cached spending ranges of every user to an {@link IndexSnapshot} every so often and
+ * when the application stops, and restores them from it when it starts, so the first requests
+ * after a deploy do not all build their ranges from the database at once.
+ *
+ * An entry is only restored if the latest reading id and number of readings of its user are still
+ * those it was saved with, so readings saved by another instance in the meantime are never missed.
+ * The application is not ready until the snapshot has been restored.
+ */
+@Slf4j
+@Service
+public class IndexSnapshotService implements org.springframework.boot.CommandLineRunner,
+    AutoCloseable {
+
+  private final SpendingRangeCache spendingRangeCache;
+  private final DataVersionService dataVersionService;
+  private final EnergyReadingRepository energyReadingRepository;
+  private final ReadinessService readinessService;
+  private final Path path;
+  private final long intervalSeconds;
+
+  private final ScheduledExecutorService executor;
+
+  /**
+   * Data version of each user in the snapshot last saved or restored, so it is only saved again
+   * once something has changed.
+   */
+  private Map<Integer, Long> savedVersions = Map.of();
+
+  /**
+   * Whether the snapshot has been restored, or could not be, before which saving would replace it
+   * with only the ranges built so far.
+   */
+  private boolean restored = false;
+
+  public IndexSnapshotService(SpendingRangeCache spendingRangeCache,
+      DataVersionService dataVersionService, EnergyReadingRepository energyReadingRepository,
+      ReadinessService readinessService,
+      @Value("${energy-usage.snapshot.path:}") String path,
+      @Value("${energy-usage.snapshot.interval-seconds:300}") long intervalSeconds) {
+    this.spendingRangeCache = spendingRangeCache;
+    this.dataVersionService = dataVersionService;
+    this.energyReadingRepository = energyReadingRepository;
+    this.readinessService = readinessService;
+    this.path = path.isBlank() ? null : Path.of(path);
+    this.intervalSeconds = intervalSeconds;
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      var thread = new Thread(runnable, "index-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public void run(String... args) {
+    if (this.path == null) {
+      log.info("Not saving spending ranges to a snapshot, as no path is set.");
+      return;
+    }
+
+    var load = this.readinessService.begin("index snapshot");
+    this.executor.execute(() -> restore(load));
+    if (this.intervalSeconds > 0) {
+      this.executor.scheduleWithFixedDelay(this::saveQuietly, this.intervalSeconds,
+          this.intervalSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Caches the spending ranges of every user in the snapshot whose readings have not changed.
+   */
+  synchronized void restore(Load load) {
+    try {
+      if (!Files.exists(this.path)) {
+        log.info("No snapshot of spending ranges at {} to restore.", this.path);
+        this.restored = true;
+        load.finish();
+        return;
+      }
+
+      load.stage("reading snapshot", Files.size(this.path));
+      var entries = IndexSnapshot.read(this.path);
+      load.progress(Files.size(this.path));
+
+      load.stage("restoring spending ranges", entries.size());
+      // versions are read before the readings are checked, as they would be for a load
+      var versions = new HashMap<Integer, Long>();
+      entries.forEach(entry -> versions
+          .put(entry.getUserId(), this.dataVersionService.getVersion(entry.getUserId())));
+      var statistics = findReadingStatistics();
+
+      var restoredVersions = new HashMap<Integer, Long>();
+      for (var entry : entries) {
+        load.progress(1);
+        var current = statistics.get(entry.getUserId());
+        if (current == null
+            || current.getLatestEnergyReadingId() != entry.getLatestEnergyReadingId()
+            || current.getEnergyReadingCount() != entry.getEnergyReadingCount()) {
+          log.debug("Not restoring spending ranges of user {}, their readings have changed.",
+              entry.getUserId());
+          continue;
+        }
+        var energyReadingColumns = EnergyReadingColumns.of(entry.getReadings());
+        if (energyReadingColumns.isEmpty()) {
+          log.warn("Not restoring spending ranges of user {}, their readings cannot be held.",
+              entry.getUserId());
+          continue;
+        }
+        var version = versions.get(entry.getUserId());
+        this.spendingRangeCache.put(entry.getUserId(), version,
+            new Loaded(energyReadingColumns.get()));
+        restoredVersions.put(entry.getUserId(), version);
+      }
+      this.savedVersions = restoredVersions;
+      log.info("Restored spending ranges of {} of {} users from {}.", restoredVersions.size(),
+          entries.size(), this.path);
+    } catch (IOException e) {
+      // a snapshot that cannot be read only means building the ranges again
+      log.warn("Could not restore spending ranges from {}. Reason: {}", this.path,
+          e.getMessage());
+    } catch (RuntimeException e) {
+      load.fail(e);
+      return;
+    }
+    this.restored = true;
+    load.finish();
+  }
+
+  /**
+   * Saves the cached spending ranges of every user whose cached readings are all those in the
+   * database, unless none have changed since the last save.
+   */
+  synchronized void save() throws IOException {
+    if (!this.restored) {
+      log.debug("Not saving spending ranges, as the snapshot has not been restored yet.");
+      return;
+    }
+
+    // readings are copied before they are checked, so any saved since are caught by the check
+    var cachedReadings = this.spendingRangeCache.getCachedReadings();
+    var statistics = findReadingStatistics();
+
+    var entries = new ArrayList<IndexSnapshot.Entry>();
+    var versions = new HashMap<Integer, Long>();
+    cachedReadings.forEach((userId, cached) -> {
+      var current = statistics.get(userId);
+      var readings = cached.getReadings();
+      if (current == null || current.getEnergyReadingCount() != readings.getDates().length
+          || this.dataVersionService.getVersion(userId) != cached.getVersion()) {
+        return;
+      }
+      entries.add(new IndexSnapshot.Entry(userId, current.getLatestEnergyReadingId(),
+          readings.getDates().length, readings));
+      versions.put(userId, cached.getVersion());
+    });
+
+    if (versions.equals(this.savedVersions)) {
+      log.debug("Not saving spending ranges, as none have changed since they were last saved.");
+      return;
+    }
+    IndexSnapshot.write(this.path, entries);
+    this.savedVersions = versions;
+    log.info("Saved spending ranges of {} users to {}.", entries.size(), this.path);
+  }
+
+  @Override
+  public void close() {
+    this.executor.shutdownNow();
+    if (this.path != null) {
+      saveQuietly();
+    }
+  }
+
+  private void saveQuietly() {
+    try {
+      save();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not save spending ranges to {}. Reason: {}", this.path, e.getMessage());
+    }
+  }
+
+  private Map<Integer, ReadingStatistics> findReadingStatistics() {
+    return this.energyReadingRepository.findReadingStatistics().stream()
+        .collect(Collectors.toMap(ReadingStatistics::getUserId, Function.identity()));
+  }
+}
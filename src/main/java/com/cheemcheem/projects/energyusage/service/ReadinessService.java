@@ -0,0 +1,94 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import com.cheemcheem.projects.energyusage.dto.LoadProgressDTO;
+import com.cheemcheem.projects.energyusage.dto.ReadinessDTO;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps track of data being loaded in the background, so the application can accept connections
+ * straight away while reporting itself as not ready until every load has finished. A load that
+ * fails never finishes, so the application is never ready with only part of its data.
+ */
+@Slf4j
+@Service
+public class ReadinessService {
+
+  private final List<Load> loads = new CopyOnWriteArrayList<>();
+
+  public Load begin(String name) {
+    log.info("Loading {} in the background.", name);
+    var load = new Load(name);
+    this.loads.add(load);
+    return load;
+  }
+
+  public boolean isReady() {
+    return this.loads.stream().allMatch(Load::isFinished);
+  }
+
+  public ReadinessDTO getReadiness() {
+    return ReadinessDTO.builder()
+        .ready(isReady())
+        .loads(this.loads.stream().map(Load::toDTO).collect(Collectors.toList()))
+        .build();
+  }
+
+  /**
+   * Progress of one load, through stages that each count up to their own total.
+   */
+  public static class Load {
+
+    private final String name;
+    private final AtomicLong done = new AtomicLong();
+    private volatile String stage = "starting";
+    private volatile long total;
+    private volatile boolean finished;
+    private volatile String error;
+
+    private Load(String name) {
+      this.name = name;
+    }
+
+    public void stage(String stage, long total) {
+      log.info("Loading {}: {}.", this.name, stage);
+      this.stage = stage;
+      this.total = total;
+      this.done.set(0);
+    }
+
+    public void progress(long amount) {
+      this.done.addAndGet(amount);
+    }
+
+    public void finish() {
+      log.info("Loaded {}.", this.name);
+      this.stage = "finished";
+      this.finished = true;
+    }
+
+    public void fail(Exception cause) {
+      log.error("Failed to load {}.", this.name, cause);
+      this.error = cause.getMessage();
+    }
+
+    public boolean isFinished() {
+      return this.finished;
+    }
+
+    private LoadProgressDTO toDTO() {
+      return LoadProgressDTO.builder()
+          .name(this.name)
+          .stage(this.stage)
+          .done(this.done.get())
+          .total(this.total)
+          .finished(this.finished)
+          .error(this.error)
+          .build();
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import com.cheemcheem.projects.energyusage.dto.ResponseCacheStatisticsDTO;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the serialised responses of recent analytics requests, so the same request from another
+ * browser or device of a user is answered without working it out again.
+ *
+ * Entries are keyed by user id, the request and the {@link DataVersionService data version} it was
+ * answered from. The cache is bounded by the bytes of its entries and evicts the least recently
+ * used first. Entries also expire once they are older than the time to live.
+ *
+ * {@link #invalidate(int) Invalidating} a user only moves them on to a new generation, so it
+ * takes the same time however many responses they have cached. Entries of older generations are
+ * never returned again, and are dropped when they are next found or evicted.
+ */
+@Slf4j
+@Service
+public class ResponseCache {
+
+  /**
+   * Rough bytes held by an entry besides its body and request.
+   */
+  private static final long BYTES_PER_ENTRY = 160;
+
+  private final long maxBytes;
+
+  private final long timeToLiveNanos;
+
+  private final LongSupplier nanoTime;
+
+  /**
+   * In access order, so the eldest entry is the least recently used.
+   */
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final Map<Integer, Long> generations = new HashMap<>();
+
+  private long estimatedBytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long expirations = 0;
+  private long invalidations = 0;
+  private long savedNanos = 0;
+
+  @Autowired
+  public ResponseCache(
+      @Value("${energy-usage.response-cache.max-bytes:16777216}") long maxBytes,
+      @Value("${energy-usage.response-cache.ttl-seconds:600}") long timeToLiveSeconds) {
+    this(maxBytes, TimeUnit.SECONDS.toNanos(timeToLiveSeconds), System::nanoTime);
+  }
+
+  ResponseCache(long maxBytes, long timeToLiveNanos, LongSupplier nanoTime) {
+    this.maxBytes = maxBytes;
+    this.timeToLiveNanos = timeToLiveNanos;
+    this.nanoTime = nanoTime;
+  }
+
+  public boolean isEnabled() {
+    return this.maxBytes > 0 && this.timeToLiveNanos > 0;
+  }
+
+  /**
+   * @param request everything the response depends on other than the readings of the user.
+   * @param version data version read before the response is worked out.
+   */
+  public synchronized Key getKey(int userId, String request, long version) {
+    return new Key(userId, request, version, getGeneration(userId));
+  }
+
+  /**
+   * @return the cached response, or null if there is none that is still current.
+   */
+  public synchronized Response get(Key key) {
+    var entry = this.entries.get(key);
+    if (entry == null) {
+      this.misses++;
+      return null;
+    }
+    if (key.generation != getGeneration(key.userId)) {
+      remove(key, entry);
+      this.misses++;
+      return null;
+    }
+    if (this.nanoTime.getAsLong() - entry.createdNanos > this.timeToLiveNanos) {
+      remove(key, entry);
+      this.expirations++;
+      this.misses++;
+      return null;
+    }
+    this.hits++;
+    this.savedNanos += entry.costNanos;
+    return entry.response;
+  }
+
+  /**
+   * @param costNanos how long the response took to work out, which each hit on it saves.
+   */
+  public synchronized void put(Key key, Response response, long costNanos) {
+    if (key.generation != getGeneration(key.userId)) {
+      // the readings changed while it was worked out
+      return;
+    }
+    var entry = new Entry(response, this.nanoTime.getAsLong(), costNanos,
+        BYTES_PER_ENTRY + 2L * key.request.length() + response.body.length);
+    if (entry.bytes > this.maxBytes) {
+      log.debug("Not caching response of user {}, {} bytes is more than the cache holds.",
+          key.userId, entry.bytes);
+      return;
+    }
+
+    var existing = this.entries.put(key, entry);
+    if (existing != null) {
+      this.estimatedBytes -= existing.bytes;
+    }
+    this.estimatedBytes += entry.bytes;
+    evictUntilWithinBounds();
+  }
+
+  /**
+   * Stops every response cached for the user being returned again.
+   */
+  public synchronized void invalidate(int userId) {
+    this.generations.merge(userId, 1L, Long::sum);
+    this.invalidations++;
+  }
+
+  public synchronized ResponseCacheStatisticsDTO getStatistics() {
+    var requests = this.hits + this.misses;
+    return ResponseCacheStatisticsDTO.builder()
+        .hits(this.hits)
+        .misses(this.misses)
+        .hitRatio(requests == 0 ? 0 : (double) this.hits / requests)
+        .evictions(this.evictions)
+        .expirations(this.expirations)
+        .invalidations(this.invalidations)
+        .savedMillis(TimeUnit.NANOSECONDS.toMillis(this.savedNanos))
+        .entries(this.entries.size())
+        .estimatedBytes(this.estimatedBytes)
+        .maxBytes(this.maxBytes)
+        .build();
+  }
+
+  private long getGeneration(int userId) {
+    return this.generations.getOrDefault(userId, 0L);
+  }
+
+  private void remove(Key key, Entry entry) {
+    this.entries.remove(key);
+    this.estimatedBytes -= entry.bytes;
+  }
+
+  private void evictUntilWithinBounds() {
+    var iterator = this.entries.entrySet().iterator();
+    while (this.estimatedBytes > this.maxBytes && iterator.hasNext()) {
+      var eldest = iterator.next();
+      log.debug("Evicting response of user {}.", eldest.getKey().userId);
+      iterator.remove();
+      this.estimatedBytes -= eldest.getValue().bytes;
+      this.evictions++;
+    }
+  }
+
+  @EqualsAndHashCode
+  public static class Key {
+
+    private final int userId;
+    private final String request;
+    private final long version;
+    private final long generation;
+
+    private Key(int userId, String request, long version, long generation) {
+      this.userId = userId;
+      this.request = request;
+      this.version = version;
+      this.generation = generation;
+    }
+  }
+
+  /**
+   * A serialised response body and its content type.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  public static class Response {
+
+    private final String contentType;
+    private final byte[] body;
+  }
+
+  private static class Entry {
+
+    private final Response response;
+    private final long createdNanos;
+    private final long costNanos;
+    private final long bytes;
+
+    private Entry(Response response, long createdNanos, long costNanos, long bytes) {
+      this.response = response;
+      this.createdNanos = createdNanos;
+      this.costNanos = costNanos;
+      this.bytes = bytes;
+    }
+  }
+}
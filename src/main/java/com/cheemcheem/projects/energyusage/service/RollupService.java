@@ -0,0 +1,346 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import com.cheemcheem.projects.energyusage.exception.InternalStateException;
+import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.model.RollupPeriod;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.model.UsageRollup;
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository;
+import com.cheemcheem.projects.energyusage.repository.UsageRollupRepository;
+import com.cheemcheem.projects.energyusage.util.ArithmeticMode;
+import com.cheemcheem.projects.energyusage.util.Calculator;
+import com.cheemcheem.projects.energyusage.util.SpendingRollups;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the {@link UsageRollup}s of each user up to date with their readings, and hands them to
+ * {@link Calculator}s as {@link SpendingRollups}.
+ *
+ * Rollups are totalled with {@link ArithmeticMode#BIG_DECIMAL} from the cached spending ranges,
+ * and only for periods between the first and last reading. Updates for a user run one at a time,
+ * each against the ranges as they are when it starts, so the last one to finish always saw every
+ * reading before it.
+ *
+ * While readings of a user are {@link #hold(User) held} for a change, their rollups are not
+ * handed out at all, so nothing worked out for the new data version uses a rollup from before it.
+ * Rollups already handed out are checked again each time one is read, and are not used once a
+ * change has started since they were handed out.
+ *
+ * Usage is stored exactly as worked out, without rounding, so spending served from a rollup is
+ * the same as spending worked out from the ranges, and is shown the same once rounded.
+ *
+ * Saved readings update rollups {@link #updateLater(User, LocalDateTime, LocalDateTime) later}, on
+ * a thread of the service, so saving does not wait on it. Updates of a user waiting at once are run
+ * as one, and their readings stay held until it has run. Imports {@link #rebuildLater(User)
+ * rebuild} on the same thread.
+ */
+@Slf4j
+@Service
+public class RollupService implements AutoCloseable {
+
+  private final UsageRollupRepository usageRollupRepository;
+  private final EnergyReadingRepository energyReadingRepository;
+  private final CalculatorService calculatorService;
+  private final TransactionTemplate transactionTemplate;
+
+  private final Map<Integer, Object> locks = new ConcurrentHashMap<>();
+
+  /**
+   * Number of changes under way to the readings of each user.
+   */
+  private final Map<Integer, AtomicInteger> holds = new ConcurrentHashMap<>();
+
+  /**
+   * Number of changes ever started to the readings of each user.
+   */
+  private final Map<Integer, AtomicLong> changes = new ConcurrentHashMap<>();
+
+  /**
+   * Update waiting to run for each user.
+   */
+  private final Map<Integer, PendingUpdate> pendingUpdates = new ConcurrentHashMap<>();
+
+  private final ExecutorService updater;
+
+  /**
+   * Users whose rollups could not be updated, which are not handed out until they are rebuilt.
+   */
+  private final Set<Integer> stale = ConcurrentHashMap.newKeySet();
+
+  public RollupService(UsageRollupRepository usageRollupRepository,
+      EnergyReadingRepository energyReadingRepository, CalculatorService calculatorService,
+      PlatformTransactionManager transactionManager) {
+    this.usageRollupRepository = usageRollupRepository;
+    this.energyReadingRepository = energyReadingRepository;
+    this.calculatorService = calculatorService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.updater = Executors.newSingleThreadExecutor(runnable -> {
+      var thread = new Thread(runnable, "rollup-update");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @return rollups of the user, each period loaded the first time one of its rollups is asked for,
+   * and none once a change to their readings has started.
+   */
+  public SpendingRollups getRollups(User user) {
+    var userId = user.getUserId();
+    var changesSeen = getChanges(userId).get();
+    if (!isUnchangedSince(userId, changesSeen)) {
+      log.debug("Readings of user {} are changing, not using rollups.", userId);
+      return SpendingRollups.NONE;
+    }
+    var loaded = new ConcurrentHashMap<RollupPeriod, Map<LocalDateTime, BigDecimal>>();
+    return (period, periodStart) -> {
+      var usage = loaded
+          .computeIfAbsent(period, p -> usageRollupRepository.findAllByUserAndPeriod(user, p)
+              .stream()
+              .collect(Collectors.toMap(UsageRollup::getPeriodStart, UsageRollup::getUsage)))
+          .get(periodStart);
+      // checked after reading, so rollups loaded while a change was being made are not used
+      return isUnchangedSince(userId, changesSeen) ? usage : null;
+    };
+  }
+
+  private boolean isUnchangedSince(int userId, long changesSeen) {
+    var holdCount = holds.get(userId);
+    return (holdCount == null || holdCount.get() == 0)
+        && getChanges(userId).get() == changesSeen
+        && !stale.contains(userId);
+  }
+
+  private AtomicLong getChanges(int userId) {
+    return changes.computeIfAbsent(userId, id -> new AtomicLong());
+  }
+
+  /**
+   * Call before changing the readings of the user, and {@link #release(User)} once their rollups
+   * have been updated, even if the change failed.
+   */
+  public void hold(User user) {
+    getChanges(user.getUserId()).incrementAndGet();
+    holds.computeIfAbsent(user.getUserId(), userId -> new AtomicInteger()).incrementAndGet();
+  }
+
+  public void release(User user) {
+    holds.get(user.getUserId()).decrementAndGet();
+  }
+
+  /**
+   * Totals again every period the reading at the given date changed the spending of, which are
+   * those between the readings either side of it.
+   */
+  public void update(User user, LocalDateTime date) {
+    update(user, date, date);
+  }
+
+  /**
+   * Totals again every period that readings between the dates, inclusive, changed the spending of,
+   * which are those between the readings either side of the dates.
+   */
+  public void update(User user, LocalDateTime startDate, LocalDateTime endDate) {
+    log.debug("Updating rollups of user {} around '{}' to '{}'.", user.getUserId(), startDate,
+        endDate);
+    synchronized (getLock(user)) {
+      var from = energyReadingRepository
+          .findFirstByUserAndDateBeforeOrderByDateDesc(user, startDate)
+          .map(EnergyReading::getDate)
+          .orElse(startDate);
+      var to = energyReadingRepository.findFirstByUserAndDateAfterOrderByDateAsc(user, endDate)
+          .map(EnergyReading::getDate)
+          .orElse(endDate);
+
+      var calculator = getCalculator(user);
+      transactionTemplate.executeWithoutResult(status -> {
+        for (var period : RollupPeriod.values()) {
+          var existing = usageRollupRepository.findAllByUserAndPeriodAndPeriodStartBetween(user,
+              period, period.getStart(from), period.getStart(to));
+          List<SpendingRange> periodSpending;
+          try {
+            periodSpending = calculator.calculatePeriodSpending(period, from, to);
+          } catch (InvalidDateException e) {
+            log.error("Should never have InvalidDateReception thrown here.", e);
+            throw new InternalStateException(
+                "Should never have InvalidDateReception thrown here.", e);
+          }
+          replace(user, period, periodSpending, existing);
+        }
+      });
+    }
+  }
+
+  /**
+   * Same as {@link #update(User, LocalDateTime, LocalDateTime)}, on the thread of the service,
+   * holding the readings of the user until it has run. If it fails, every period of the user is
+   * totalled again instead.
+   */
+  public void updateLater(User user, LocalDateTime startDate, LocalDateTime endDate) {
+    hold(user);
+    var merged = pendingUpdates.merge(user.getUserId(),
+        new PendingUpdate(user, startDate, endDate, 1), PendingUpdate::merge);
+    if (merged.holds == 1) {
+      updater.execute(() -> runPendingUpdate(user.getUserId()));
+    }
+  }
+
+  /**
+   * Same as {@link #rebuild(User)}, on the thread of the service, holding the readings of the user
+   * until it has run. If it fails, rollups of the user are not used until they are rebuilt.
+   */
+  public void rebuildLater(User user) {
+    hold(user);
+    try {
+      updater.execute(() -> {
+        try {
+          rebuild(user);
+        } catch (RuntimeException e) {
+          log.error("Failed to rebuild rollups of user {}, not using them until they are.",
+              user.getUserId(), e);
+          stale.add(user.getUserId());
+        } finally {
+          release(user);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      log.warn("Stopped before rebuilding rollups of user {}, not using them until they are.",
+          user.getUserId());
+      stale.add(user.getUserId());
+      release(user);
+    }
+  }
+
+  private void runPendingUpdate(int userId) {
+    var pending = pendingUpdates.remove(userId);
+    try {
+      update(pending.user, pending.startDate, pending.endDate);
+    } catch (RuntimeException e) {
+      log.error("Failed to update rollups of user {}, rebuilding them.", userId, e);
+      try {
+        rebuild(pending.user);
+      } catch (RuntimeException rebuildException) {
+        log.error("Failed to rebuild rollups of user {}, not using them until they are.", userId,
+            rebuildException);
+        stale.add(userId);
+      }
+    } finally {
+      for (int i = 0; i < pending.holds; i++) {
+        release(pending.user);
+      }
+    }
+  }
+
+  /**
+   * Stops taking updates, and waits for the ones waiting to run.
+   */
+  @Override
+  public void close() {
+    updater.shutdown();
+    try {
+      if (!updater.awaitTermination(30, TimeUnit.SECONDS)) {
+        log.warn("Stopped with rollup updates of users {} still waiting.", pendingUpdates.keySet());
+      }
+    } catch (InterruptedException e) {
+      log.warn("Interrupted with rollup updates of users {} still waiting.",
+          pendingUpdates.keySet());
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Totals every period of the user again from their readings, removing any rollups outside them.
+   */
+  public void rebuild(User user) {
+    log.info("Rebuilding rollups of user {}.", user.getUserId());
+    synchronized (getLock(user)) {
+      var calculator = getCalculator(user);
+      transactionTemplate.executeWithoutResult(status -> {
+        for (var period : RollupPeriod.values()) {
+          replace(user, period, calculator.calculatePeriodSpending(period),
+              usageRollupRepository.findAllByUserAndPeriod(user, period));
+        }
+      });
+      stale.remove(user.getUserId());
+    }
+  }
+
+  private Calculator getCalculator(User user) {
+    return calculatorService.getCalculator(user, ArithmeticMode.BIG_DECIMAL, SpendingRollups.NONE);
+  }
+
+  /**
+   * Saves the spending of each period over the existing rollup for it, and deletes any existing
+   * rollups left without one. Rollups are updated in place rather than deleted and inserted again,
+   * as that would break the unique constraint before the deletes were flushed.
+   */
+  private void replace(User user, RollupPeriod period, List<SpendingRange> periodSpending,
+      Collection<UsageRollup> existing) {
+    var existingByStart = existing.stream()
+        .collect(Collectors.toMap(UsageRollup::getPeriodStart, Function.identity(),
+            (first, second) -> first, HashMap::new));
+
+    var rollups = new ArrayList<UsageRollup>(periodSpending.size());
+    for (var spending : periodSpending) {
+      var usage = spending.getUsage();
+      var rollup = existingByStart.remove(spending.getStartDate());
+      if (rollup == null) {
+        rollup = new UsageRollup(user, period, spending.getStartDate(), usage);
+      } else {
+        rollup.setUsage(usage);
+      }
+      rollups.add(rollup);
+    }
+    log.debug("Saving {} {} rollups of user {}, deleting {}.", rollups.size(), period,
+        user.getUserId(), existingByStart.size());
+    usageRollupRepository.deleteAll(existingByStart.values());
+    usageRollupRepository.saveAll(rollups);
+  }
+
+  private Object getLock(User user) {
+    return locks.computeIfAbsent(user.getUserId(), userId -> new Object());
+  }
+
+  @RequiredArgsConstructor
+  private static class PendingUpdate {
+
+    private final User user;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+
+    /**
+     * Holds on the readings of the user taken by the updates merged into this one.
+     */
+    private final int holds;
+
+    private PendingUpdate merge(PendingUpdate other) {
+      return new PendingUpdate(this.user,
+          other.startDate.isBefore(this.startDate) ? other.startDate : this.startDate,
+          other.endDate.isAfter(this.endDate) ? other.endDate : this.endDate,
+          this.holds + other.holds);
+    }
+  }
+}
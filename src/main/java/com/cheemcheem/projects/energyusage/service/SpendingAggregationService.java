@@ -0,0 +1,124 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.repository.SpendingAggregationRepository;
+import com.cheemcheem.projects.energyusage.util.Buckets;
+import com.cheemcheem.projects.energyusage.util.Calculator;
+import com.cheemcheem.projects.energyusage.util.CalculatorBackend;
+import com.cheemcheem.projects.energyusage.util.Granularity;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Works out spending for the {@link CalculatorBackend#SQL} backend, with the same dates and
+ * results as the {@link Calculator} methods of the same names, including for users without
+ * readings and dates outside them.
+ *
+ * @see SpendingAggregationRepository
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SpendingAggregationService {
+
+  private final SpendingAggregationRepository spendingAggregationRepository;
+
+  public SpendingRange calculateAllSpending(User user) {
+    log.info("Get all spending in the database.");
+    return spendingAggregationRepository.findAllSpending(user)
+        .orElseGet(() -> new SpendingRange(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC),
+            LocalDateTime.now(), BigDecimal.ZERO));
+  }
+
+  public SpendingRange calculateSpendingAfterDate(User user, LocalDateTime startDate) {
+    log.info("Get spending from '{}' in the database.", startDate);
+    var all = spendingAggregationRepository.findAllSpending(user);
+    if (all.isEmpty()) {
+      return new SpendingRange(startDate, LocalDateTime.now(), BigDecimal.ZERO);
+    }
+    var latest = all.get().getEndDate();
+    if (startDate.isAfter(latest)) {
+      log.warn("No spending from start date '" + startDate
+          + "' as that is after latest repository date '" + latest + "'. ");
+      return new SpendingRange(startDate, latest, BigDecimal.ZERO);
+    }
+    return new SpendingRange(startDate, latest,
+        spendingAggregationRepository.sumBetween(user, startDate, latest));
+  }
+
+  public SpendingRange calculateSpendingUntilDate(User user, LocalDateTime endDate) {
+    log.info("Get spending to '{}' in the database.", endDate);
+    var all = spendingAggregationRepository.findAllSpending(user);
+    if (all.isEmpty()) {
+      return new SpendingRange(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), endDate,
+          BigDecimal.ZERO);
+    }
+    var earliest = all.get().getStartDate();
+    if (earliest.isAfter(endDate)) {
+      log.warn("No spending before end date '" + endDate
+          + "' as that is before earliest repository date '" + earliest + "'. ");
+      return new SpendingRange(earliest, endDate, BigDecimal.ZERO);
+    }
+    return new SpendingRange(earliest, endDate,
+        spendingAggregationRepository.sumBetween(user, earliest, endDate));
+  }
+
+  public SpendingRange calculateSpendingBetweenDates(User user, LocalDateTime startDate,
+      LocalDateTime endDate) throws InvalidDateException {
+    log.info("Get spending from '{}' to '{}' in the database.", startDate, endDate);
+    if (startDate.isAfter(endDate)) {
+      log.warn("Start date '" + startDate + "' occurs after end date '" + endDate + "'.");
+      throw InvalidDateException.wrongWayAround(startDate, endDate);
+    }
+    return new SpendingRange(startDate, endDate,
+        spendingAggregationRepository.sumBetween(user, startDate, endDate));
+  }
+
+  public List<SpendingRange> calculateTotalSpending(User user, Granularity granularity,
+      int billingDay) {
+    var all = spendingAggregationRepository.findAllSpending(user);
+    if (all.isEmpty()) {
+      log.warn("No spending ranges for user {}.", user.getUserId());
+      return List.of();
+    }
+    return calculateTotalSpending(user, Buckets.calendar(granularity, billingDay,
+        all.get().getStartDate(), all.get().getEndDate()), granularity, billingDay,
+        all.get().getStartDate(), all.get().getEndDate());
+  }
+
+  public List<SpendingRange> calculateTotalSpending(User user, LocalDateTime startDate,
+      LocalDateTime endDate, Granularity granularity, int billingDay)
+      throws InvalidDateException {
+    log.info("Get total {} spending from '{}' to '{}' in the database.", granularity, startDate,
+        endDate);
+    if (startDate.isAfter(endDate)) {
+      log.warn("Start date '" + startDate + "' occurs after end date '" + endDate + "'.");
+      throw InvalidDateException.wrongWayAround(startDate, endDate);
+    }
+    return calculateTotalSpending(user,
+        Buckets.calendar(granularity, billingDay, startDate, endDate), granularity, billingDay,
+        startDate, endDate);
+  }
+
+  private List<SpendingRange> calculateTotalSpending(User user, Buckets buckets,
+      Granularity granularity, int billingDay, LocalDateTime startDate, LocalDateTime endDate) {
+    if (buckets.size() == 0) {
+      return List.of();
+    }
+    var totals = spendingAggregationRepository.sumCalendarBuckets(user, granularity, billingDay,
+        startDate, endDate, buckets.size());
+    var series = new ArrayList<SpendingRange>(buckets.size());
+    for (int i = 0; i < buckets.size(); i++) {
+      series.add(new SpendingRange(buckets.getStartDate(i), buckets.getEndDate(i), totals.get(i)));
+    }
+    return series;
+  }
+}
@@ -0,0 +1,246 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import com.cheemcheem.projects.energyusage.dto.CacheStatisticsDTO;
+import com.cheemcheem.projects.energyusage.repository.SpendingRangeRepository;
+import com.cheemcheem.projects.energyusage.util.index.EnergyReadingColumns;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the indexed spending ranges of recent users, so requests only rebuild them after their
+ * readings change.
+ *
+ * Entries are keyed by user id and checked against the {@link DataVersionService data version}
+ * they were built from. The cache is bounded by the {@link SpendingRangeRepository#getIndex()
+ * estimated size} of its entries, and evicts the least recently used first.
+ *
+ * Entries built from {@link EnergyReadingColumns} take new readings as they are saved, so they
+ * stay cached instead of being built again.
+ */
+@Slf4j
+@Service
+public class SpendingRangeCache {
+
+  private final long maxBytes;
+
+  /**
+   * In access order, so the eldest entry is the least recently used.
+   */
+  private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long estimatedBytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long updates = 0;
+
+  public SpendingRangeCache(@Value("${energy-usage.cache.max-bytes:67108864}") long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @param version data version the loader will build from, read before it loads any readings.
+   * @param loader  builds the spending ranges if there are none cached for the version.
+   */
+  public SpendingRangeRepository get(int userId, long version, Supplier<Loaded> loader) {
+    synchronized (this) {
+      var entry = this.entries.get(userId);
+      if (entry != null && entry.version >= version) {
+        this.hits++;
+        return entry.spendingRangeRepository;
+      }
+      this.misses++;
+    }
+
+    // build outside the lock so one user's rebuild does not hold up everyone else
+    var loaded = loader.get();
+    put(userId, new Entry(version, loaded.spendingRangeRepository,
+        loaded.energyReadingColumns));
+    return loaded.spendingRangeRepository;
+  }
+
+  /**
+   * Caches spending ranges that were built without a request for them, such as those restored when
+   * the application starts. Ranges already cached for a later version are kept.
+   */
+  public void put(int userId, long version, Loaded loaded) {
+    put(userId, new Entry(version, loaded.spendingRangeRepository,
+        loaded.energyReadingColumns));
+  }
+
+  /**
+   * @return spending ranges cached for the version or a later one, or null if there are none. Only
+   * a hit is counted, as nothing is built on a miss.
+   */
+  public synchronized SpendingRangeRepository getIfPresent(int userId, long version) {
+    var entry = this.entries.get(userId);
+    if (entry == null || entry.version < version) {
+      return null;
+    }
+    this.hits++;
+    return entry.spendingRangeRepository;
+  }
+
+  /**
+   * Adds a newly saved reading to the cached ranges of a user, or drops them if they cannot take
+   * it.
+   *
+   * @param version data version that includes the reading.
+   */
+  public synchronized void addReading(int userId, long version, LocalDateTime date,
+      BigDecimal reading) {
+    var entry = this.entries.get(userId);
+    if (entry == null) {
+      return;
+    }
+
+    // only take the reading if the entry has every earlier one, so none are missed
+    var energyReadingColumns = entry.energyReadingColumns;
+    if (energyReadingColumns == null || entry.version != version - 1
+        || !energyReadingColumns.add(date, reading)) {
+      log.debug("Dropping spending ranges of user {} to build them again.", userId);
+      invalidate(userId);
+      return;
+    }
+
+    this.updates++;
+    var updated = new Entry(version,
+        new SpendingRangeRepository(energyReadingColumns.getIndex()), energyReadingColumns);
+    this.entries.put(userId, updated);
+    this.estimatedBytes += updated.bytes - entry.bytes;
+    evictUntilWithinBounds(userId);
+  }
+
+  public synchronized void invalidate(int userId) {
+    var removed = this.entries.remove(userId);
+    if (removed != null) {
+      this.estimatedBytes -= removed.bytes;
+    }
+  }
+
+  /**
+   * @return copies of the readings of every entry that can take new readings, by user id, taken
+   * together so none change while they are copied.
+   */
+  public synchronized Map<Integer, CachedReadings> getCachedReadings() {
+    var cachedReadings = new HashMap<Integer, CachedReadings>();
+    this.entries.forEach((userId, entry) -> {
+      if (entry.energyReadingColumns != null) {
+        cachedReadings.put(userId,
+            new CachedReadings(entry.version, entry.energyReadingColumns.getReadings()));
+      }
+    });
+    return cachedReadings;
+  }
+
+  public synchronized CacheStatisticsDTO getStatistics() {
+    return CacheStatisticsDTO.builder()
+        .hits(this.hits)
+        .misses(this.misses)
+        .evictions(this.evictions)
+        .updates(this.updates)
+        .entries(this.entries.size())
+        .estimatedBytes(this.estimatedBytes)
+        .maxBytes(this.maxBytes)
+        .build();
+  }
+
+  private synchronized void put(int userId, Entry entry) {
+    var existing = this.entries.get(userId);
+    if (existing != null && existing.version > entry.version) {
+      // a newer version was built while this one was
+      return;
+    }
+    if (entry.bytes > this.maxBytes) {
+      log.debug("Not caching spending ranges of user {}, {} bytes is more than the cache holds.",
+          userId, entry.bytes);
+      return;
+    }
+
+    if (existing != null) {
+      this.entries.remove(userId);
+      this.estimatedBytes -= existing.bytes;
+    }
+    this.entries.put(userId, entry);
+    this.estimatedBytes += entry.bytes;
+    evictUntilWithinBounds(userId);
+  }
+
+  /**
+   * Evicts least recently used entries, other than the given user's, until the cache fits.
+   */
+  private void evictUntilWithinBounds(int userId) {
+    var iterator = this.entries.entrySet().iterator();
+    while (this.estimatedBytes > this.maxBytes && iterator.hasNext()) {
+      var eldest = iterator.next();
+      if (eldest.getKey() == userId) {
+        continue;
+      }
+      log.debug("Evicting spending ranges of user {}.", eldest.getKey());
+      iterator.remove();
+      this.estimatedBytes -= eldest.getValue().bytes;
+      this.evictions++;
+    }
+  }
+
+  /**
+   * Spending ranges built for the cache.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  public static class Loaded {
+
+    private final SpendingRangeRepository spendingRangeRepository;
+
+    /**
+     * Readings the ranges were built from, if they can take new readings, otherwise null.
+     */
+    private final EnergyReadingColumns energyReadingColumns;
+
+    public Loaded(SpendingRangeRepository spendingRangeRepository) {
+      this(spendingRangeRepository, null);
+    }
+
+    public Loaded(EnergyReadingColumns energyReadingColumns) {
+      this(new SpendingRangeRepository(energyReadingColumns.getIndex()), energyReadingColumns);
+    }
+  }
+
+  /**
+   * Readings of an entry, as of the data version it was cached for.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  public static class CachedReadings {
+
+    private final long version;
+    private final EnergyReadingColumns.Readings readings;
+  }
+
+  private static class Entry {
+
+    private final long version;
+    private final SpendingRangeRepository spendingRangeRepository;
+    private final EnergyReadingColumns energyReadingColumns;
+    private final long bytes;
+
+    private Entry(long version, SpendingRangeRepository spendingRangeRepository,
+        EnergyReadingColumns energyReadingColumns) {
+      this.version = version;
+      this.spendingRangeRepository = spendingRangeRepository;
+      this.energyReadingColumns = energyReadingColumns;
+      this.bytes = energyReadingColumns == null
+          ? spendingRangeRepository.getIndex().estimatedBytes()
+          : energyReadingColumns.estimatedBytes();
+    }
+  }
+}
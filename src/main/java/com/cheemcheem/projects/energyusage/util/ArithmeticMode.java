@@ -0,0 +1,21 @@
+package com.cheemcheem.projects.energyusage.util;
+
+/**
+ * How {@link Calculator} works out the spending of each bucket.
+ */
+public enum ArithmeticMode {
+
+  /**
+   * {@link java.math.BigDecimal} throughout, with portions of ranges taken as doubles. Results
+   * keep whatever scale the sums give them.
+   */
+  BIG_DECIMAL,
+
+  /**
+   * Scaled longs, see {@link FixedPoint}, with every result rounded {@link
+   * java.math.RoundingMode#HALF_UP half up} to {@link FixedPoint#OUTPUT_SCALE} once. Only used for
+   * ranges held in columns, and any bucket that overflows a long is worked out as {@link
+   * #BIG_DECIMAL} instead.
+   */
+  FIXED_POINT
+}
@@ -0,0 +1,112 @@
+package com.cheemcheem.projects.energyusage.util;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Start and end dates of the buckets of a series.
+ *
+ * Dates are worked out from the position of a bucket when they are asked for, so a series of any
+ * length takes the same memory, and any bucket can be found without going through the ones before
+ * it.
+ */
+public class Buckets {
+
+  /**
+   * Start of each bucket, before it is cut down to the dates of the series.
+   */
+  private final LongFunction<LocalDateTime> boundary;
+
+  private final boolean endsBeforeNext;
+
+  private final LocalDateTime startDate;
+
+  private final LocalDateTime endDate;
+
+  private final int size;
+
+  private Buckets(LongFunction<LocalDateTime> boundary, boolean endsBeforeNext,
+      LocalDateTime startDate, LocalDateTime endDate, int size) {
+    this.boundary = boundary;
+    this.endsBeforeNext = endsBeforeNext;
+    this.startDate = startDate;
+    this.endDate = endDate;
+    this.size = size;
+  }
+
+  /**
+   * @return buckets of the given number of days from the start date, for as many as end by the end
+   * date.
+   */
+  public static Buckets everyDays(LocalDateTime startDate, LocalDateTime endDate, int dayGap) {
+    var size = Math.max(0, ChronoUnit.DAYS.between(startDate, endDate) / dayGap);
+    return new Buckets(bucket -> startDate.plusDays(bucket * dayGap), false, null, null,
+        Math.toIntExact(size));
+  }
+
+  /**
+   * @return every bucket of the granularity between the dates, with the first and last cut down to
+   * start and end with them.
+   * @throws IllegalArgumentException if the billing day is not a day of the month.
+   */
+  public static Buckets calendar(Granularity granularity, int billingDay, LocalDateTime startDate,
+      LocalDateTime endDate) {
+    if (billingDay < 1 || billingDay > 31) {
+      throw new IllegalArgumentException("Billing day " + billingDay + " is not a day of a month.");
+    }
+    var first = granularity.getStart(startDate, billingDay);
+    LongFunction<LocalDateTime> boundary = bucket -> granularity.plus(first, bucket, billingDay);
+    var size = startDate.isBefore(endDate)
+        ? count(boundary, granularity.estimateBetween(first, endDate),
+            start -> start.isBefore(endDate))
+        : 0;
+    return new Buckets(boundary, granularity.endsBeforeNext(), startDate, endDate,
+        size);
+  }
+
+  /**
+   * @return whole buckets of the granularity for every date between the two.
+   */
+  public static Buckets whole(Granularity granularity, int billingDay, LocalDateTime startDate,
+      LocalDateTime endDate) {
+    var first = granularity.getStart(startDate, billingDay);
+    LongFunction<LocalDateTime> boundary = bucket -> granularity.plus(first, bucket, billingDay);
+    var size = count(boundary, granularity.estimateBetween(first, endDate),
+        start -> !start.isAfter(endDate));
+    return new Buckets(boundary, granularity.endsBeforeNext(), null, null, size);
+  }
+
+  /**
+   * @return how many boundaries from the first are inside, searching out from the estimate.
+   */
+  private static int count(LongFunction<LocalDateTime> boundary, long estimate,
+      Predicate<LocalDateTime> inside) {
+    var count = Math.max(0, estimate);
+    while (count > 0 && !inside.test(boundary.apply(count - 1))) {
+      count--;
+    }
+    while (inside.test(boundary.apply(count))) {
+      count++;
+    }
+    return Math.toIntExact(count);
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public LocalDateTime getStartDate(int bucket) {
+    var start = this.boundary.apply(bucket);
+    return this.startDate != null && start.isBefore(this.startDate) ? this.startDate : start;
+  }
+
+  public LocalDateTime getEndDate(int bucket) {
+    var end = this.boundary.apply(bucket + 1L);
+    if (this.endsBeforeNext) {
+      end = end.minusNanos(1);
+    }
+    return this.endDate != null && end.isAfter(this.endDate) ? this.endDate : end;
+  }
+}
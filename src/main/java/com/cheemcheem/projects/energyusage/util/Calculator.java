@@ -3,16 +3,24 @@ package com.cheemcheem.projects.energyusage.util;
 import com.cheemcheem.projects.energyusage.exception.EmptyRepositoryException;
 import com.cheemcheem.projects.energyusage.exception.InternalStateException;
 import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.model.RollupPeriod;
 import com.cheemcheem.projects.energyusage.model.SpendingRange;
 import com.cheemcheem.projects.energyusage.repository.SpendingRangeRepository;
+import com.cheemcheem.projects.energyusage.util.index.SpendingRangeColumnIndex;
+import com.cheemcheem.projects.energyusage.util.index.SpendingRangeColumns;
+import com.cheemcheem.projects.energyusage.util.index.SpendingRangeIndex;
+import com.cheemcheem.projects.energyusage.util.index.SpendingRangeSearch;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,17 +28,54 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * Performs calculations to determine spending between given dates.
  *
- * Uses {@link SpendingRangeRepository} for its spending ranges between dates.
+ * Uses the {@link SpendingRangeIndex} of a {@link SpendingRangeRepository} for its spending
+ * ranges between dates, and the {@link ArithmeticMode} it is given to work out the spending of
+ * each bucket. Buckets that are exactly a {@link RollupPeriod} are taken from the {@link
+ * SpendingRollups} it is given, when they have been totalled and are not worked out in fixed
+ * point. Long series can be split over the threads of a {@link ParallelSeries}.
  *
  * @see SpendingRangeRepository
+ * @see SpendingRangeIndex
+ * @see ArithmeticMode
+ * @see SpendingRollups
+ * @see ParallelSeries
  */
 @Slf4j
 @RequiredArgsConstructor
 public class Calculator {
 
+  /**
+   * Buckets worked out at a time when a series is streamed, which is still enough to split over
+   * the threads of a {@link ParallelSeries}.
+   */
+  private static final int STREAMED_BLOCK_SIZE = 8192;
+
   @NonNull
   private final SpendingRangeRepository spendingRangeRepository;
 
+  @NonNull
+  private final ArithmeticMode arithmeticMode;
+
+  @NonNull
+  private final SpendingRollups spendingRollups;
+
+  @NonNull
+  private final ParallelSeries parallelSeries;
+
+  public Calculator(SpendingRangeRepository spendingRangeRepository) {
+    this(spendingRangeRepository, ArithmeticMode.BIG_DECIMAL);
+  }
+
+  public Calculator(SpendingRangeRepository spendingRangeRepository,
+      ArithmeticMode arithmeticMode) {
+    this(spendingRangeRepository, arithmeticMode, SpendingRollups.NONE);
+  }
+
+  public Calculator(SpendingRangeRepository spendingRangeRepository,
+      ArithmeticMode arithmeticMode, SpendingRollups spendingRollups) {
+    this(spendingRangeRepository, arithmeticMode, spendingRollups, ParallelSeries.SERIAL);
+  }
+
   private static BigDecimal lastSpending(LocalDateTime requestStart, LocalDateTime requestEnd,
       SpendingRange last) {
 
@@ -59,50 +104,54 @@ public class Calculator {
   private static double getPortionOfLast(LocalDateTime requestStart, LocalDateTime requestEnd,
       SpendingRange last) {
     // Will not end up as 0 as long as last.end is after last.start
-    long portionLast = 0;
-
     var totalLast = last.getStartDate().until(last.getEndDate(), ChronoUnit.MILLIS);
+    var portionLast = getMillisOfLast(requestStart, requestEnd, last.getStartDate(),
+        last.getEndDate());
+
+    return ((double) portionLast) / ((double) totalLast);
+  }
 
-    if (!requestStart.isAfter(last.getStartDate()) && !requestEnd.isAfter(last.getEndDate())) {
+  private static long getMillisOfLast(LocalDateTime requestStart, LocalDateTime requestEnd,
+      LocalDateTime lastStart, LocalDateTime lastEnd) {
+    if (!requestStart.isAfter(lastStart) && !requestEnd.isAfter(lastEnd)) {
       // request starts before last range and ends within last range
-      portionLast = last.getStartDate().until(requestEnd, ChronoUnit.MILLIS);
-    } else if (!requestStart.isAfter(last.getStartDate())
-        && !last.getEndDate().isAfter(requestEnd)) {
+      return lastStart.until(requestEnd, ChronoUnit.MILLIS);
+    } else if (!requestStart.isAfter(lastStart) && !lastEnd.isAfter(requestEnd)) {
       // last range is fully within request
-      portionLast = totalLast;
+      return lastStart.until(lastEnd, ChronoUnit.MILLIS);
     }
-
-    return ((double) portionLast) / ((double) totalLast);
+    return 0;
   }
 
   private static double getPortionOfFirst(SpendingRange first, LocalDateTime requestStart,
       LocalDateTime requestEnd) {
     // Will not end up as 0 as long as first.end is after first.start
-    long portionFirst = 0;
-
     var totalFirst = first.getStartDate().until(first.getEndDate(), ChronoUnit.MILLIS);
+    var portionFirst = getMillisOfFirst(first.getStartDate(), first.getEndDate(), requestStart,
+        requestEnd);
 
-    if (!first.getStartDate().isAfter(requestStart) && !requestEnd.isAfter(first.getEndDate())) {
+    return ((double) portionFirst) / ((double) totalFirst);
+  }
+
+  private static long getMillisOfFirst(LocalDateTime firstStart, LocalDateTime firstEnd,
+      LocalDateTime requestStart, LocalDateTime requestEnd) {
+    if (!firstStart.isAfter(requestStart) && !requestEnd.isAfter(firstEnd)) {
       // Request is fully inside first range
-      portionFirst = requestStart.until(requestEnd, ChronoUnit.MILLIS);
+      return requestStart.until(requestEnd, ChronoUnit.MILLIS);
 
-    } else if (!first.getStartDate().isAfter(requestStart)
-        && !first.getEndDate().isAfter(requestEnd)) {
+    } else if (!firstStart.isAfter(requestStart) && !firstEnd.isAfter(requestEnd)) {
       // Request starts after first range starts and ends after first range ends
-      portionFirst = requestStart.until(first.getEndDate(), ChronoUnit.MILLIS);
+      return requestStart.until(firstEnd, ChronoUnit.MILLIS);
 
-    } else if (!requestStart.isAfter(first.getStartDate())
-        && !requestEnd.isAfter(first.getEndDate())) {
+    } else if (!requestStart.isAfter(firstStart) && !requestEnd.isAfter(firstEnd)) {
       // Request starts before first range and ends within first range
-      portionFirst = first.getStartDate().until(requestEnd, ChronoUnit.MILLIS);
+      return firstStart.until(requestEnd, ChronoUnit.MILLIS);
 
-    } else if (!requestStart.isAfter(first.getStartDate())
-        && !first.getEndDate().isAfter(requestEnd)) {
+    } else if (!requestStart.isAfter(firstStart) && !firstEnd.isAfter(requestEnd)) {
       // Request starts before first and ends after first
-      portionFirst = totalFirst;
+      return firstStart.until(firstEnd, ChronoUnit.MILLIS);
     }
-
-    return ((double) portionFirst) / ((double) totalFirst);
+    return 0;
   }
 
 
@@ -176,45 +225,110 @@ public class Calculator {
     }
 
     // Normal case
-    var averageSpendingList = new ArrayList<SpendingRange>();
-    var startOfEndMonth = endDate.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0)
-        .withNano(0);
-    var endOfStartMonth = startDate.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0)
-        .withNano(0).plusMonths(1).minusNanos(1);
-    var currentMonth = startDate;
-
-    while (ChronoUnit.MONTHS.between(currentMonth, startOfEndMonth) > -1) {
-      log.debug("Current Month = {}. Average Monthly Spending so far {}.", currentMonth,
-          averageSpendingList);
-      var startOfMonth = currentMonth.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0)
-          .withNano(0);
-
-      if (ChronoUnit.MONTHS.between(startOfMonth, startDate) == 0 && startOfMonth.getMonth()
-          .equals(startDate.getMonth())) {
-        log.debug("Calculating the first month's average.");
-        averageSpendingList.add(calculateSpending(startDate, endOfStartMonth));
-        currentMonth = currentMonth.plusMonths(1);
-        continue;
-      }
+    var averageSpendingList = calculateSeries(
+        Buckets.calendar(Granularity.MONTHLY, 1, startDate, endDate),
+        this::calculateSpending);
 
-      if (ChronoUnit.MONTHS.between(startOfMonth, endDate) == 0) {
-        log.debug("Calculating the final month's average.");
-        averageSpendingList.add(calculateSpending(startOfEndMonth, endDate));
-        currentMonth = currentMonth.plusMonths(1);
-        continue;
-      }
+    log.debug("Final average monthly spending list:");
+    if (log.isDebugEnabled()) {
+      averageSpendingList.stream().map(SpendingRange::toString).forEach(log::debug);
+    }
+    return averageSpendingList;
 
-      log.debug("Calculating a middle month's average.");
+  }
 
-      var endOfMonth = startOfMonth.plusMonths(1).minusNanos(1);
-      averageSpendingList.add(calculateSpending(startOfMonth, endOfMonth));
-      currentMonth = currentMonth.plusMonths(1);
+  public List<SpendingRange> calculatePeriodSpending(RollupPeriod period) {
+    try {
+      return calculatePeriodSpending(period, spendingRangeRepository.earliest(),
+          spendingRangeRepository.latest());
+    } catch (EmptyRepositoryException e) {
+      log.warn(e.getMessage());
+      return List.of();
+    } catch (InvalidDateException e) {
+      log.error("Should never have InvalidDateReception thrown here.", e);
+      throw new InternalStateException("Should never have InvalidDateReception thrown here.", e);
     }
+  }
 
-    log.debug("Final average monthly spending list:");
-    averageSpendingList.stream().map(SpendingRange::toString).forEach(log::debug);
-    return averageSpendingList;
+  /**
+   * @return total spending of every whole period that the given dates fall in.
+   */
+  public List<SpendingRange> calculatePeriodSpending(RollupPeriod period,
+      LocalDateTime startDate, LocalDateTime endDate) throws InvalidDateException {
+    log.info("Get spending of each {} from '{}' to '{}'.", period, startDate, endDate);
 
+    if (startDate.isAfter(endDate)) {
+      log.warn("Start date '" + startDate + "' occurs after end date '" + endDate + "'.");
+      throw InvalidDateException.wrongWayAround(startDate, endDate);
+    }
+
+    return calculateSeries(Buckets.whole(period.getGranularity(), 1, startDate, endDate),
+        this::calculateSpending);
+  }
+
+  public List<SpendingRange> calculateTotalSpending(Granularity granularity, int billingDay) {
+    try {
+      return calculateTotalSpending(spendingRangeRepository.earliest(),
+          spendingRangeRepository.latest(), granularity, billingDay);
+    } catch (EmptyRepositoryException e) {
+      log.warn(e.getMessage());
+      return List.of();
+    } catch (InvalidDateException e) {
+      log.error("Should never have InvalidDateReception thrown here.", e);
+      throw new InternalStateException("Should never have InvalidDateReception thrown here.", e);
+    }
+  }
+
+  /**
+   * @return total spending of each calendar bucket of the granularity between the dates, with the
+   * first and last cut down to start and end with them.
+   */
+  public List<SpendingRange> calculateTotalSpending(LocalDateTime startDate,
+      LocalDateTime endDate, Granularity granularity, int billingDay)
+      throws InvalidDateException {
+    log.info("Get total {} spending from '{}' to '{}'.", granularity, startDate, endDate);
+
+    if (startDate.isAfter(endDate)) {
+      log.warn("Start date '" + startDate + "' occurs after end date '" + endDate + "'.");
+      throw InvalidDateException.wrongWayAround(startDate, endDate);
+    }
+
+    return calculateSeries(Buckets.calendar(granularity, billingDay, startDate, endDate),
+        this::calculateSpending);
+  }
+
+  /**
+   * Same as {@link #calculateTotalSpending(Granularity, int)}, but each bucket is only worked out
+   * as the stream gets to it.
+   */
+  public Stream<SpendingRange> streamTotalSpending(Granularity granularity, int billingDay) {
+    try {
+      return streamTotalSpending(spendingRangeRepository.earliest(),
+          spendingRangeRepository.latest(), granularity, billingDay);
+    } catch (EmptyRepositoryException e) {
+      log.warn(e.getMessage());
+      return Stream.empty();
+    } catch (InvalidDateException e) {
+      log.error("Should never have InvalidDateReception thrown here.", e);
+      throw new InternalStateException("Should never have InvalidDateReception thrown here.", e);
+    }
+  }
+
+  /**
+   * Same as {@link #calculateTotalSpending(LocalDateTime, LocalDateTime, Granularity, int)}, but
+   * each bucket is only worked out as the stream gets to it.
+   */
+  public Stream<SpendingRange> streamTotalSpending(LocalDateTime startDate, LocalDateTime endDate,
+      Granularity granularity, int billingDay) throws InvalidDateException {
+    log.info("Stream total {} spending from '{}' to '{}'.", granularity, startDate, endDate);
+
+    if (startDate.isAfter(endDate)) {
+      log.warn("Start date '" + startDate + "' occurs after end date '" + endDate + "'.");
+      throw InvalidDateException.wrongWayAround(startDate, endDate);
+    }
+
+    return streamSeries(Buckets.calendar(granularity, billingDay, startDate, endDate),
+        this::calculateSpending);
   }
 
   public SpendingRange calculateAllSpending() {
@@ -379,53 +493,40 @@ public class Calculator {
     }
 
     // Normal case
-    var averageSpendingList = new ArrayList<SpendingRange>();
-    var startOfEndMonth = endDate.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0)
-        .withNano(0);
-    var endOfStartMonth = startDate.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0)
-        .withNano(0).plusMonths(1).minusNanos(1);
-    var currentMonth = startDate;
-
-    while (ChronoUnit.MONTHS.between(currentMonth, startOfEndMonth) > -1) {
-      log.debug("Current Month = {}. Average Monthly Spending so far {}.", currentMonth,
-          averageSpendingList);
-      var startOfMonth = currentMonth.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0)
-          .withNano(0);
-
-      if (ChronoUnit.MONTHS.between(startOfMonth, startDate) == 0 && startOfMonth.getMonth()
-          .equals(startDate.getMonth())) {
-        log.debug("Calculating the first month's average.");
-        averageSpendingList.add(calculateAverageOfFractionOfMonth(startDate, endOfStartMonth));
-        currentMonth = currentMonth.plusMonths(1);
-        continue;
-      }
-
-      if (ChronoUnit.MONTHS.between(startOfMonth, endDate) == 0) {
-        log.debug("Calculating the final month's average.");
-        averageSpendingList.add(calculateAverageOfFractionOfMonth(startOfEndMonth, endDate));
-        currentMonth = currentMonth.plusMonths(1);
-        continue;
-      }
-
-      log.debug("Calculating a middle month's average.");
-
-      var endOfMonth = startOfMonth.plusMonths(1).minusNanos(1);
-      averageSpendingList.add(calculateAverageOfFractionOfMonth(startOfMonth, endOfMonth));
-      currentMonth = currentMonth.plusMonths(1);
-    }
+    var averageSpendingList = calculateSeries(
+        Buckets.calendar(Granularity.MONTHLY, 1, startDate, endDate),
+        this::calculateAverageOfFractionOfMonth);
 
     log.debug("Final average monthly spending list:");
-    averageSpendingList.stream().map(SpendingRange::toString).forEach(log::debug);
+    if (log.isDebugEnabled()) {
+      averageSpendingList.stream().map(SpendingRange::toString).forEach(log::debug);
+    }
     return averageSpendingList;
 
   }
 
   private SpendingRange calculateAverageOfFractionOfMonth(LocalDateTime startOfMonth,
-      LocalDateTime endOfMonth) throws InvalidDateException {
-    var spending = calculateSpending(startOfMonth, endOfMonth);
-    log.debug("Total spending for this month {}.", spending);
+      LocalDateTime endOfMonth, SpendingRangeSearch search) throws InvalidDateException {
     var differenceInSeconds = ChronoUnit.NANOS.between(startOfMonth, endOfMonth);
     var secondDay = ChronoUnit.DAYS.getDuration().toNanos();
+
+    if (isFixedPoint()) {
+      try {
+        var scale = getFixedPointScale();
+        var spending = calculateFixedPointSpending(startOfMonth, endOfMonth, search, scale);
+        // a month of nanoseconds rarely leaves room to stay in a long, but the total is exact
+        var average = BigDecimal.valueOf(spending, scale)
+            .multiply(BigDecimal.valueOf(secondDay))
+            .divide(BigDecimal.valueOf(differenceInSeconds), FixedPoint.OUTPUT_SCALE,
+                RoundingMode.HALF_UP);
+        return new SpendingRange(startOfMonth, endOfMonth, average);
+      } catch (ArithmeticException e) {
+        log.debug("Falling back to BigDecimal for '{}' to '{}'.", startOfMonth, endOfMonth, e);
+      }
+    }
+
+    var spending = calculateSpending(startOfMonth, endOfMonth, search);
+    log.debug("Total spending for this month {}.", spending);
     var average = spending.getUsage()
         .multiply(BigDecimal.valueOf(secondDay))
         .divide(BigDecimal.valueOf(differenceInSeconds), RoundingMode.HALF_UP)
@@ -456,34 +557,14 @@ public class Calculator {
       return List.of();
     }
 
-    var averageSpendingList = new ArrayList<SpendingRange>();
-    var lastEndDate = startDate;
-
-    // Loop while there are day gap days between the last end date and the overall end date
-    while (ChronoUnit.DAYS.between(lastEndDate, endDate) >= dayGap) {
-
-      var newEndDate = lastEndDate.plusDays(dayGap);
-
-      // Get total spending between two dates that are day gap days apart
-      var totalSpending = calculateSpending(lastEndDate, newEndDate);
-
-      // Average the total spending between those dates by dividing by day gap
-      var averageReading = totalSpending.getUsage()
-          .divide(BigDecimal.valueOf(dayGap), RoundingMode.HALF_UP);
-
-      averageSpendingList.add(
-          new SpendingRange(
-              lastEndDate,
-              newEndDate,
-              averageReading
-          )
-      );
-
-      lastEndDate = newEndDate;
-    }
+    var averageSpendingList = calculateSeries(Buckets.everyDays(startDate, endDate, dayGap),
+        (bucketStart, bucketEnd, search) ->
+            calculateAverageOfPeriod(bucketStart, bucketEnd, dayGap, search));
 
     log.debug("Final average spending list over {} day periods:", dayGap);
-    averageSpendingList.stream().map(SpendingRange::toString).forEach(log::debug);
+    if (log.isDebugEnabled()) {
+      averageSpendingList.stream().map(SpendingRange::toString).forEach(log::debug);
+    }
 
     return averageSpendingList;
 
@@ -506,37 +587,248 @@ public class Calculator {
       return List.of();
     }
 
-    var averageSpendingList = new ArrayList<SpendingRange>();
-    var lastEndDate = startDate;
+    // Get total spending between each two dates that are day gap days apart
+    var averageSpendingList = calculateSeries(Buckets.everyDays(startDate, endDate, dayGap),
+        this::calculateSpending);
+
+    log.debug("Final average spending list over {} day periods:", dayGap);
+    if (log.isDebugEnabled()) {
+      averageSpendingList.stream().map(SpendingRange::toString).forEach(log::debug);
+    }
+
+    return averageSpendingList;
 
-    // Loop while there are day gap days between the last end date and the overall end date
-    while (ChronoUnit.DAYS.between(lastEndDate, endDate) >= dayGap) {
+  }
 
-      var newEndDate = lastEndDate.plusDays(dayGap);
+  /**
+   * Works out every bucket of a series, in chunks on the {@link ParallelSeries} if there are
+   * enough of them.
+   */
+  private List<SpendingRange> calculateSeries(Buckets buckets, BucketCalculation calculation) {
+    // built here, so the chunks only ever read it
+    var index = spendingRangeRepository.getIndex();
+    return Arrays.asList(calculateBuckets(index, buckets, 0, buckets.size(), calculation));
+  }
 
-      // Get total spending between two dates that are day gap days apart
-      var totalSpending = calculateSpending(lastEndDate, newEndDate);
+  /**
+   * Same as {@link #calculateSeries(Buckets, BucketCalculation)}, but only works out a block of
+   * buckets at a time, as the stream gets to them.
+   */
+  private Stream<SpendingRange> streamSeries(Buckets buckets, BucketCalculation calculation) {
+    var index = spendingRangeRepository.getIndex();
+    var blocks = (buckets.size() + STREAMED_BLOCK_SIZE - 1) / STREAMED_BLOCK_SIZE;
+    return IntStream.range(0, blocks)
+        .mapToObj(block -> calculateBuckets(index, buckets, block * STREAMED_BLOCK_SIZE,
+            Math.min(buckets.size(), (block + 1) * STREAMED_BLOCK_SIZE), calculation))
+        .flatMap(Arrays::stream);
+  }
 
-      averageSpendingList.add(totalSpending);
+  /**
+   * @return buckets [first, last) of the series. Each chunk sweeps through the ranges on its own.
+   */
+  private SpendingRange[] calculateBuckets(SpendingRangeIndex index, Buckets buckets, int first,
+      int last, BucketCalculation calculation) {
+    var series = new SpendingRange[last - first];
+
+    parallelSeries.run(series.length, (from, to) -> {
+      var sweep = index.sweep();
+      for (int i = from; i < to; i++) {
+        try {
+          series[i] = calculation.calculate(buckets.getStartDate(first + i),
+              buckets.getEndDate(first + i), sweep);
+        } catch (InvalidDateException e) {
+          log.error("Should never have InvalidDateReception thrown here.", e);
+          throw new InternalStateException("Should never have InvalidDateReception thrown here.",
+              e);
+        }
+      }
+    });
+    return series;
+  }
 
-      lastEndDate = newEndDate;
+  private SpendingRange calculateAverageOfPeriod(LocalDateTime startDate, LocalDateTime endDate,
+      int dayGap, SpendingRangeSearch search) throws InvalidDateException {
+
+    if (isFixedPoint()) {
+      try {
+        var scale = getFixedPointScale();
+        var spending = calculateFixedPointSpending(startDate, endDate, search, scale);
+        var average = FixedPoint.mulDivHalfUp(spending, 1,
+            Math.multiplyExact(dayGap, FixedPoint.pow10(scale - FixedPoint.OUTPUT_SCALE)));
+        return new SpendingRange(startDate, endDate,
+            BigDecimal.valueOf(average, FixedPoint.OUTPUT_SCALE));
+      } catch (ArithmeticException e) {
+        log.debug("Falling back to BigDecimal for '{}' to '{}'.", startDate, endDate, e);
+      }
     }
 
-    log.debug("Final average spending list over {} day periods:", dayGap);
-    averageSpendingList.stream().map(SpendingRange::toString).forEach(log::debug);
+    // Get total spending between two dates that are day gap days apart
+    var totalSpending = calculateSpending(startDate, endDate, search);
 
-    return averageSpendingList;
+    // Average the total spending between those dates by dividing by day gap
+    var averageReading = totalSpending.getUsage()
+        .divide(BigDecimal.valueOf(dayGap), RoundingMode.HALF_UP);
 
+    return new SpendingRange(startDate, endDate, averageReading);
   }
 
   private SpendingRange calculateSpending(LocalDateTime startDate, LocalDateTime endDate)
       throws InvalidDateException {
+    return calculateSpending(startDate, endDate, spendingRangeRepository.getIndex());
+  }
+
+  /**
+   * Series pass a {@link SpendingRangeIndex.Sweep} as the search so that consecutive buckets walk
+   * the ranges once between them, instead of binary searching for every bucket.
+   */
+  private SpendingRange calculateSpending(LocalDateTime startDate, LocalDateTime endDate,
+      SpendingRangeSearch search) throws InvalidDateException {
 
     if (startDate.isAfter(endDate)) {
       log.warn("Start date '" + startDate + "' occurs after end date '" + endDate + "'.");
       throw InvalidDateException.wrongWayAround(startDate, endDate);
     }
 
+    var rollup = getRollup(startDate, endDate);
+    if (rollup != null) {
+      log.debug("Using rolled up spending {} for '{}' to '{}'.", rollup, startDate, endDate);
+      return new SpendingRange(startDate, endDate, rollup);
+    }
+
+    if (isFixedPoint()) {
+      try {
+        var scale = getFixedPointScale();
+        var spending = calculateFixedPointSpending(startDate, endDate, search, scale);
+        return new SpendingRange(startDate, endDate, BigDecimal.valueOf(
+            FixedPoint.rescale(spending, scale, FixedPoint.OUTPUT_SCALE), FixedPoint.OUTPUT_SCALE));
+      } catch (ArithmeticException e) {
+        log.debug("Falling back to BigDecimal for '{}' to '{}'.", startDate, endDate, e);
+      }
+    }
+
+    var index = spendingRangeRepository.getIndex();
+    if (!index.isSearchable()) {
+      return calculateSpendingFromSublist(startDate, endDate);
+    }
+
+    // get bounds of the run of spending ranges overlapping the request
+    var first = search.firstEndingNotBefore(startDate);
+    var last = search.lastStartingNotAfter(endDate);
+    log.debug("Spending ranges {} to {} are between '{}' and '{}'.", first, last, startDate,
+        endDate);
+
+    if (first > last) {
+      log.debug("No spending ranges found.");
+      return new SpendingRange(startDate, endDate, BigDecimal.ZERO);
+    }
+
+    // handle first case
+    var firstSpending = firstSpending(startDate, endDate, index.get(first));
+    log.debug("First spending: {}", firstSpending);
+
+    if (first == last) {
+      return new SpendingRange(startDate, endDate, firstSpending);
+    }
+
+    // handle cases where there is more than one range
+    var middleSpending = index.usageBetween(first + 1, last);
+    log.debug("Middle spending: {}", middleSpending);
+
+    // handle final case
+    var lastSpending = lastSpending(startDate, endDate, index.get(last));
+    log.debug("Last spending: {}", lastSpending);
+
+    var totalSpending = firstSpending.add(middleSpending).add(lastSpending);
+    log.debug("Total spending: {}", totalSpending);
+
+    return new SpendingRange(startDate, endDate, totalSpending);
+  }
+
+  /**
+   * Rollups are exact {@link ArithmeticMode#BIG_DECIMAL} totals, which fixed point buckets would
+   * not always round to the same result, so fixed point buckets never use them.
+   *
+   * @return spending already totalled for exactly these dates, or null if there is none.
+   */
+  private BigDecimal getRollup(LocalDateTime startDate, LocalDateTime endDate) {
+    if (isFixedPoint()) {
+      return null;
+    }
+    for (var period : RollupPeriod.values()) {
+      if (period.isPeriod(startDate, endDate)) {
+        return spendingRollups.get(period, startDate);
+      }
+    }
+    return null;
+  }
+
+  private boolean isFixedPoint() {
+    var index = spendingRangeRepository.getIndex();
+    return arithmeticMode == ArithmeticMode.FIXED_POINT
+        && index instanceof SpendingRangeColumnIndex
+        && index.isSearchable();
+  }
+
+  private int getFixedPointScale() {
+    var index = (SpendingRangeColumnIndex) spendingRangeRepository.getIndex();
+    return FixedPoint.workingScale(index.getColumns().getUsageScale());
+  }
+
+  /**
+   * Same as {@link #calculateSpending(LocalDateTime, LocalDateTime, SpendingRangeSearch)}, but on
+   * the unscaled usages of the columns, with the portions of the first and last ranges rounded
+   * half up to the given scale.
+   *
+   * Dates are checked by the public methods before they get here.
+   *
+   * @return total spending at the given scale.
+   * @throws ArithmeticException if it does not fit in a long.
+   */
+  private long calculateFixedPointSpending(LocalDateTime startDate, LocalDateTime endDate,
+      SpendingRangeSearch search, int scale) {
+
+    var index = (SpendingRangeColumnIndex) spendingRangeRepository.getIndex();
+    var columns = index.getColumns();
+
+    var first = search.firstEndingNotBefore(startDate);
+    var last = search.lastStartingNotAfter(endDate);
+    if (first > last) {
+      return 0;
+    }
+
+    var firstStart = SpendingRangeColumns.toLocalDateTime(columns.getStartDate(first));
+    var firstEnd = SpendingRangeColumns.toLocalDateTime(columns.getEndDate(first));
+    var firstSpending = FixedPoint.mulDivHalfUp(
+        FixedPoint.rescale(columns.getUnscaledUsage(first), columns.getUsageScale(), scale),
+        getMillisOfFirst(firstStart, firstEnd, startDate, endDate),
+        columns.getEndDate(first) - columns.getStartDate(first)
+    );
+
+    if (first == last) {
+      return firstSpending;
+    }
+
+    var middleSpending = FixedPoint.rescale(index.unscaledUsageBetween(first + 1, last),
+        columns.getUsageScale(), scale);
+
+    var lastStart = SpendingRangeColumns.toLocalDateTime(columns.getStartDate(last));
+    var lastEnd = SpendingRangeColumns.toLocalDateTime(columns.getEndDate(last));
+    var lastSpending = FixedPoint.mulDivHalfUp(
+        FixedPoint.rescale(columns.getUnscaledUsage(last), columns.getUsageScale(), scale),
+        getMillisOfLast(startDate, endDate, lastStart, lastEnd),
+        columns.getEndDate(last) - columns.getStartDate(last)
+    );
+
+    return Math.addExact(Math.addExact(firstSpending, middleSpending), lastSpending);
+  }
+
+  /**
+   * Fallback for ranges that overlap each other in a way {@link SpendingRangeIndex} cannot
+   * binary search.
+   */
+  private SpendingRange calculateSpendingFromSublist(LocalDateTime startDate,
+      LocalDateTime endDate) {
+
     // get sublist of spending ranges
     var sublist = new ArrayList<>(spendingRangeRepository.getBetweenDates(startDate, endDate));
     sublist.sort(Comparator.comparing(SpendingRange::getStartDate));
@@ -550,7 +842,7 @@ public class Calculator {
 
     // handle first case
     var firstSpending = firstSpending(startDate, endDate, sublist.get(0));
-    log.debug("First spending: " + firstSpending);
+    log.debug("First spending: {}", firstSpending);
 
     if (sublist.size() == 1) {
       return new SpendingRange(startDate, endDate, firstSpending);
@@ -558,16 +850,23 @@ public class Calculator {
 
     // handle cases where sublist is not size 1
     var middleSpending = middleSpending(sublist);
-    log.debug("Middle spending: " + middleSpending);
+    log.debug("Middle spending: {}", middleSpending);
 
     // handle final case
     var lastSpending = lastSpending(startDate, endDate, sublist.get(sublist.size() - 1));
-    log.debug("Last spending: " + lastSpending);
+    log.debug("Last spending: {}", lastSpending);
 
     var totalSpending = firstSpending.add(middleSpending).add(lastSpending);
-    log.debug("Total spending: " + totalSpending);
+    log.debug("Total spending: {}", totalSpending);
 
     return new SpendingRange(startDate, endDate, totalSpending);
   }
 
+  @FunctionalInterface
+  private interface BucketCalculation {
+
+    SpendingRange calculate(LocalDateTime startDate, LocalDateTime endDate,
+        SpendingRangeSearch search) throws InvalidDateException;
+  }
+
 }
@@ -0,0 +1,19 @@
+package com.cheemcheem.projects.energyusage.util;
+
+/**
+ * Where spending is worked out for the totals that can be worked out either way.
+ */
+public enum CalculatorBackend {
+
+  /**
+   * A {@link Calculator} over the cached spending ranges of the user.
+   */
+  IN_MEMORY,
+
+  /**
+   * Queries totalling the readings of the user in the database, see {@link
+   * com.cheemcheem.projects.energyusage.repository.SpendingAggregationRepository}. Nothing is
+   * cached, and rollups are not used.
+   */
+  SQL
+}
@@ -7,6 +7,11 @@ public class Constants {
 
   public static final String USER_ID_ATTRIBUTE_KEY = "USER_ID_ATTRIBUTE_KEY";
 
+  /**
+   * Newline delimited JSON, for series that are written out as they are worked out.
+   */
+  public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
   /**
    * A list of endpoints that are required to be attached to request attributes.
    */
@@ -14,5 +19,7 @@ public class Constants {
       "(/api/spending(/.*)*)"
           + "|(/api/average(/.*)*)"
           + "|(/api/reading(/.*)*)"
+          + "|(/api/rollup(/.*)*)"
+          + "|(/api/query)"
   ).asMatchPredicate().negate();
 }
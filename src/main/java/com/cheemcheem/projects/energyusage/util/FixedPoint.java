@@ -0,0 +1,89 @@
+package com.cheemcheem.projects.energyusage.util;
+
+/**
+ * Arithmetic on decimals held as unscaled longs, used by {@link ArithmeticMode#FIXED_POINT}.
+ *
+ * Rounding is always {@link java.math.RoundingMode#HALF_UP half up}, to match the scale 2 output
+ * of {@link com.cheemcheem.projects.energyusage.util.mapper.DTOMapper}. Every method throws an
+ * {@link ArithmeticException} rather than overflow, so callers can fall back to {@link
+ * java.math.BigDecimal}.
+ */
+public final class FixedPoint {
+
+  /**
+   * Scale of every result in fixed point mode.
+   */
+  public static final int OUTPUT_SCALE = 2;
+
+  /**
+   * Digits kept beyond the output scale and the scale of the usages while working out a bucket,
+   * so rounding the portions of its first and last ranges cannot change its rounded result except
+   * right next to a tie.
+   */
+  public static final int GUARD_DIGITS = 6;
+
+  private static final long[] POWERS_OF_TEN = new long[19];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private FixedPoint() {
+  }
+
+  /**
+   * @return scale to work at for usages of the given scale.
+   */
+  public static int workingScale(int usageScale) {
+    return Math.max(usageScale, OUTPUT_SCALE) + GUARD_DIGITS;
+  }
+
+  public static long pow10(int exponent) {
+    if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+      throw new ArithmeticException("10^" + exponent + " does not fit in a long.");
+    }
+    return POWERS_OF_TEN[exponent];
+  }
+
+  /**
+   * @return the unscaled value at another scale, rounded half up if the scale is smaller.
+   */
+  public static long rescale(long unscaled, int fromScale, int toScale) {
+    if (toScale >= fromScale) {
+      return Math.multiplyExact(unscaled, pow10(toScale - fromScale));
+    }
+    return mulDivHalfUp(unscaled, 1, pow10(fromScale - toScale));
+  }
+
+  /**
+   * @return a * b / c, rounded half up, without overflowing on a * b as long as the remainder of
+   * a / c times b fits in a long.
+   */
+  public static long mulDivHalfUp(long a, long b, long c) {
+    if (c == 0) {
+      throw new ArithmeticException("Division by zero.");
+    }
+    var negative = (a < 0) ^ (b < 0) ^ (c < 0);
+    a = abs(a);
+    b = abs(b);
+    c = abs(c);
+
+    // a * b / c = (a / c) * b + (a % c) * b / c
+    var whole = Math.multiplyExact(a / c, b);
+    var part = Math.multiplyExact(a % c, b);
+    var quotient = part / c;
+    var remainder = part % c;
+    if (remainder >= c - remainder) {
+      quotient++;
+    }
+    var result = Math.addExact(whole, quotient);
+    return negative ? -result : result;
+  }
+
+  private static long abs(long value) {
+    return value < 0 ? Math.negateExact(value) : value;
+  }
+}
@@ -0,0 +1,160 @@
+package com.cheemcheem.projects.energyusage.util;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Calendar aligned bucket sizes for a series.
+ *
+ * Buckets of a month or longer end a nanosecond before the next one starts, as the monthly series
+ * always have, and shorter buckets end where the next one starts.
+ *
+ * Billing cycles start on a given day of each month, or on its last day if the month is shorter.
+ * Every other size ignores the billing day.
+ *
+ * @see Buckets
+ */
+public enum Granularity {
+
+  FIFTEEN_MINUTES(ChronoUnit.MINUTES, 15) {
+    @Override
+    public LocalDateTime getStart(LocalDateTime date, int billingDay) {
+      var start = date.truncatedTo(ChronoUnit.MINUTES);
+      return start.withMinute(start.getMinute() / 15 * 15);
+    }
+  },
+
+  HOURLY(ChronoUnit.HOURS, 1) {
+    @Override
+    public LocalDateTime getStart(LocalDateTime date, int billingDay) {
+      return date.truncatedTo(ChronoUnit.HOURS);
+    }
+  },
+
+  DAILY(ChronoUnit.DAYS, 1) {
+    @Override
+    public LocalDateTime getStart(LocalDateTime date, int billingDay) {
+      return date.truncatedTo(ChronoUnit.DAYS);
+    }
+  },
+
+  /**
+   * ISO weeks, starting on a Monday.
+   */
+  WEEKLY(ChronoUnit.WEEKS, 1) {
+    @Override
+    public LocalDateTime getStart(LocalDateTime date, int billingDay) {
+      return date.truncatedTo(ChronoUnit.DAYS)
+          .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+  },
+
+  MONTHLY(ChronoUnit.MONTHS, 1) {
+    @Override
+    public LocalDateTime getStart(LocalDateTime date, int billingDay) {
+      return date.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+    }
+  },
+
+  QUARTERLY(ChronoUnit.MONTHS, 3) {
+    @Override
+    public LocalDateTime getStart(LocalDateTime date, int billingDay) {
+      return date.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1)
+          .withMonth((date.getMonthValue() - 1) / 3 * 3 + 1);
+    }
+  },
+
+  YEARLY(ChronoUnit.YEARS, 1) {
+    @Override
+    public LocalDateTime getStart(LocalDateTime date, int billingDay) {
+      return date.truncatedTo(ChronoUnit.DAYS).withDayOfYear(1);
+    }
+  },
+
+  BILLING_CYCLE(ChronoUnit.MONTHS, 1) {
+    @Override
+    public LocalDateTime getStart(LocalDateTime date, int billingDay) {
+      var month = YearMonth.from(date);
+      var start = getBillingDate(month, billingDay);
+      return start.isAfter(date) ? getBillingDate(month.minusMonths(1), billingDay) : start;
+    }
+
+    @Override
+    public LocalDateTime plus(LocalDateTime start, long buckets, int billingDay) {
+      return getBillingDate(YearMonth.from(start).plusMonths(buckets), billingDay);
+    }
+  };
+
+  private final ChronoUnit unit;
+
+  private final int amount;
+
+  Granularity(ChronoUnit unit, int amount) {
+    this.unit = unit;
+    this.amount = amount;
+  }
+
+  private static LocalDateTime getBillingDate(YearMonth month, int billingDay) {
+    return month.atDay(Math.min(billingDay, month.lengthOfMonth())).atStartOfDay();
+  }
+
+  /**
+   * @return start of the bucket the date falls in.
+   */
+  public abstract LocalDateTime getStart(LocalDateTime date, int billingDay);
+
+  /**
+   * @return start of the bucket the given number of buckets after the one starting at start.
+   */
+  public LocalDateTime plus(LocalDateTime start, long buckets, int billingDay) {
+    return start.plus(Math.multiplyExact(buckets, this.amount), this.unit);
+  }
+
+  /**
+   * @return end of the bucket starting at start.
+   */
+  public LocalDateTime getEnd(LocalDateTime start, int billingDay) {
+    var next = plus(start, 1, billingDay);
+    return endsBeforeNext() ? next.minusNanos(1) : next;
+  }
+
+  /**
+   * @return roughly how many buckets start between the two dates, for a search to start from.
+   */
+  long estimateBetween(LocalDateTime start, LocalDateTime date) {
+    return this.unit.between(start, date) / this.amount;
+  }
+
+  /**
+   * @return length of every bucket, or null if it depends on the month. Days are always the same
+   * length, as the dates have no time zone.
+   */
+  public Duration getLength() {
+    return getMonths() > 0 ? null : this.unit.getDuration().multipliedBy(this.amount);
+  }
+
+  /**
+   * @return months in every bucket, or 0 if they are shorter than a month.
+   */
+  public int getMonths() {
+    switch (this.unit) {
+      case MONTHS:
+        return this.amount;
+      case YEARS:
+        return this.amount * 12;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * @return whether buckets end a nanosecond before the next one starts.
+   */
+  public boolean endsBeforeNext() {
+    return this.unit.compareTo(ChronoUnit.MONTHS) >= 0;
+  }
+}
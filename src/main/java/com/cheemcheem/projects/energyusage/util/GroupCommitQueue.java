@@ -0,0 +1,283 @@
+package com.cheemcheem.projects.energyusage.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes items handed over by many threads in groups, on a thread of its own, so writers at the
+ * same time share one commit rather than each having their own. Each group is whatever is waiting,
+ * up to a maximum size, plus whatever arrives within the maximum latency of the first item.
+ *
+ * The queue is bounded, and items that do not fit, or arrive once it is closed, are written on
+ * the calling thread on their own. If a group fails to be written, its items are written again
+ * one at a time, so only the ones that fail on their own are failed. Items of {@link
+ * #direct(Consumer)} are always written on the calling thread.
+ *
+ * Once items are written, they are handed to the after write step, such as updating caches. The
+ * writer must only fail if nothing was written, and the after write step failing does not fail the
+ * items, as they are written either way, so they are never written twice.
+ *
+ * Callers wait up to a maximum for their item to be taken, after which they write it themselves.
+ * Once it has been taken, they wait for it to be written however long that takes. Should the
+ * thread of the queue fail, every item it took is failed, and the queue closes, handing the items
+ * still waiting back to their callers.
+ */
+@Slf4j
+public class GroupCommitQueue<T> implements AutoCloseable {
+
+  public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(30);
+
+  private final Consumer<List<T>> writer;
+
+  private final Consumer<List<T>> afterWrite;
+
+  private final BlockingQueue<Pending<T>> queue;
+
+  private final int maxSize;
+
+  private final long maxLatencyNanos;
+
+  private final long maxWaitNanos;
+
+  private final Thread thread;
+
+  private volatile boolean closed;
+
+  private GroupCommitQueue(Consumer<List<T>> writer, Consumer<List<T>> afterWrite, int capacity,
+      int maxSize, Duration maxLatency, Duration maxWait, String threadName) {
+    this.writer = writer;
+    this.afterWrite = afterWrite;
+    this.queue = capacity > 0 ? new ArrayBlockingQueue<>(capacity) : null;
+    this.maxSize = Math.max(1, maxSize);
+    this.maxLatencyNanos = maxLatency.toNanos();
+    this.maxWaitNanos = maxWait.toNanos();
+    if (this.queue == null) {
+      this.thread = null;
+      return;
+    }
+    this.thread = new Thread(this::run, threadName);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * @return a queue that writes each item on its own as it is handed over.
+   */
+  public static <T> GroupCommitQueue<T> direct(Consumer<List<T>> writer) {
+    return direct(writer, items -> {
+    });
+  }
+
+  public static <T> GroupCommitQueue<T> direct(Consumer<List<T>> writer,
+      Consumer<List<T>> afterWrite) {
+    return new GroupCommitQueue<>(writer, afterWrite, 0, 1, Duration.ZERO, Duration.ZERO, null);
+  }
+
+  /**
+   * @param capacity   most items that can wait to be written.
+   * @param maxSize    most items written in one group.
+   * @param maxLatency longest the first item of a group waits for others to join it.
+   */
+  public static <T> GroupCommitQueue<T> withThread(String threadName, Consumer<List<T>> writer,
+      int capacity, int maxSize, Duration maxLatency) {
+    return withThread(threadName, writer, items -> {
+    }, capacity, maxSize, maxLatency, DEFAULT_MAX_WAIT);
+  }
+
+  /**
+   * @param afterWrite called with the items of each group once they have been written.
+   * @param maxWait    longest a caller waits for its item to be taken by the queue.
+   */
+  public static <T> GroupCommitQueue<T> withThread(String threadName, Consumer<List<T>> writer,
+      Consumer<List<T>> afterWrite, int capacity, int maxSize, Duration maxLatency,
+      Duration maxWait) {
+    return new GroupCommitQueue<>(writer, afterWrite, Math.max(1, capacity), maxSize, maxLatency,
+        maxWait, threadName);
+  }
+
+  /**
+   * Writes the item with any others waiting, and returns once it has been written.
+   *
+   * @throws RuntimeException whatever writing the item threw, or {@link IllegalStateException} if
+   *                          interrupted before it was written.
+   */
+  public void write(T item) {
+    if (this.queue == null || this.closed) {
+      writeNow(List.of(item));
+      return;
+    }
+    var pending = new Pending<>(item);
+    if (!this.queue.offer(pending)) {
+      log.debug("Queue is full, writing on the calling thread.");
+      writeNow(List.of(item));
+      return;
+    }
+    // closing drains the queue after it is marked closed, so whichever removes the item writes it
+    if (this.closed && this.queue.remove(pending)) {
+      writeNow(List.of(item));
+      return;
+    }
+
+    boolean written;
+    try {
+      written = awaitWritten(pending);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for item to be written.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to write item.", e.getCause());
+    }
+    if (!written) {
+      writeNow(List.of(item));
+    }
+  }
+
+  /**
+   * Waits up to the maximum wait for the queue to take the item, and once it has, for as long as
+   * it takes to write it, since the queue always finishes with the items it takes and writing the
+   * item here as well could write it twice.
+   *
+   * @return true if the queue wrote the item, or false if it is for the caller to write.
+   */
+  private boolean awaitWritten(Pending<T> pending)
+      throws InterruptedException, ExecutionException {
+    try {
+      return pending.written.get(this.maxWaitNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      if (this.queue.remove(pending)) {
+        log.warn("Timed out waiting for the queue, writing on the calling thread.");
+        return false;
+      }
+      log.warn("Timed out waiting for the queue, which is writing the item, waiting for it.");
+      return pending.written.get();
+    }
+  }
+
+  /**
+   * Stops taking items, and writes every one still waiting before returning.
+   */
+  @Override
+  public void close() {
+    if (this.thread == null || this.closed) {
+      return;
+    }
+    this.closed = true;
+    this.thread.interrupt();
+    try {
+      this.thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    var remaining = new ArrayList<Pending<T>>();
+    while (this.queue.drainTo(remaining, this.maxSize) > 0) {
+      writeGroup(remaining);
+      remaining.clear();
+    }
+  }
+
+  private void run() {
+    var group = new ArrayList<Pending<T>>(this.maxSize);
+    try {
+      takeAndWriteGroups(group);
+    } catch (Throwable e) {
+      log.error("Group commit thread failed, writing on calling threads from now on.", e);
+      group.forEach(pending -> pending.written.completeExceptionally(e));
+      this.closed = true;
+      var remaining = new ArrayList<Pending<T>>();
+      this.queue.drainTo(remaining);
+      remaining.forEach(pending -> pending.written.complete(false));
+    }
+  }
+
+  private void takeAndWriteGroups(List<Pending<T>> group) {
+    while (!this.closed) {
+      try {
+        group.add(this.queue.take());
+        var deadline = System.nanoTime() + this.maxLatencyNanos;
+        while (group.size() < this.maxSize) {
+          this.queue.drainTo(group, this.maxSize - group.size());
+          if (group.size() == this.maxSize) {
+            break;
+          }
+          var next = this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          group.add(next);
+        }
+      } catch (InterruptedException e) {
+        log.debug("Interrupted, writing the {} items taken so far.", group.size());
+      }
+      writeGroup(group);
+      group.clear();
+    }
+  }
+
+  /**
+   * Writes the items, then hands them to the after write step.
+   *
+   * @throws RuntimeException whatever writing the items threw, in which case none were written.
+   */
+  private void writeNow(List<T> items) {
+    this.writer.accept(items);
+    try {
+      this.afterWrite.accept(items);
+    } catch (Throwable e) {
+      log.error("Failed after writing {} items, which are still written.", items.size(), e);
+    }
+  }
+
+  private void writeGroup(List<Pending<T>> group) {
+    if (group.isEmpty()) {
+      return;
+    }
+    try {
+      writeNow(group.stream().map(pending -> pending.item).collect(Collectors.toList()));
+      group.forEach(pending -> pending.written.complete(true));
+      log.debug("Wrote group of {} items.", group.size());
+      return;
+    } catch (RuntimeException e) {
+      if (group.size() == 1) {
+        group.get(0).written.completeExceptionally(e);
+        return;
+      }
+      log.warn("Failed to write group of {} items, writing each on its own. Reason: {}",
+          group.size(), e.getMessage());
+    }
+    for (var pending : group) {
+      try {
+        writeNow(List.of(pending.item));
+        pending.written.complete(true);
+      } catch (RuntimeException e) {
+        pending.written.completeExceptionally(e);
+      }
+    }
+  }
+
+  private static class Pending<T> {
+
+    private final T item;
+
+    /**
+     * Whether the item was written, or handed back to be written by its caller.
+     */
+    private final CompletableFuture<Boolean> written = new CompletableFuture<>();
+
+    private Pending(T item) {
+      this.item = item;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.cheemcheem.projects.energyusage.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the buckets of a series in chunks on a bounded {@link ForkJoinPool} of its own, rather than
+ * the common pool, once there are at least a threshold number of them. Smaller series, and every
+ * series of {@link #SERIAL}, run as a single chunk on the calling thread.
+ *
+ * Chunks are split in halves down to about four per thread of the pool, and each writes only its
+ * own buckets, so the results need no merging beyond being read in order afterwards.
+ */
+public class ParallelSeries implements AutoCloseable {
+
+  public static final ParallelSeries SERIAL = new ParallelSeries(null, Integer.MAX_VALUE);
+
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final ForkJoinPool pool;
+
+  private final int threshold;
+
+  /**
+   * @param pool      pool to run chunks on, or null to always run serially.
+   * @param threshold fewest buckets a series needs to be split up.
+   */
+  public ParallelSeries(ForkJoinPool pool, int threshold) {
+    this.pool = pool;
+    this.threshold = Math.max(1, threshold);
+  }
+
+  /**
+   * @return a series running on a new pool with the given number of threads.
+   */
+  public static ParallelSeries withThreads(int threads, int threshold) {
+    return new ParallelSeries(new ForkJoinPool(threads, pool -> {
+      var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("parallel-series-" + thread.getPoolIndex());
+      return thread;
+    }, null, false), threshold);
+  }
+
+  public boolean isParallel(int size) {
+    return this.pool != null && size >= this.threshold;
+  }
+
+  /**
+   * Runs the chunk over every position in [0, size), and returns once all of them have finished.
+   * Anything thrown by a chunk is thrown again here.
+   */
+  public void run(int size, Chunk chunk) {
+    if (!isParallel(size)) {
+      chunk.run(0, size);
+      return;
+    }
+    var chunks = (long) this.pool.getParallelism() * CHUNKS_PER_THREAD;
+    var chunkSize = (int) Math.max(1, (size + chunks - 1) / chunks);
+    this.pool.invoke(new ChunkAction(chunk, 0, size, chunkSize));
+  }
+
+  @Override
+  public void close() {
+    if (this.pool != null) {
+      this.pool.shutdown();
+    }
+  }
+
+  @FunctionalInterface
+  public interface Chunk {
+
+    /**
+     * Handles positions [from, to).
+     */
+    void run(int from, int to);
+  }
+
+  private static class ChunkAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Chunk chunk;
+    private final int from;
+    private final int to;
+    private final int chunkSize;
+
+    private ChunkAction(Chunk chunk, int from, int to, int chunkSize) {
+      this.chunk = chunk;
+      this.from = from;
+      this.to = to;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= this.chunkSize) {
+        this.chunk.run(this.from, this.to);
+        return;
+      }
+      var middle = (this.from + this.to) >>> 1;
+      invokeAll(new ChunkAction(this.chunk, this.from, middle, this.chunkSize),
+          new ChunkAction(this.chunk, middle, this.to, this.chunkSize));
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package com.cheemcheem.projects.energyusage.util;
+
+import com.cheemcheem.projects.energyusage.model.RollupPeriod;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Spending already totalled over whole {@link RollupPeriod}s, which the {@link Calculator} uses
+ * instead of working out any bucket that is exactly one of those periods, unless it works the
+ * bucket out in fixed point.
+ *
+ * Buckets of a {@link ParallelSeries} may look up rollups from several threads at once.
+ */
+@FunctionalInterface
+public interface SpendingRollups {
+
+  SpendingRollups NONE = (period, periodStart) -> null;
+
+  /**
+   * @return spending over the period starting at the given date, or null if it has not been
+   * totalled.
+   */
+  BigDecimal get(RollupPeriod period, LocalDateTime periodStart);
+
+}
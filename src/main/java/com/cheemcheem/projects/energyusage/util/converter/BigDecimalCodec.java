@@ -0,0 +1,109 @@
+package com.cheemcheem.projects.energyusage.util.converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Parses and formats plain decimals by hand, such as readings and usages, to the same values and
+ * strings as {@link BigDecimal#BigDecimal(String)} and {@link BigDecimal#toString()}.
+ *
+ * Decimals of up to 18 digits without an exponent are worked out as longs, without the {@link
+ * java.math.BigInteger}s and character arrays of the general methods. Anything else is handed to
+ * the general methods.
+ */
+public final class BigDecimalCodec {
+
+  /**
+   * Any number of this many digits fits in a long.
+   */
+  private static final int MAX_DIGITS = 18;
+
+  private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private BigDecimalCodec() {
+  }
+
+  /**
+   * @throws NumberFormatException if the text is not a decimal.
+   */
+  public static BigDecimal parse(CharSequence text) {
+    return parse(text, 0, text.length());
+  }
+
+  /**
+   * Parses the characters from start, inclusive, to end, exclusive.
+   *
+   * @throws NumberFormatException if they are not a decimal.
+   */
+  public static BigDecimal parse(CharSequence text, int start, int end) {
+    var index = start;
+    var negative = false;
+    if (index < end && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+      negative = text.charAt(index) == '-';
+      index++;
+    }
+
+    long unscaled = 0;
+    var digits = 0;
+    var scale = -1;
+    for (; index < end; index++) {
+      var c = text.charAt(index);
+      if (c >= '0' && c <= '9') {
+        unscaled = unscaled * 10 + (c - '0');
+        digits++;
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (c == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        break;
+      }
+    }
+
+    if (index < end || digits == 0 || digits > MAX_DIGITS) {
+      return new BigDecimal(text.subSequence(start, end).toString());
+    }
+    return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+  }
+
+  public static String format(BigDecimal value) {
+    return append(value, new StringBuilder(MAX_DIGITS + 3)).toString();
+  }
+
+  public static StringBuilder append(BigDecimal value, StringBuilder builder) {
+    var scale = value.scale();
+    if (scale < 0 || scale > MAX_DIGITS || value.precision() > MAX_DIGITS
+        // written with an exponent
+        || value.precision() - scale < -5) {
+      return builder.append(value);
+    }
+
+    var unscaled = value.scaleByPowerOfTen(scale).longValueExact();
+    if (unscaled < 0) {
+      builder.append('-');
+      unscaled = -unscaled;
+    }
+    if (scale == 0) {
+      return builder.append(unscaled);
+    }
+
+    var power = POWERS_OF_TEN[scale];
+    builder.append(unscaled / power).append('.');
+    var fraction = unscaled % power;
+    // every digit of the fraction is written, leading and trailing zeros included
+    var fractionStart = builder.length();
+    builder.setLength(fractionStart + scale);
+    for (int i = fractionStart + scale - 1; i >= fractionStart; i--) {
+      builder.setCharAt(i, (char) ('0' + fraction % 10));
+      fraction /= 10;
+    }
+    return builder;
+  }
+}
@@ -7,13 +7,13 @@ public class BigDecimalConverter {
 
   public static BigDecimal parse(String value) throws InvalidBigDecimalException {
     try {
-      return new BigDecimal(value);
+      return BigDecimalCodec.parse(value);
     } catch (NumberFormatException cause) {
       throw new InvalidBigDecimalException(value, cause);
     }
   }
 
   public static String format(BigDecimal value) {
-    return value.toString();
+    return BigDecimalCodec.format(value);
   }
 }
@@ -0,0 +1,184 @@
+package com.cheemcheem.projects.energyusage.util.converter;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses and formats dates in the {@link LocalDateTimeConverter#CSV_PATTERN CSV} and {@link
+ * LocalDateTimeConverter#ISO_PATTERN ISO} patterns by hand, without the locks or intermediate
+ * objects of the formatters.
+ *
+ * Only dates the patterns describe exactly are handled here: two digit fields, a four digit year
+ * from 1 to 9999, and every field in range. Anything else is handed to the formatters, so the
+ * results are always the same as theirs, including the dates they correct such as 30/02 becoming
+ * the last day of February, and their errors.
+ *
+ * Dates can be parsed from part of a larger sequence of characters, and appended to a builder
+ * that is reused for many of them.
+ */
+public final class LocalDateTimeCodec {
+
+  public static final int CSV_LENGTH = LocalDateTimeConverter.CSV_PATTERN.length();
+  public static final int ISO_LENGTH = LocalDateTimeConverter.ISO_PATTERN.length();
+
+  static final DateTimeFormatter CSV_FORMAT = DateTimeFormatter
+      .ofPattern(LocalDateTimeConverter.CSV_PATTERN);
+  static final DateTimeFormatter ISO_FORMAT = DateTimeFormatter
+      .ofPattern(LocalDateTimeConverter.ISO_PATTERN);
+
+  private LocalDateTimeCodec() {
+  }
+
+  /**
+   * @throws DateTimeParseException if the text is not a date in the CSV pattern.
+   */
+  public static LocalDateTime parseCSV(CharSequence text) {
+    return parseCSV(text, 0, text.length());
+  }
+
+  /**
+   * Parses the characters from start, inclusive, to end, exclusive.
+   *
+   * @throws DateTimeParseException if they are not a date in the CSV pattern.
+   */
+  public static LocalDateTime parseCSV(CharSequence text, int start, int end) {
+    if (end - start == CSV_LENGTH
+        && text.charAt(start + 2) == '/'
+        && text.charAt(start + 5) == '/'
+        && text.charAt(start + 10) == ' '
+        && text.charAt(start + 13) == ':') {
+      var date = toLocalDateTime(
+          fourDigits(text, start + 6),
+          twoDigits(text, start + 3),
+          twoDigits(text, start),
+          twoDigits(text, start + 11),
+          twoDigits(text, start + 14),
+          0
+      );
+      if (date != null) {
+        return date;
+      }
+    }
+    return LocalDateTime.parse(text.subSequence(start, end), CSV_FORMAT);
+  }
+
+  /**
+   * @throws DateTimeParseException if the text is not a date in the ISO pattern.
+   */
+  public static LocalDateTime parseISO(CharSequence text) {
+    return parseISO(text, 0, text.length());
+  }
+
+  /**
+   * Parses the characters from start, inclusive, to end, exclusive.
+   *
+   * @throws DateTimeParseException if they are not a date in the ISO pattern.
+   */
+  public static LocalDateTime parseISO(CharSequence text, int start, int end) {
+    if (end - start == ISO_LENGTH
+        && text.charAt(start + 4) == '-'
+        && text.charAt(start + 7) == '-'
+        && text.charAt(start + 10) == ' '
+        && text.charAt(start + 13) == ':'
+        && text.charAt(start + 16) == ':') {
+      var date = toLocalDateTime(
+          fourDigits(text, start),
+          twoDigits(text, start + 5),
+          twoDigits(text, start + 8),
+          twoDigits(text, start + 11),
+          twoDigits(text, start + 14),
+          twoDigits(text, start + 17)
+      );
+      if (date != null) {
+        return date;
+      }
+    }
+    return LocalDateTime.parse(text.subSequence(start, end), ISO_FORMAT);
+  }
+
+  public static String formatCSV(LocalDateTime value) {
+    return appendCSV(value, new StringBuilder(CSV_LENGTH)).toString();
+  }
+
+  public static StringBuilder appendCSV(LocalDateTime value, StringBuilder builder) {
+    if (!hasFourDigitYear(value)) {
+      CSV_FORMAT.formatTo(value, builder);
+      return builder;
+    }
+    appendTwoDigits(builder, value.getDayOfMonth()).append('/');
+    appendTwoDigits(builder, value.getMonthValue()).append('/');
+    appendFourDigits(builder, value.getYear()).append(' ');
+    appendTwoDigits(builder, value.getHour()).append(':');
+    return appendTwoDigits(builder, value.getMinute());
+  }
+
+  public static String formatISO(LocalDateTime value) {
+    return appendISO(value, new StringBuilder(ISO_LENGTH)).toString();
+  }
+
+  public static StringBuilder appendISO(LocalDateTime value, StringBuilder builder) {
+    if (!hasFourDigitYear(value)) {
+      ISO_FORMAT.formatTo(value, builder);
+      return builder;
+    }
+    appendFourDigits(builder, value.getYear()).append('-');
+    appendTwoDigits(builder, value.getMonthValue()).append('-');
+    appendTwoDigits(builder, value.getDayOfMonth()).append(' ');
+    appendTwoDigits(builder, value.getHour()).append(':');
+    appendTwoDigits(builder, value.getMinute()).append(':');
+    return appendTwoDigits(builder, value.getSecond());
+  }
+
+  /**
+   * @return the date, or null if any field is missing or out of range.
+   */
+  private static LocalDateTime toLocalDateTime(int year, int month, int day, int hour, int minute,
+      int second) {
+    if (year < 1 || month < 1 || month > 12 || day < 1
+        || day > Month.of(month).length(Year.isLeap(year))
+        || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+      return null;
+    }
+    return LocalDateTime.of(year, month, day, hour, minute, second);
+  }
+
+  /**
+   * Years outside these are written with a sign, or as years of an era before the common one.
+   */
+  private static boolean hasFourDigitYear(LocalDateTime value) {
+    return value.getYear() >= 1 && value.getYear() <= 9999;
+  }
+
+  /**
+   * @return value of the two digits at the index, or a negative number if they are not digits.
+   */
+  private static int twoDigits(CharSequence text, int index) {
+    var tens = text.charAt(index) - '0';
+    var units = text.charAt(index + 1) - '0';
+    if (tens < 0 || tens > 9 || units < 0 || units > 9) {
+      return -1;
+    }
+    return tens * 10 + units;
+  }
+
+  private static int fourDigits(CharSequence text, int index) {
+    var hundreds = twoDigits(text, index);
+    var units = twoDigits(text, index + 2);
+    if (hundreds < 0 || units < 0) {
+      return -1;
+    }
+    return hundreds * 100 + units;
+  }
+
+  private static StringBuilder appendTwoDigits(StringBuilder builder, int value) {
+    return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+  }
+
+  private static StringBuilder appendFourDigits(StringBuilder builder, int value) {
+    appendTwoDigits(builder, value / 100);
+    return appendTwoDigits(builder, value % 100);
+  }
+}
@@ -1,22 +1,49 @@
 package com.cheemcheem.projects.energyusage.util.importer;
 
+import com.cheemcheem.projects.energyusage.exception.InvalidBigDecimalException;
+import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
 import com.cheemcheem.projects.energyusage.model.EnergyReading;
-import com.opencsv.bean.ColumnPositionMappingStrategy;
-import com.opencsv.bean.CsvToBeanBuilder;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Reads the readings of a meter export on the classpath.
+ *
+ * The file is split into chunks that start and end on line boundaries, and each chunk is memory
+ * mapped and parsed in parallel with {@link EnergyReadingsLineParser}, straight from the mapped
+ * bytes, so no more of the file than the chunks being parsed is ever copied onto the heap. Each
+ * chunk is sorted, and the chunks are then merged into date order.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class EnergyReadingsFileReader {
 
+  /**
+   * Chunks are no smaller than this, so small files are parsed in one, and no larger, so a
+   * mapping never gets near the 2GB a single one can hold.
+   */
+  static final long MIN_CHUNK_BYTES = 1 << 20;
+  static final long MAX_CHUNK_BYTES = 64 << 20;
+
+  private static final int CHUNKS_PER_THREAD = 4;
+
   @NonNull
   private final String csvPath;
   private String systemResource;
@@ -26,27 +53,270 @@ public class EnergyReadingsFileReader {
     log.debug("Initialised with {} to get {}.", this.csvPath, this.systemResource);
   }
 
+  /**
+   * @return bytes in the file, or 0 if there is none.
+   */
+  public long getSize() {
+    return this.systemResource == null ? 0 : new File(this.systemResource).length();
+  }
+
   public List<EnergyReading> getEnergyReadings() throws IOException {
+    return getEnergyReadings(bytes -> {
+    });
+  }
+
+  /**
+   * @param bytesRead told the bytes of each chunk once it has been parsed.
+   */
+  public List<EnergyReading> getEnergyReadings(LongConsumer bytesRead) throws IOException {
+    if (this.systemResource == null) {
+      throw new IllegalStateException(
+          "This instance has not been initialised successfully with initialise().");
+    }
     if (!new File(this.systemResource).exists()) {
       log.warn("No input.csv file found!");
       return Collections.emptyList();
     }
-    if (this.systemResource == null) {
-      throw new IllegalStateException(
-          "This instance has not been initialised successfully with initialise().");
+    var threads = Runtime.getRuntime().availableProcessors();
+    var chunkBytes = Math.min(MAX_CHUNK_BYTES,
+        Math.max(MIN_CHUNK_BYTES, getSize() / ((long) threads * CHUNKS_PER_THREAD)));
+    return readEnergyReadings(Path.of(this.systemResource), chunkBytes, bytesRead);
+  }
+
+  /**
+   * Reads the file in chunks of about the given number of bytes, moved on to the end of the line
+   * they finish in. Rows that cannot be parsed are logged and skipped.
+   *
+   * @return every reading of the file in date order.
+   */
+  public static List<EnergyReading> readEnergyReadings(Path path, long chunkBytes)
+      throws IOException {
+    return readEnergyReadings(path, chunkBytes, bytes -> {
+    });
+  }
+
+  /**
+   * @param bytesRead told the bytes of each chunk once it has been parsed.
+   */
+  public static List<EnergyReading> readEnergyReadings(Path path, long chunkBytes,
+      LongConsumer bytesRead) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var boundaries = findBoundaries(channel, chunkBytes);
+      log.debug("Reading {} in {} chunks.", path, boundaries.size() - 1);
+
+      List<List<EnergyReading>> chunks;
+      try {
+        chunks = IntStream.range(0, boundaries.size() - 1)
+            .parallel()
+            .mapToObj(chunk -> {
+              var start = boundaries.get(chunk);
+              var end = boundaries.get(chunk + 1);
+              var energyReadings = parseChunk(channel, start, end);
+              bytesRead.accept(end - start);
+              return energyReadings;
+            })
+            .collect(Collectors.toList());
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+
+      var energyReadings = merge(chunks);
+      log.info("Read {} energy readings from {}.", energyReadings.size(), path);
+      return energyReadings;
+    }
+  }
+
+  /**
+   * @return where each chunk starts, and the size of the file last.
+   */
+  private static List<Long> findBoundaries(FileChannel channel, long chunkBytes)
+      throws IOException {
+    var size = channel.size();
+    var boundaries = new ArrayList<Long>();
+    boundaries.add(0L);
+    var buffer = ByteBuffer.allocate(256);
+    var position = chunkBytes;
+    while (position < size) {
+      // move on to just after the next newline
+      var found = false;
+      while (!found && position < size) {
+        buffer.clear();
+        var read = channel.read(buffer, position);
+        for (int i = 0; i < read; i++) {
+          if (buffer.get(i) == '\n') {
+            position += i + 1;
+            found = true;
+            break;
+          }
+        }
+        if (!found) {
+          position += read;
+        }
+      }
+      if (position >= size) {
+        break;
+      }
+      boundaries.add(position);
+      position += chunkBytes;
+    }
+    boundaries.add(size);
+    return boundaries;
+  }
+
+  private static List<EnergyReading> parseChunk(FileChannel channel, long start, long end) {
+    ByteBuffer bytes;
+    try {
+      bytes = channel.map(MapMode.READ_ONLY, start, end - start);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    var text = new AsciiSequence(bytes);
+    var energyReadings = new ArrayList<EnergyReading>((int) ((end - start) / 24));
+
+    var lineStart = start == 0 ? skipByteOrderMark(bytes) : 0;
+    var length = text.length();
+    while (lineStart < length) {
+      var lineEnd = lineStart;
+      while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      var next = lineEnd + 1;
+      if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+        lineEnd--;
+      }
+
+      if (lineEnd > lineStart) {
+        try {
+          energyReadings.add(EnergyReadingsLineParser.parse(text, lineStart, lineEnd));
+        } catch (InvalidDateException | InvalidBigDecimalException e) {
+          log.warn("Skipping row at byte {}. Reason: {}", start + lineStart, e.getMessage());
+        }
+      }
+      lineStart = next;
+    }
+
+    // exports are usually in order already, one way or the other
+    if (!isSorted(energyReadings)) {
+      Collections.sort(energyReadings);
+    }
+    return energyReadings;
+  }
+
+  private static int skipByteOrderMark(ByteBuffer bytes) {
+    return bytes.limit() >= 3 && (bytes.get(0) & 0xFF) == 0xEF && (bytes.get(1) & 0xFF) == 0xBB
+        && (bytes.get(2) & 0xFF) == 0xBF ? 3 : 0;
+  }
+
+  private static boolean isSorted(List<EnergyReading> energyReadings) {
+    for (int i = 1; i < energyReadings.size(); i++) {
+      if (energyReadings.get(i - 1).compareTo(energyReadings.get(i)) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Merges sorted chunks, taking from the earliest chunk on ties so readings of the same date stay
+   * in file order. Chunks already in order are taken whole one after another.
+   */
+  private static List<EnergyReading> merge(List<List<EnergyReading>> chunks) {
+    var total = chunks.stream().mapToInt(List::size).sum();
+    var merged = new ArrayList<EnergyReading>(total);
+
+    var inOrder = true;
+    EnergyReading last = null;
+    for (var chunk : chunks) {
+      if (chunk.isEmpty()) {
+        continue;
+      }
+      if (last != null && last.compareTo(chunk.get(0)) > 0) {
+        inOrder = false;
+        break;
+      }
+      last = chunk.get(chunk.size() - 1);
+    }
+    if (inOrder) {
+      chunks.forEach(merged::addAll);
+      return Collections.unmodifiableList(merged);
+    }
+
+    var cursors = new PriorityQueue<Cursor>();
+    for (int chunk = 0; chunk < chunks.size(); chunk++) {
+      if (!chunks.get(chunk).isEmpty()) {
+        cursors.add(new Cursor(chunks.get(chunk), chunk));
+      }
+    }
+    while (!cursors.isEmpty()) {
+      var cursor = cursors.poll();
+      merged.add(cursor.current());
+      if (cursor.advance()) {
+        cursors.add(cursor);
+      }
+    }
+    return Collections.unmodifiableList(merged);
+  }
+
+  private static class Cursor implements Comparable<Cursor> {
+
+    private final List<EnergyReading> chunk;
+    private final int order;
+    private int position;
+
+    private Cursor(List<EnergyReading> chunk, int order) {
+      this.chunk = chunk;
+      this.order = order;
     }
-    var mappingStrategy = new ColumnPositionMappingStrategy<EnergyReading>();
-    mappingStrategy.setType(EnergyReading.class);
 
-    var reader = Files.newBufferedReader(Path.of(this.systemResource));
-    var csvToBean = new CsvToBeanBuilder<EnergyReading>(reader)
-        .withType(EnergyReading.class)
-        .withMappingStrategy(mappingStrategy)
-        .build();
+    private EnergyReading current() {
+      return this.chunk.get(this.position);
+    }
+
+    private boolean advance() {
+      return ++this.position < this.chunk.size();
+    }
 
-    var list = List.copyOf(csvToBean.parse());
-    reader.close();
-    return list;
+    @Override
+    public int compareTo(Cursor o) {
+      var byDate = current().compareTo(o.current());
+      return byDate != 0 ? byDate : Integer.compare(this.order, o.order);
+    }
   }
 
+  /**
+   * Mapped bytes of a file, read as characters one byte each. Rows only need ASCII, and anything
+   * else fails to parse as it would have anyway.
+   */
+  private static class AsciiSequence implements CharSequence {
+
+    private final ByteBuffer bytes;
+
+    private AsciiSequence(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int length() {
+      return this.bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (this.bytes.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      var copy = new byte[end - start];
+      var slice = this.bytes.duplicate();
+      slice.position(start);
+      slice.get(copy);
+      return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+      return subSequence(0, length()).toString();
+    }
+  }
 }
@@ -0,0 +1,74 @@
+package com.cheemcheem.projects.energyusage.util.importer;
+
+import com.cheemcheem.projects.energyusage.exception.InvalidBigDecimalException;
+import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.util.converter.BigDecimalCodec;
+import com.cheemcheem.projects.energyusage.util.converter.LocalDateTimeCodec;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses one {@code dd/MM/yyyy HH:mm,reading} row of a meter export at a time, straight from the
+ * characters of the row without splitting it into strings first. Columns may be padded with
+ * spaces or quoted.
+ */
+public class EnergyReadingsLineParser {
+
+  private EnergyReadingsLineParser() {
+  }
+
+  public static EnergyReading parse(CharSequence line)
+      throws InvalidDateException, InvalidBigDecimalException {
+    return parse(line, 0, line.length());
+  }
+
+  /**
+   * Parses the characters from start, inclusive, to end, exclusive.
+   */
+  public static EnergyReading parse(CharSequence line, int start, int end)
+      throws InvalidDateException, InvalidBigDecimalException {
+    var comma = start;
+    while (comma < end && line.charAt(comma) != ',') {
+      comma++;
+    }
+
+    var dateStart = skipOpening(line, start, comma);
+    var dateEnd = skipClosing(line, dateStart, comma);
+    var readingStart = skipOpening(line, Math.min(comma + 1, end), end);
+    var readingEnd = skipClosing(line, readingStart, end);
+
+    try {
+      return new EnergyReading(
+          parseDate(line, dateStart, dateEnd),
+          BigDecimalCodec.parse(line, readingStart, readingEnd)
+      );
+    } catch (NumberFormatException cause) {
+      throw new InvalidBigDecimalException(
+          line.subSequence(readingStart, readingEnd).toString(), cause);
+    }
+  }
+
+  private static LocalDateTime parseDate(CharSequence line, int start, int end)
+      throws InvalidDateException {
+    try {
+      return LocalDateTimeCodec.parseCSV(line, start, end);
+    } catch (DateTimeParseException cause) {
+      throw new InvalidDateException(line.subSequence(start, end).toString(), cause);
+    }
+  }
+
+  private static int skipOpening(CharSequence line, int start, int end) {
+    while (start < end && line.charAt(start) == ' ') {
+      start++;
+    }
+    return start < end && line.charAt(start) == '"' ? start + 1 : start;
+  }
+
+  private static int skipClosing(CharSequence line, int start, int end) {
+    while (end > start && line.charAt(end - 1) == ' ') {
+      end--;
+    }
+    return end > start && line.charAt(end - 1) == '"' ? end - 1 : end;
+  }
+}
@@ -0,0 +1,310 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Optional;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Readings of a single user in date order, with the spending ranges between them kept up to date
+ * as readings are added, instead of being worked out again from every reading.
+ *
+ * Ranges follow the same rules as {@link
+ * com.cheemcheem.projects.energyusage.util.mapper.EnergyReadingsMapper}: one range for each pair of
+ * consecutive readings, except where the meter went up.
+ *
+ * Adding a reading after the last one appends at most one range, and adding one anywhere else only
+ * replaces the range between its two neighbours. Each {@link #getIndex() index} is a snapshot that
+ * later readings do not change, so it can be shared while more readings are added.
+ *
+ * Only readings that all have the same, non negative scale and distinct dates precise to the
+ * millisecond can be held, so that the ranges are exactly those the mapper would give. This class
+ * is not thread safe.
+ */
+public class EnergyReadingColumns {
+
+  private static final long BYTES_PER_READING = 2 * Long.BYTES;
+
+  private static final long BYTES_PER_RANGE = 4 * Long.BYTES;
+
+  /**
+   * Scale of every reading, taken from the first one added.
+   */
+  private int scale = 0;
+
+  private long[] dates;
+  private long[] readings;
+  private int readingCount;
+
+  private long[] startDates;
+  private long[] endDates;
+  private long[] usages;
+
+  /**
+   * cumulativeUsage[i] is the total usage of ranges [0, i).
+   */
+  private long[] cumulativeUsage;
+  private int rangeCount;
+
+  private SpendingRangeColumnIndex index;
+
+  private EnergyReadingColumns(int capacity) {
+    this.dates = new long[capacity];
+    this.readings = new long[capacity];
+    this.startDates = new long[capacity];
+    this.endDates = new long[capacity];
+    this.usages = new long[capacity];
+    this.cumulativeUsage = new long[capacity + 1];
+    publish();
+  }
+
+  /**
+   * @return the readings in columns, or empty if they cannot all be held.
+   */
+  public static Optional<EnergyReadingColumns> of(Collection<EnergyReading> energyReadings) {
+    var sorted = energyReadings.stream()
+        .sorted(Comparator.comparing(EnergyReading::getDate))
+        .toArray(EnergyReading[]::new);
+
+    var energyReadingColumns = new EnergyReadingColumns(Math.max(sorted.length, 1));
+    for (var energyReading : sorted) {
+      if (!energyReadingColumns.add(energyReading.getDate(), energyReading.getReading())) {
+        return Optional.empty();
+      }
+    }
+    return Optional.of(energyReadingColumns);
+  }
+
+  /**
+   * @return columns of readings copied out with {@link #getReadings()}, or empty if they cannot all
+   * be held, as they were not from columns to begin with.
+   */
+  public static Optional<EnergyReadingColumns> of(Readings copied) {
+    var dates = copied.getDates();
+    var readings = copied.getReadings();
+    if (copied.getScale() < 0 || dates.length != readings.length) {
+      return Optional.empty();
+    }
+
+    var energyReadingColumns = new EnergyReadingColumns(Math.max(dates.length, 1));
+    energyReadingColumns.scale = copied.getScale();
+    try {
+      for (int i = 0; i < dates.length; i++) {
+        if (dates[i] == Long.MIN_VALUE || dates[i] == Long.MAX_VALUE
+            || (i > 0 && dates[i] <= dates[i - 1])) {
+          return Optional.empty();
+        }
+        energyReadingColumns.append(dates[i], readings[i]);
+      }
+    } catch (ArithmeticException e) {
+      return Optional.empty();
+    }
+    energyReadingColumns.publish();
+    return Optional.of(energyReadingColumns);
+  }
+
+  /**
+   * @return whether the reading was added, or false if it cannot be held, in which case nothing
+   * has changed. Readings are never added twice for the same date, which also catches a reading
+   * that was already loaded when the columns were built.
+   */
+  public boolean add(LocalDateTime date, BigDecimal reading) {
+    var scale = this.readingCount == 0 ? reading.scale() : this.scale;
+    if (reading.scale() != scale || scale < 0 || date.getNano() % 1_000_000 != 0) {
+      return false;
+    }
+
+    var epochMilli = SpendingRangeColumns.toEpochMilli(date);
+    if (epochMilli == Long.MIN_VALUE || epochMilli == Long.MAX_VALUE
+        || reading.unscaledValue().bitLength() >= Long.SIZE) {
+      return false;
+    }
+    var unscaled = reading.unscaledValue().longValue();
+
+    var position = SpendingRangeIndex
+        .search(0, this.readingCount, i -> this.dates[i] < epochMilli);
+    if (position < this.readingCount && this.dates[position] == epochMilli) {
+      return false;
+    }
+
+    try {
+      if (position == this.readingCount) {
+        append(epochMilli, unscaled);
+      } else {
+        insert(position, epochMilli, unscaled);
+      }
+    } catch (ArithmeticException e) {
+      return false;
+    }
+    this.scale = scale;
+    publish();
+    return true;
+  }
+
+  /**
+   * @return ranges and running total as of the last reading added.
+   */
+  public SpendingRangeColumnIndex getIndex() {
+    return this.index;
+  }
+
+  public int getReadingCount() {
+    return this.readingCount;
+  }
+
+  /**
+   * @return a copy of the readings, which later readings do not change.
+   */
+  public Readings getReadings() {
+    return new Readings(this.scale, Arrays.copyOf(this.dates, this.readingCount),
+        Arrays.copyOf(this.readings, this.readingCount));
+  }
+
+  /**
+   * @return rough number of bytes held by the readings, ranges and running total.
+   */
+  public long estimatedBytes() {
+    return BYTES_PER_READING * this.dates.length + BYTES_PER_RANGE * this.startDates.length;
+  }
+
+  private void append(long date, long reading) {
+    if (this.readingCount > 0) {
+      var lastDate = this.dates[this.readingCount - 1];
+      var lastReading = this.readings[this.readingCount - 1];
+      if (reading <= lastReading) {
+        var usage = Math.subtractExact(lastReading, reading);
+        var cumulative = Math.addExact(this.cumulativeUsage[this.rangeCount], usage);
+        // writes past the end of the last snapshot, which never reads there
+        ensureRangeCapacity(this.rangeCount + 1);
+        this.startDates[this.rangeCount] = lastDate;
+        this.endDates[this.rangeCount] = date;
+        this.usages[this.rangeCount] = usage;
+        this.cumulativeUsage[this.rangeCount + 1] = cumulative;
+        this.rangeCount++;
+      }
+    }
+    insertReading(this.readingCount, date, reading);
+  }
+
+  /**
+   * Replaces the range between the neighbours of the reading, if there was one, with the ranges
+   * from each neighbour to it. Ranges after it move along, so they are copied into new arrays that
+   * earlier snapshots do not see.
+   */
+  private void insert(int position, long date, long reading) {
+    // the first range starting at or after the previous reading, which is where any new ranges go
+    var rangePosition = position == 0
+        ? 0
+        : SpendingRangeIndex.search(0, this.rangeCount,
+            i -> this.startDates[i] < this.dates[position - 1]);
+
+    var newStartDates = new long[2];
+    var newEndDates = new long[2];
+    var newUsages = new long[2];
+    var newRanges = 0;
+    var removed = 0;
+
+    if (position > 0) {
+      var previousDate = this.dates[position - 1];
+      var previousReading = this.readings[position - 1];
+      if (this.readings[position] <= previousReading) {
+        // this range is now split in two by the new reading
+        removed = 1;
+      }
+      if (reading <= previousReading) {
+        newStartDates[newRanges] = previousDate;
+        newEndDates[newRanges] = date;
+        newUsages[newRanges] = Math.subtractExact(previousReading, reading);
+        newRanges++;
+      }
+    }
+    var nextReading = this.readings[position];
+    if (nextReading <= reading) {
+      newStartDates[newRanges] = date;
+      newEndDates[newRanges] = this.dates[position];
+      newUsages[newRanges] = Math.subtractExact(reading, nextReading);
+      newRanges++;
+    }
+
+    var rangeCount = this.rangeCount - removed + newRanges;
+    var capacity = grow(rangeCount);
+    var startDates = Arrays.copyOf(this.startDates, capacity);
+    var endDates = Arrays.copyOf(this.endDates, capacity);
+    var usages = Arrays.copyOf(this.usages, capacity);
+    var cumulativeUsage = Arrays.copyOf(this.cumulativeUsage, capacity + 1);
+
+    var tail = this.rangeCount - rangePosition - removed;
+    var from = rangePosition + removed;
+    var to = rangePosition + newRanges;
+    System.arraycopy(this.startDates, from, startDates, to, tail);
+    System.arraycopy(this.endDates, from, endDates, to, tail);
+    System.arraycopy(this.usages, from, usages, to, tail);
+    System.arraycopy(newStartDates, 0, startDates, rangePosition, newRanges);
+    System.arraycopy(newEndDates, 0, endDates, rangePosition, newRanges);
+    System.arraycopy(newUsages, 0, usages, rangePosition, newRanges);
+    for (int i = rangePosition; i < rangeCount; i++) {
+      cumulativeUsage[i + 1] = Math.addExact(cumulativeUsage[i], usages[i]);
+    }
+
+    this.startDates = startDates;
+    this.endDates = endDates;
+    this.usages = usages;
+    this.cumulativeUsage = cumulativeUsage;
+    this.rangeCount = rangeCount;
+    insertReading(position, date, reading);
+  }
+
+  private void insertReading(int position, long date, long reading) {
+    if (this.readingCount == this.dates.length) {
+      var capacity = grow(this.readingCount + 1);
+      this.dates = Arrays.copyOf(this.dates, capacity);
+      this.readings = Arrays.copyOf(this.readings, capacity);
+    }
+    // readings are only read here, so they can be moved along in place
+    System.arraycopy(this.dates, position, this.dates, position + 1,
+        this.readingCount - position);
+    System.arraycopy(this.readings, position, this.readings, position + 1,
+        this.readingCount - position);
+    this.dates[position] = date;
+    this.readings[position] = reading;
+    this.readingCount++;
+  }
+
+  private void ensureRangeCapacity(int rangeCount) {
+    if (rangeCount > this.startDates.length) {
+      var capacity = grow(rangeCount);
+      this.startDates = Arrays.copyOf(this.startDates, capacity);
+      this.endDates = Arrays.copyOf(this.endDates, capacity);
+      this.usages = Arrays.copyOf(this.usages, capacity);
+      this.cumulativeUsage = Arrays.copyOf(this.cumulativeUsage, capacity + 1);
+    }
+  }
+
+  private static int grow(int size) {
+    return size + (size >> 1) + 1;
+  }
+
+  private void publish() {
+    var columns = new SpendingRangeColumns(this.startDates, this.endDates, this.usages, null,
+        this.scale, this.rangeCount);
+    this.index = new SpendingRangeColumnIndex(columns, this.cumulativeUsage,
+        UsageScales.uniform(this.scale));
+  }
+
+  /**
+   * Readings in date order, as epoch milliseconds and unscaled values of the same scale.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  public static class Readings {
+
+    private final int scale;
+    private final long[] dates;
+    private final long[] readings;
+  }
+}
@@ -0,0 +1,160 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import com.cheemcheem.projects.energyusage.util.index.EnergyReadingColumns.Readings;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reads and writes the readings of {@link EnergyReadingColumns} of many users in one binary file,
+ * so their spending ranges can be built again without loading any readings from the database.
+ *
+ * The file is a header of a magic number, the format version and the number of entries, then for
+ * each entry its user id, the latest reading id and number of readings it was saved with, the
+ * scale, and its dates and unscaled readings as two runs of longs. It ends with a CRC32 of
+ * everything before it. Files are written to the side and moved into place, so a file is either
+ * whole or the previous one.
+ */
+public final class IndexSnapshot {
+
+  static final int MAGIC = 0x45555358;
+
+  static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_BYTES = 3 * Integer.BYTES;
+
+  private static final int ENTRY_HEADER_BYTES = 5 * Integer.BYTES;
+
+  private IndexSnapshot() {
+  }
+
+  public static void write(Path path, Collection<Entry> entries) throws IOException {
+    var directory = path.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    var temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+    try {
+      var checksum = new CRC32();
+      try (var output = new DataOutputStream(new BufferedOutputStream(
+          new CheckedOutputStream(Files.newOutputStream(temporary), checksum), 1 << 16))) {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(entries.size());
+        for (var entry : entries) {
+          var readings = entry.getReadings();
+          output.writeInt(entry.getUserId());
+          output.writeInt(entry.getLatestEnergyReadingId());
+          output.writeInt(entry.getEnergyReadingCount());
+          output.writeInt(readings.getScale());
+          output.writeInt(readings.getDates().length);
+          for (var date : readings.getDates()) {
+            output.writeLong(date);
+          }
+          for (var reading : readings.getReadings()) {
+            output.writeLong(reading);
+          }
+        }
+        // the checksum does not cover itself, as it is only taken once everything else is written
+        output.flush();
+        output.writeLong(checksum.getValue());
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Maps the file into memory and copies out the readings of each entry.
+   *
+   * @throws IOException if the file cannot be read, is of another format version, or does not
+   *                     match its checksum.
+   */
+  public static List<Entry> read(Path path) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var size = channel.size();
+      if (size < HEADER_BYTES + Long.BYTES || size > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot " + path + " of " + size + " bytes is not a snapshot.");
+      }
+      var bytes = channel.map(MapMode.READ_ONLY, 0, size);
+
+      var body = bytes.duplicate();
+      body.limit((int) size - Long.BYTES);
+      var checksum = new CRC32();
+      checksum.update(body);
+      if (checksum.getValue() != bytes.getLong((int) size - Long.BYTES)) {
+        throw new IOException("Snapshot " + path + " does not match its checksum.");
+      }
+
+      bytes.limit((int) size - Long.BYTES);
+      if (bytes.getInt() != MAGIC) {
+        throw new IOException("Snapshot " + path + " is not a snapshot.");
+      }
+      var formatVersion = bytes.getInt();
+      if (formatVersion != FORMAT_VERSION) {
+        throw new IOException("Snapshot " + path + " is of format version " + formatVersion
+            + ", not " + FORMAT_VERSION + ".");
+      }
+      var entryCount = bytes.getInt();
+      var entries = new ArrayList<Entry>(Math.max(0, Math.min(entryCount, 1024)));
+      for (int i = 0; i < entryCount; i++) {
+        entries.add(readEntry(bytes, path));
+      }
+      if (bytes.hasRemaining()) {
+        throw new IOException("Snapshot " + path + " has bytes after its last entry.");
+      }
+      return entries;
+    }
+  }
+
+  private static Entry readEntry(ByteBuffer bytes, Path path) throws IOException {
+    if (bytes.remaining() < ENTRY_HEADER_BYTES) {
+      throw new IOException("Snapshot " + path + " ends part way through an entry.");
+    }
+    var userId = bytes.getInt();
+    var latestEnergyReadingId = bytes.getInt();
+    var energyReadingCount = bytes.getInt();
+    var scale = bytes.getInt();
+    var count = bytes.getInt();
+    if (count < 0 || bytes.remaining() / (2 * Long.BYTES) < count) {
+      throw new IOException("Snapshot " + path + " has an entry of " + count
+          + " readings that does not fit in it.");
+    }
+
+    var dates = new long[count];
+    var readings = new long[count];
+    var longs = bytes.asLongBuffer();
+    longs.get(dates);
+    longs.get(readings);
+    bytes.position(bytes.position() + 2 * Long.BYTES * count);
+    return new Entry(userId, latestEnergyReadingId, energyReadingCount,
+        new Readings(scale, dates, readings));
+  }
+
+  /**
+   * Readings of a user, with what the database held for them when they were saved.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  public static class Entry {
+
+    private final int userId;
+    private final int latestEnergyReadingId;
+    private final int energyReadingCount;
+    private final Readings readings;
+  }
+}
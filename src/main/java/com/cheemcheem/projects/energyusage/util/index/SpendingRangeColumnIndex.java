@@ -0,0 +1,149 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link SpendingRangeIndex} over {@link SpendingRangeColumns}, with a running total of unscaled
+ * usages.
+ *
+ * Searches compare epoch milliseconds directly, so ranges are only created for the positions a
+ * caller asks for.
+ */
+public class SpendingRangeColumnIndex extends SpendingRangeIndex {
+
+  /**
+   * Three columns, a scale and a running total.
+   */
+  private static final long BYTES_PER_RANGE = 4 * Long.BYTES + 1;
+
+  private final SpendingRangeColumns columns;
+
+  /**
+   * cumulativeUsage[i] is the total unscaled usage of columns[0, i).
+   */
+  private final long[] cumulativeUsage;
+
+  private final UsageScales usageScales;
+
+  private final boolean endDatesSorted;
+
+  private final long latestEndDate;
+
+  /**
+   * @throws ArithmeticException if the total usage does not fit in a long.
+   */
+  public SpendingRangeColumnIndex(SpendingRangeColumns columns) {
+    this.columns = columns;
+
+    var size = columns.size();
+    this.cumulativeUsage = new long[size + 1];
+
+    var sortedEnds = true;
+    var latest = Long.MIN_VALUE;
+    for (int i = 0; i < size; i++) {
+      this.cumulativeUsage[i + 1] = Math
+          .addExact(this.cumulativeUsage[i], columns.getUnscaledUsage(i));
+      if (i > 0 && columns.getEndDate(i) < latest) {
+        sortedEnds = false;
+      } else {
+        latest = columns.getEndDate(i);
+      }
+    }
+    this.endDatesSorted = sortedEnds;
+    this.latestEndDate = latest;
+    this.usageScales = new UsageScales(size, columns::getUsageScale);
+  }
+
+  /**
+   * Index with a running total that has already been worked out, for ranges between consecutive
+   * readings, whose end dates are always sorted.
+   *
+   * @param cumulativeUsage running total of the columns, of which only the first size + 1 elements
+   *                        are read.
+   */
+  SpendingRangeColumnIndex(SpendingRangeColumns columns, long[] cumulativeUsage,
+      UsageScales usageScales) {
+    this.columns = columns;
+    this.cumulativeUsage = cumulativeUsage;
+    this.usageScales = usageScales;
+    this.endDatesSorted = true;
+    this.latestEndDate = columns.isEmpty()
+        ? Long.MIN_VALUE
+        : columns.getEndDate(columns.size() - 1);
+  }
+
+  public SpendingRangeColumns getColumns() {
+    return this.columns;
+  }
+
+  @Override
+  public int size() {
+    return this.columns.size();
+  }
+
+  @Override
+  public SpendingRange get(int index) {
+    return this.columns.get(index);
+  }
+
+  @Override
+  public List<SpendingRange> subList(int from, int to) {
+    return Collections.unmodifiableList(this.columns.subList(from, to));
+  }
+
+  @Override
+  public LocalDateTime earliestStartDate() {
+    return size() == 0 ? null : SpendingRangeColumns.toLocalDateTime(this.columns.getStartDate(0));
+  }
+
+  @Override
+  public LocalDateTime latestEndDate() {
+    return size() == 0 ? null : SpendingRangeColumns.toLocalDateTime(this.latestEndDate);
+  }
+
+  @Override
+  public long estimatedBytes() {
+    return BYTES_PER_RANGE * (size() + 1);
+  }
+
+  @Override
+  public boolean isSearchable() {
+    return this.endDatesSorted;
+  }
+
+  @Override
+  public BigDecimal usageBetween(int from, int to) {
+    if (from >= to) {
+      return BigDecimal.ZERO;
+    }
+    var usage = BigDecimal.valueOf(unscaledUsageBetween(from, to), this.columns.getUsageScale());
+    var scale = this.usageScales.sumScale(from, to);
+    // only ever removes trailing zeros left over from the larger scales of other ranges
+    return usage.scale() == scale ? usage : usage.setScale(scale, RoundingMode.UNNECESSARY);
+  }
+
+  /**
+   * @return total usage of the ranges in [from, to) at the usage scale of the columns.
+   */
+  public long unscaledUsageBetween(int from, int to) {
+    return from >= to ? 0 : this.cumulativeUsage[to] - this.cumulativeUsage[from];
+  }
+
+  @Override
+  protected int firstEndingNotBefore(LocalDateTime date, int from) {
+    var epochMilli = SpendingRangeColumns.toEpochMilliCeiling(date);
+    return search(from, size(), i -> this.columns.getEndDate(i) < epochMilli);
+  }
+
+  @Override
+  protected int firstStartingAfter(LocalDateTime date, int from) {
+    var epochMilli = SpendingRangeColumns.toEpochMilli(date);
+    return search(from, size(), i -> this.columns.getStartDate(i) <= epochMilli);
+  }
+
+}
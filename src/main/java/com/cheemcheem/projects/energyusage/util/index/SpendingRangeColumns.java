@@ -0,0 +1,252 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+
+/**
+ * Spending ranges sorted by start date, held as parallel primitive columns instead of objects.
+ *
+ * Dates are epoch milliseconds in UTC and usages are unscaled longs at a single {@link
+ * #getUsageScale() usage scale}. The original scale of each usage is kept as well when they
+ * differ, so ranges read back out are equal to the ones that went in, as long as their dates had
+ * no parts smaller than a millisecond.
+ *
+ * This is a read only {@link java.util.List} of {@link SpendingRange}s, but each range is only
+ * created when it is asked for.
+ */
+public class SpendingRangeColumns extends AbstractList<SpendingRange> implements RandomAccess {
+
+  private final long[] startDates;
+  private final long[] endDates;
+  private final long[] usages;
+
+  /**
+   * Scale of each usage, or null if they all have the usage scale of the columns.
+   */
+  private final byte[] usageScales;
+
+  private final int usageScale;
+
+  private final int size;
+
+  /**
+   * Takes the arrays as they are, the columns only ever read the first size elements of them.
+   */
+  SpendingRangeColumns(long[] startDates, long[] endDates, long[] usages,
+      byte[] usageScales, int usageScale, int size) {
+    this.startDates = startDates;
+    this.endDates = endDates;
+    this.usages = usages;
+    this.usageScales = usageScales;
+    this.usageScale = usageScale;
+    this.size = size;
+  }
+
+  /**
+   * @throws ArithmeticException if a usage does not fit in a long at the largest scale of them.
+   */
+  public static SpendingRangeColumns of(Collection<SpendingRange> spendingRanges) {
+    var sorted = new ArrayList<>(spendingRanges);
+    sorted.sort(Comparator.comparing(SpendingRange::getStartDate));
+
+    var usageScale = sorted.stream()
+        .mapToInt(spendingRange -> spendingRange.getUsage().scale())
+        .max()
+        .orElse(0);
+
+    var builder = new Builder(usageScale, sorted.size());
+    for (var spendingRange : sorted) {
+      var usage = spendingRange.getUsage();
+      builder.add(
+          toEpochMilli(spendingRange.getStartDate()),
+          toEpochMilli(spendingRange.getEndDate()),
+          usage.setScale(builder.usageScale).unscaledValue().longValueExact(),
+          usage.scale()
+      );
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return epoch milliseconds of the date, rounded down and saturated at the range of a long.
+   */
+  public static long toEpochMilli(LocalDateTime date) {
+    var seconds = date.toEpochSecond(ZoneOffset.UTC);
+    if (seconds >= Long.MAX_VALUE / 1000) {
+      return Long.MAX_VALUE;
+    }
+    if (seconds <= Long.MIN_VALUE / 1000) {
+      return Long.MIN_VALUE;
+    }
+    return seconds * 1000 + date.getNano() / 1_000_000;
+  }
+
+  /**
+   * @return epoch milliseconds of the date, rounded up.
+   */
+  public static long toEpochMilliCeiling(LocalDateTime date) {
+    var epochMilli = toEpochMilli(date);
+    return date.getNano() % 1_000_000 == 0 || epochMilli == Long.MAX_VALUE
+        ? epochMilli
+        : epochMilli + 1;
+  }
+
+  public static LocalDateTime toLocalDateTime(long epochMilli) {
+    return LocalDateTime.ofEpochSecond(
+        Math.floorDiv(epochMilli, 1000),
+        Math.floorMod(epochMilli, 1000) * 1_000_000,
+        ZoneOffset.UTC
+    );
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public SpendingRange get(int index) {
+    return new SpendingRange(
+        toLocalDateTime(getStartDate(index)),
+        toLocalDateTime(getEndDate(index)),
+        getUsage(index)
+    );
+  }
+
+  public long getStartDate(int index) {
+    return this.startDates[checkIndex(index)];
+  }
+
+  public long getEndDate(int index) {
+    return this.endDates[checkIndex(index)];
+  }
+
+  /**
+   * @return usage at the {@link #getUsageScale() usage scale} of the columns.
+   */
+  public long getUnscaledUsage(int index) {
+    return this.usages[checkIndex(index)];
+  }
+
+  public BigDecimal getUsage(int index) {
+    var usage = BigDecimal.valueOf(getUnscaledUsage(index), this.usageScale);
+    if (this.usageScales == null || this.usageScales[index] == this.usageScale) {
+      return usage;
+    }
+    return usage.setScale(this.usageScales[index], RoundingMode.UNNECESSARY);
+  }
+
+  public int getUsageScale() {
+    return this.usageScale;
+  }
+
+  /**
+   * @return scale the usage had before it was put in the columns.
+   */
+  public int getUsageScale(int index) {
+    return this.usageScales == null ? this.usageScale : this.usageScales[checkIndex(index)];
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+    return index;
+  }
+
+  /**
+   * Appends ranges in start date order.
+   */
+  public static class Builder {
+
+    private final int usageScale;
+    private long[] startDates;
+    private long[] endDates;
+    private long[] usages;
+    private byte[] usageScales;
+    private int size;
+
+    /**
+     * @param usageScale scale of the unscaled usages that will be added, at least as large as
+     *                   any of their original scales.
+     */
+    public Builder(int usageScale, int expectedSize) {
+      this.usageScale = Math.max(0, usageScale);
+      var capacity = Math.max(expectedSize, 1);
+      this.startDates = new long[capacity];
+      this.endDates = new long[capacity];
+      this.usages = new long[capacity];
+    }
+
+    /**
+     * @param unscaledUsage usage at the scale given to this builder.
+     * @param scale         scale the usage originally had.
+     * @throws ArithmeticException      if the original scale cannot be kept.
+     * @throws IllegalArgumentException if the range starts before the last one added.
+     */
+    public Builder add(long startDate, long endDate, long unscaledUsage, int scale) {
+      if (this.size > 0 && startDate < this.startDates[this.size - 1]) {
+        throw new IllegalArgumentException("Spending ranges must be added in start date order.");
+      }
+      if (scale > this.usageScale) {
+        throw new ArithmeticException(
+            "Scale " + scale + " is larger than usage scale " + this.usageScale + ".");
+      }
+      if (this.size == this.startDates.length) {
+        var capacity = this.size + (this.size >> 1) + 1;
+        this.startDates = Arrays.copyOf(this.startDates, capacity);
+        this.endDates = Arrays.copyOf(this.endDates, capacity);
+        this.usages = Arrays.copyOf(this.usages, capacity);
+        if (this.usageScales != null) {
+          this.usageScales = Arrays.copyOf(this.usageScales, capacity);
+        }
+      }
+      if (this.usageScales == null && scale != this.usageScale) {
+        this.usageScales = new byte[this.startDates.length];
+        Arrays.fill(this.usageScales, 0, this.size, toByte(this.usageScale));
+      }
+
+      this.startDates[this.size] = startDate;
+      this.endDates[this.size] = endDate;
+      this.usages[this.size] = unscaledUsage;
+      if (this.usageScales != null) {
+        this.usageScales[this.size] = toByte(scale);
+      }
+      this.size++;
+      return this;
+    }
+
+    public SpendingRangeColumns build() {
+      return new SpendingRangeColumns(
+          trim(this.startDates),
+          trim(this.endDates),
+          trim(this.usages),
+          this.usageScales == null || this.usageScales.length == this.size
+              ? this.usageScales
+              : Arrays.copyOf(this.usageScales, this.size),
+          this.usageScale,
+          this.size
+      );
+    }
+
+    private long[] trim(long[] column) {
+      return column.length == this.size ? column : Arrays.copyOf(column, this.size);
+    }
+
+    private static byte toByte(int scale) {
+      if (scale != (byte) scale) {
+        throw new ArithmeticException("Scale " + scale + " is too large to keep in columns.");
+      }
+      return (byte) scale;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntPredicate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cumulative usage index over spending ranges sorted by start date.
+ *
+ * Finds the ranges overlapping a request with two searches and totals any run of consecutive
+ * ranges with a single subtraction, so a request costs O(log n) however many ranges it covers.
+ *
+ * Totals have the same value and scale as adding the ranges one by one to {@link BigDecimal#ZERO},
+ * so callers get exactly the results a linear sum would give them.
+ *
+ * Series of requests that move forward through time can use a {@link #sweep()} instead, which
+ * walks the ranges once alongside the requests.
+ *
+ * @see SpendingRangeListIndex for ranges held as objects
+ * @see SpendingRangeColumnIndex for ranges held as {@link SpendingRangeColumns}
+ */
+@Slf4j
+public abstract class SpendingRangeIndex implements SpendingRangeSearch {
+
+  /**
+   * Indexes {@link SpendingRangeColumns} without materialising them, and anything else as objects.
+   */
+  public static SpendingRangeIndex of(Collection<SpendingRange> spendingRanges) {
+    if (spendingRanges instanceof SpendingRangeColumns) {
+      try {
+        return new SpendingRangeColumnIndex((SpendingRangeColumns) spendingRanges);
+      } catch (ArithmeticException e) {
+        log.warn("Total usage does not fit in columns, indexing as objects instead.", e);
+      }
+    }
+    return new SpendingRangeListIndex(spendingRanges);
+  }
+
+  /**
+   * @return index of the first position in [from, size) at which the predicate stops holding,
+   * given that it holds for some prefix of the positions. Searches outwards from the given
+   * position, and starts again from 0 if the predicate no longer holds just before it.
+   */
+  static int search(int from, int size, IntPredicate holds) {
+    if (from > 0 && !holds.test(from - 1)) {
+      from = 0;
+    }
+
+    // gallop forward to find an upper bound, then binary search below it
+    int low = from;
+    int high = from;
+    long step = 1;
+    while (high < size && holds.test(high)) {
+      low = high + 1;
+      high = (int) Math.min(size, low + step);
+      step <<= 1;
+    }
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (holds.test(middle)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  public abstract int size();
+
+  /**
+   * @return the range at the given position, which may be created on demand.
+   */
+  public abstract SpendingRange get(int index);
+
+  /**
+   * @return read only view of the ranges in [from, to), without copying them.
+   */
+  public abstract List<SpendingRange> subList(int from, int to);
+
+  /**
+   * @return start date of the first range, or null if there are no ranges.
+   */
+  public abstract LocalDateTime earliestStartDate();
+
+  /**
+   * @return latest end date of any range, or null if there are no ranges.
+   */
+  public abstract LocalDateTime latestEndDate();
+
+  /**
+   * Searches are only valid when end dates are in the same order as start dates, which is always
+   * the case for ranges built from consecutive readings.
+   *
+   * @return whether the ranges overlapping a request always form a contiguous run of this index.
+   */
+  public abstract boolean isSearchable();
+
+  /**
+   * @return total usage of the ranges in [from, to), with the scale a linear sum would have.
+   */
+  public abstract BigDecimal usageBetween(int from, int to);
+
+  /**
+   * @return index of the first range at or after from that does not end before the given date.
+   * @see #search(int, int, IntPredicate)
+   */
+  protected abstract int firstEndingNotBefore(LocalDateTime date, int from);
+
+  /**
+   * @return index of the first range at or after from that starts after the given date.
+   * @see #search(int, int, IntPredicate)
+   */
+  protected abstract int firstStartingAfter(LocalDateTime date, int from);
+
+  /**
+   * @return rough number of bytes held by this index and the ranges behind it, for weighing it
+   * against others in a cache.
+   */
+  public abstract long estimatedBytes();
+
+  /**
+   * @return a search for requests whose dates never move backwards, which costs O(ranges +
+   * requests) in total rather than O(log ranges) per request.
+   */
+  public Sweep sweep() {
+    return new Sweep();
+  }
+
+  @Override
+  public int firstEndingNotBefore(LocalDateTime date) {
+    return firstEndingNotBefore(date, 0);
+  }
+
+  @Override
+  public int lastStartingNotAfter(LocalDateTime date) {
+    return firstStartingAfter(date, 0) - 1;
+  }
+
+  /**
+   * Search that only moves forward, for consecutive buckets of a series.
+   *
+   * Each call resumes from where the last one finished, so the ranges are walked once for the
+   * whole series.
+   */
+  public class Sweep implements SpendingRangeSearch {
+
+    private int first = 0;
+    private int afterLast = 0;
+
+    private Sweep() {
+    }
+
+    @Override
+    public int firstEndingNotBefore(LocalDateTime date) {
+      this.first = SpendingRangeIndex.this.firstEndingNotBefore(date, this.first);
+      return this.first;
+    }
+
+    @Override
+    public int lastStartingNotAfter(LocalDateTime date) {
+      this.afterLast = SpendingRangeIndex.this.firstStartingAfter(date, this.afterLast);
+      return this.afterLast - 1;
+    }
+  }
+
+}
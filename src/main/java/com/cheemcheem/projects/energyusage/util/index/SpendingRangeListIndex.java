@@ -0,0 +1,122 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@link SpendingRangeIndex} over {@link SpendingRange} objects, with a running {@link BigDecimal}
+ * total.
+ */
+public class SpendingRangeListIndex extends SpendingRangeIndex {
+
+  private static final Comparator<SpendingRange> BY_START_DATE = Comparator
+      .comparing(SpendingRange::getStartDate);
+
+  /**
+   * A range with its two dates and usage, a reference to it and its running total.
+   */
+  private static final long BYTES_PER_RANGE = 260;
+
+  private final List<SpendingRange> spendingRanges;
+
+  /**
+   * cumulativeUsage[i] is the total usage of spendingRanges[0, i).
+   */
+  private final BigDecimal[] cumulativeUsage;
+
+  private final UsageScales usageScales;
+
+  private final boolean endDatesSorted;
+
+  private final LocalDateTime latestEndDate;
+
+  public SpendingRangeListIndex(Collection<SpendingRange> spendingRanges) {
+    // List.sort is stable, so ranges sharing a start date keep their original order
+    var sorted = new ArrayList<>(spendingRanges);
+    sorted.sort(BY_START_DATE);
+    this.spendingRanges = sorted;
+
+    var size = sorted.size();
+    this.cumulativeUsage = new BigDecimal[size + 1];
+    this.cumulativeUsage[0] = BigDecimal.ZERO;
+
+    var sortedEnds = true;
+    LocalDateTime latest = null;
+    for (int i = 0; i < size; i++) {
+      var spendingRange = sorted.get(i);
+      this.cumulativeUsage[i + 1] = this.cumulativeUsage[i].add(spendingRange.getUsage());
+      if (latest != null && spendingRange.getEndDate().isBefore(latest)) {
+        sortedEnds = false;
+      } else {
+        latest = spendingRange.getEndDate();
+      }
+    }
+    this.endDatesSorted = sortedEnds;
+    this.latestEndDate = latest;
+    this.usageScales = new UsageScales(size, i -> sorted.get(i).getUsage().scale());
+  }
+
+  @Override
+  public int size() {
+    return this.spendingRanges.size();
+  }
+
+  @Override
+  public SpendingRange get(int index) {
+    return this.spendingRanges.get(index);
+  }
+
+  @Override
+  public List<SpendingRange> subList(int from, int to) {
+    return Collections.unmodifiableList(this.spendingRanges.subList(from, to));
+  }
+
+  @Override
+  public LocalDateTime earliestStartDate() {
+    return size() == 0 ? null : get(0).getStartDate();
+  }
+
+  @Override
+  public LocalDateTime latestEndDate() {
+    return this.latestEndDate;
+  }
+
+  @Override
+  public long estimatedBytes() {
+    return BYTES_PER_RANGE * (size() + 1);
+  }
+
+  @Override
+  public boolean isSearchable() {
+    return this.endDatesSorted;
+  }
+
+  @Override
+  public BigDecimal usageBetween(int from, int to) {
+    if (from >= to) {
+      return BigDecimal.ZERO;
+    }
+    var usage = this.cumulativeUsage[to].subtract(this.cumulativeUsage[from]);
+    var scale = this.usageScales.sumScale(from, to);
+    // only ever removes trailing zeros left over from the larger scales of other ranges
+    return usage.scale() == scale ? usage : usage.setScale(scale, RoundingMode.UNNECESSARY);
+  }
+
+  @Override
+  protected int firstEndingNotBefore(LocalDateTime date, int from) {
+    return search(from, size(), i -> get(i).getEndDate().isBefore(date));
+  }
+
+  @Override
+  protected int firstStartingAfter(LocalDateTime date, int from) {
+    return search(from, size(), i -> !get(i).getStartDate().isAfter(date));
+  }
+
+}
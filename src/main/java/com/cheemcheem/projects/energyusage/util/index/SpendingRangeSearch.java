@@ -0,0 +1,23 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import java.time.LocalDateTime;
+
+/**
+ * Finds the run of ranges in a {@link SpendingRangeIndex} overlapping a request.
+ *
+ * Only valid when {@link SpendingRangeIndex#isSearchable()}.
+ */
+public interface SpendingRangeSearch {
+
+  /**
+   * @return index of the first range that does not end before the given date, or the number of
+   * ranges if there is none.
+   */
+  int firstEndingNotBefore(LocalDateTime date);
+
+  /**
+   * @return index of the last range that does not start after the given date, or -1 if there is
+   * none.
+   */
+  int lastStartingNotAfter(LocalDateTime date);
+}
@@ -0,0 +1,78 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Largest usage scale within any run of ranges, so totals taken from cumulative sums can be given
+ * the scale a linear sum of the same ranges would have had.
+ */
+class UsageScales {
+
+  /**
+   * Distinct scales in descending order, only populated when the scales are mixed.
+   */
+  private final int[] scales;
+
+  /**
+   * counts[k][i] is how many of the ranges [0, i) have a usage scale of scales[k].
+   */
+  private final int[][] counts;
+
+  private final int uniformScale;
+
+  private UsageScales(int uniformScale) {
+    this.uniformScale = uniformScale;
+    this.scales = null;
+    this.counts = null;
+  }
+
+  /**
+   * @return scales of ranges whose usages all have the given scale, however many there are.
+   */
+  static UsageScales uniform(int scale) {
+    return new UsageScales(scale);
+  }
+
+  UsageScales(int size, IntUnaryOperator scaleAt) {
+    var distinctScales = new TreeSet<Integer>(Comparator.reverseOrder());
+    for (int i = 0; i < size; i++) {
+      distinctScales.add(scaleAt.applyAsInt(i));
+    }
+
+    if (distinctScales.size() > 1) {
+      this.uniformScale = 0;
+      this.scales = distinctScales.stream().mapToInt(Integer::intValue).toArray();
+      this.counts = new int[this.scales.length][size + 1];
+      for (int i = 0; i < size; i++) {
+        var scale = scaleAt.applyAsInt(i);
+        for (int k = 0; k < this.scales.length; k++) {
+          this.counts[k][i + 1] = this.counts[k][i] + (scale == this.scales[k] ? 1 : 0);
+        }
+      }
+    } else {
+      this.uniformScale = distinctScales.isEmpty() ? 0 : distinctScales.first();
+      this.scales = null;
+      this.counts = null;
+    }
+  }
+
+  /**
+   * @return scale of adding the usages of ranges [from, to) to {@link java.math.BigDecimal#ZERO}.
+   */
+  int sumScale(int from, int to) {
+    if (from >= to) {
+      return 0;
+    }
+    if (this.scales == null) {
+      return Math.max(0, this.uniformScale);
+    }
+    for (int k = 0; k < this.scales.length; k++) {
+      if (this.counts[k][to] > this.counts[k][from]) {
+        return Math.max(0, this.scales[k]);
+      }
+    }
+    return 0;
+  }
+}
@@ -9,6 +9,7 @@ import com.cheemcheem.projects.energyusage.model.SpendingRange;
 import com.cheemcheem.projects.energyusage.util.converter.BigDecimalConverter;
 import com.cheemcheem.projects.energyusage.util.converter.LocalDateTimeConverter;
 import java.math.RoundingMode;
+import java.util.List;
 
 public class DTOMapper {
 
@@ -20,6 +21,13 @@ public class DTOMapper {
     );
   }
 
+  /**
+   * @return DTOs of the spending ranges, only created as they are asked for.
+   */
+  public static SpendingRangeDTOList toSpendingRangeDTOs(List<SpendingRange> source) {
+    return new SpendingRangeDTOList(source);
+  }
+
   public static EnergyReading toEnergyReadingModel(EnergyReadingDTO source)
       throws InvalidDateException, InvalidBigDecimalException {
     return new EnergyReading(
@@ -2,6 +2,8 @@ package com.cheemcheem.projects.energyusage.util.mapper;
 
 import com.cheemcheem.projects.energyusage.model.EnergyReading;
 import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.util.index.SpendingRangeColumns;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -48,4 +50,59 @@ public class EnergyReadingsMapper {
     return spendingRanges;
   }
 
+  /**
+   * Same ranges as {@link #getEnergyReadingsRange()}, built straight into columns without creating
+   * a {@link SpendingRange} for each.
+   *
+   * @throws ArithmeticException if the readings cannot be held exactly in columns, either because
+   *                             a reading does not fit in a long at the largest scale of them or
+   *                             because a date is more precise than a millisecond.
+   */
+  public SpendingRangeColumns getEnergyReadingsColumns() {
+    if (this.energyReadings.size() < 2) {
+      log.warn("Not enough readings to do analysis with.");
+      return new SpendingRangeColumns.Builder(0, 0).build();
+    }
+
+    this.energyReadings.sort(Comparator.comparing(EnergyReading::getDate));
+
+    var usageScale = this.energyReadings.stream()
+        .mapToInt(energyReading -> energyReading.getReading().scale())
+        .max()
+        .orElse(0);
+
+    var builder = new SpendingRangeColumns.Builder(usageScale,
+        this.energyReadings.size() - 1);
+    var lastReading = this.energyReadings.get(0);
+    var lastUnscaled = toUnscaled(lastReading, usageScale);
+    for (int i = 1; i < this.energyReadings.size(); i++) {
+      var currentReading = this.energyReadings.get(i);
+      var currentUnscaled = toUnscaled(currentReading, usageScale);
+      if (currentUnscaled <= lastUnscaled) {
+        builder.add(
+            toEpochMilli(lastReading.getDate()),
+            toEpochMilli(currentReading.getDate()),
+            Math.subtractExact(lastUnscaled, currentUnscaled),
+            Math.max(lastReading.getReading().scale(), currentReading.getReading().scale())
+        );
+      }
+      lastReading = currentReading;
+      lastUnscaled = currentUnscaled;
+    }
+    return builder.build();
+  }
+
+  private static long toUnscaled(EnergyReading energyReading, int usageScale) {
+    return energyReading.getReading().setScale(Math.max(0, usageScale))
+        .unscaledValue()
+        .longValueExact();
+  }
+
+  private static long toEpochMilli(LocalDateTime date) {
+    if (date.getNano() % 1_000_000 != 0) {
+      throw new ArithmeticException("Date '" + date + "' is more precise than a millisecond.");
+    }
+    return SpendingRangeColumns.toEpochMilli(date);
+  }
+
 }
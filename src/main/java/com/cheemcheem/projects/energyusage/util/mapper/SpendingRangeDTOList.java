@@ -0,0 +1,36 @@
+package com.cheemcheem.projects.energyusage.util.mapper;
+
+import com.cheemcheem.projects.energyusage.dto.SpendingRangeDTO;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read only {@link SpendingRangeDTO}s of spending ranges, each only created when it is asked for.
+ *
+ * Formats that do not need the DTOs can use the {@link #getSpendingRanges() spending ranges}
+ * instead, and skip formatting them as strings.
+ */
+public class SpendingRangeDTOList extends AbstractList<SpendingRangeDTO> implements RandomAccess {
+
+  private final List<SpendingRange> spendingRanges;
+
+  SpendingRangeDTOList(List<SpendingRange> spendingRanges) {
+    this.spendingRanges = spendingRanges;
+  }
+
+  public List<SpendingRange> getSpendingRanges() {
+    return this.spendingRanges;
+  }
+
+  @Override
+  public SpendingRangeDTO get(int index) {
+    return DTOMapper.toSpendingRangeDTO(this.spendingRanges.get(index));
+  }
+
+  @Override
+  public int size() {
+    return this.spendingRanges.size();
+  }
+}
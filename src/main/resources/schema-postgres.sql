@@ -0,0 +1,17 @@
+-- Run on every start in prod, before Hibernate validates the schema, so each statement must be
+-- safe to run again.
+
+-- Spending totalled over whole periods, see UsageRollup. Usage has no precision or scale so it is
+-- kept exactly as worked out.
+CREATE TABLE IF NOT EXISTS usage_rollup
+(
+    usage_rollup_id integer     NOT NULL PRIMARY KEY,
+    user_id         integer     NOT NULL REFERENCES user_table (user_id),
+    period          varchar(16) NOT NULL,
+    period_start    timestamp   NOT NULL,
+    usage           numeric     NOT NULL,
+    CONSTRAINT usage_rollup_user_period_start UNIQUE (user_id, period, period_start)
+);
+
+-- Readings of a user are loaded by date window, see EnergyReadingRepository.
+CREATE INDEX IF NOT EXISTS energy_reading_user_date ON energy_reading (user_id, date);
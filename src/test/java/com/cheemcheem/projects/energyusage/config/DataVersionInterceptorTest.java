@@ -0,0 +1,84 @@
+package com.cheemcheem.projects.energyusage.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.service.DataVersionService;
+import com.cheemcheem.projects.energyusage.util.Constants;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class DataVersionInterceptorTest {
+
+  private final User user = User.builder().userId(3).build();
+  private final DataVersionService dataVersionService = new DataVersionService();
+  private final DataVersionInterceptor dataVersionInterceptor = new DataVersionInterceptor(
+      dataVersionService);
+
+  @Test
+  void answersMatchingRequestWithNotModified() {
+    var eTag = getETag(request("/api/spending/all"));
+
+    var request = request("/api/spending/all");
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+    var response = new MockHttpServletResponse();
+
+    assertThat(dataVersionInterceptor.preHandle(request, response, null)).isFalse();
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(eTag);
+  }
+
+  @Test
+  void changesETagWithVersionAndParameters() {
+    var request = request("/api/spending/between");
+    request.addParameter("startDate", "01/01/2020 00:00");
+    request.addParameter("endDate", "01/02/2020 00:00");
+    var eTag = getETag(request);
+
+    var reordered = request("/api/spending/between");
+    reordered.addParameter("endDate", "01/02/2020 00:00");
+    reordered.addParameter("startDate", "01/01/2020 00:00");
+    assertThat(getETag(reordered)).isEqualTo(eTag);
+
+    var otherParameters = request("/api/spending/between");
+    otherParameters.addParameter("startDate", "02/01/2020 00:00");
+    otherParameters.addParameter("endDate", "01/02/2020 00:00");
+    assertThat(getETag(otherParameters)).isNotEqualTo(eTag);
+
+    var ndjson = request("/api/spending/between");
+    ndjson.setParameters(request.getParameterMap());
+    ndjson.addHeader(HttpHeaders.ACCEPT, Constants.NDJSON_MEDIA_TYPE);
+    assertThat(getETag(ndjson)).isNotEqualTo(eTag);
+
+    dataVersionService.bump(user.getUserId());
+    var bumped = request("/api/spending/between");
+    bumped.setParameters(request.getParameterMap());
+    assertThat(getETag(bumped)).isNotEqualTo(eTag);
+  }
+
+  @Test
+  void passesOnRequestsWithoutAUser() {
+    var request = new MockHttpServletRequest("GET", "/api/spending/all");
+    request.setServletPath("/api/spending/all");
+    var response = new MockHttpServletResponse();
+
+    assertThat(dataVersionInterceptor.preHandle(request, response, null)).isTrue();
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+  }
+
+  private MockHttpServletRequest request(String path) {
+    var request = new MockHttpServletRequest("GET", path);
+    request.setServletPath(path);
+    request.setAttribute(Constants.USER_ID_ATTRIBUTE_KEY, user);
+    return request;
+  }
+
+  private String getETag(MockHttpServletRequest request) {
+    var response = new MockHttpServletResponse();
+    assertThat(dataVersionInterceptor.preHandle(request, response, null)).isTrue();
+    return response.getHeader(HttpHeaders.ETAG);
+  }
+}
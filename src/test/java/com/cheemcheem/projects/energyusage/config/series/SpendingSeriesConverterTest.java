@@ -0,0 +1,102 @@
+package com.cheemcheem.projects.energyusage.config.series;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cheemcheem.projects.energyusage.dto.SpendingRangeDTO;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.tests.util.LocalDateTimeHelper;
+import com.cheemcheem.projects.energyusage.util.mapper.DTOMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+class SpendingSeriesConverterTest {
+
+  private static final List<SpendingRange> DAYS = List.of(
+      new SpendingRange(LocalDateTimeHelper.toLocalDateTime(0),
+          LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY), new BigDecimal("1.5")),
+      new SpendingRange(LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY),
+          LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY), new BigDecimal("2.125"))
+  );
+
+  private static final List<SpendingRangeDTO> GAPPED = List.of(
+      new SpendingRangeDTO("1970-01-01 00:00:00", "1970-01-01 12:00:00", "3"),
+      new SpendingRangeDTO("1970-01-02 00:00:00", "1970-01-02 12:00:00", "0.01")
+  );
+
+  private static String writeColumnarJson(List<SpendingRangeDTO> spendingRangeDTOs)
+      throws IOException {
+    var outputMessage = new MockHttpOutputMessage();
+    new ColumnarJsonSeriesConverter(new JsonFactory()).write(spendingRangeDTOs,
+        seriesType(), MediaType.parseMediaType(ColumnarJsonSeriesConverter.MEDIA_TYPE),
+        outputMessage);
+    return outputMessage.getBodyAsString();
+  }
+
+  private static ByteBuffer writeBinary(List<SpendingRangeDTO> spendingRangeDTOs)
+      throws IOException {
+    var outputMessage = new MockHttpOutputMessage();
+    new BinarySeriesConverter().write(spendingRangeDTOs, seriesType(),
+        MediaType.parseMediaType(BinarySeriesConverter.MEDIA_TYPE), outputMessage);
+    assertThat(outputMessage.getHeaders().getContentLength())
+        .isEqualTo(outputMessage.getBodyAsBytes().length);
+    return ByteBuffer.wrap(outputMessage.getBodyAsBytes()).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static Type seriesType() {
+    return new ParameterizedTypeReference<List<SpendingRangeDTO>>() {
+    }.getType();
+  }
+
+  @Test
+  void writesUniformSeriesAsStartAndStep() throws IOException {
+    var spendingRangeDTOs = DTOMapper.toSpendingRangeDTOs(DAYS);
+
+    assertThat(writeColumnarJson(spendingRangeDTOs))
+        .isEqualTo("{\"start\":0,\"step\":86400,\"values\":[1.50,2.13]}");
+
+    var binary = writeBinary(spendingRangeDTOs);
+    assertThat(binary.get()).isEqualTo(BinarySeriesConverter.UNIFORM);
+    assertThat(binary.getInt()).isEqualTo(2);
+    assertThat(binary.getLong()).isEqualTo(0);
+    assertThat(binary.getLong()).isEqualTo(86400);
+    assertThat(binary.getLong()).isEqualTo(150);
+    assertThat(binary.getLong()).isEqualTo(213);
+    assertThat(binary.hasRemaining()).isFalse();
+  }
+
+  @Test
+  void writesOtherSeriesAsColumns() throws IOException {
+    assertThat(writeColumnarJson(GAPPED)).isEqualTo("{\"startDates\":[0,86400],"
+        + "\"endDates\":[43200,129600],\"values\":[3.00,0.01]}");
+
+    var binary = writeBinary(GAPPED);
+    assertThat(binary.get()).isEqualTo(BinarySeriesConverter.COLUMNS);
+    assertThat(binary.getInt()).isEqualTo(2);
+    var values = new long[6];
+    binary.asLongBuffer().get(values);
+    assertThat(values).containsExactly(0, 86400, 43200, 129600, 300, 1);
+  }
+
+  @Test
+  void onlyWritesSeries() {
+    var converter = new BinarySeriesConverter();
+    var mediaType = MediaType.parseMediaType(BinarySeriesConverter.MEDIA_TYPE);
+
+    assertThat(converter.canWrite(seriesType(), List.class, mediaType)).isTrue();
+    assertThat(converter.canWrite(seriesType(), List.class, MediaType.APPLICATION_JSON)).isFalse();
+    assertThat(converter.canWrite(new ParameterizedTypeReference<List<String>>() {
+    }.getType(), List.class, mediaType)).isFalse();
+    assertThat(converter.canWrite(SpendingRangeDTO.class, SpendingRangeDTO.class, mediaType))
+        .isFalse();
+    assertThat(converter.canRead(seriesType(), null, mediaType)).isFalse();
+  }
+}
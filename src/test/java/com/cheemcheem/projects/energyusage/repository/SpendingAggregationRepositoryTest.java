@@ -0,0 +1,159 @@
+package com.cheemcheem.projects.energyusage.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.util.Buckets;
+import com.cheemcheem.projects.energyusage.util.Calculator;
+import com.cheemcheem.projects.energyusage.util.Granularity;
+import com.cheemcheem.projects.energyusage.util.mapper.EnergyReadingsMapper;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Checks the totals worked out in an H2 database against a {@link Calculator} over the same
+ * readings.
+ */
+class SpendingAggregationRepositoryTest {
+
+  /**
+   * Totals only differ from the calculator by it taking portions of ranges as doubles.
+   */
+  private static final BigDecimal TOLERANCE = new BigDecimal("0.000001");
+
+  private static final LocalDateTime FIRST = LocalDateTime.of(2019, 12, 20, 6, 45);
+
+  private final User user = User.builder().userId(1).build();
+  private final List<EnergyReading> energyReadings = new ArrayList<>();
+
+  private EmbeddedDatabase database;
+  private SpendingAggregationRepository spendingAggregationRepository;
+  private Calculator calculator;
+
+  @BeforeEach
+  void setup() {
+    database = new EmbeddedDatabaseBuilder()
+        .setType(EmbeddedDatabaseType.H2)
+        .generateUniqueName(true)
+        .build();
+    var jdbcTemplate = new NamedParameterJdbcTemplate(database);
+    jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE energy_reading ("
+        + "energy_reading_id INT PRIMARY KEY, date TIMESTAMP NOT NULL,"
+        + " reading DECIMAL(19, 2) NOT NULL, user_id INT NOT NULL)");
+
+    // readings at uneven times over a few months, where the meter goes up twice
+    var random = new Random(18);
+    var date = FIRST;
+    var reading = 500000L;
+    for (int i = 0; i < 400; i++) {
+      energyReadings.add(new EnergyReading(date, BigDecimal.valueOf(reading, 2)));
+      date = date.plusMinutes(30 + random.nextInt(600));
+      reading += i == 120 || i == 310 ? 2500 : -random.nextInt(900);
+    }
+    var id = 0;
+    for (var energyReading : energyReadings) {
+      jdbcTemplate.getJdbcTemplate().update(
+          "INSERT INTO energy_reading VALUES (?, ?, ?, ?)", ++id, energyReading.getDate(),
+          energyReading.getReading(), user.getUserId());
+    }
+    // another user's readings are never counted
+    jdbcTemplate.getJdbcTemplate().update("INSERT INTO energy_reading VALUES (?, ?, ?, ?)",
+        ++id, FIRST.plusDays(10), BigDecimal.ONE, 2);
+
+    spendingAggregationRepository = new SpendingAggregationRepository(jdbcTemplate);
+    calculator = new Calculator(new SpendingRangeRepository(
+        new EnergyReadingsMapper(new ArrayList<>(energyReadings)).getEnergyReadingsRange()));
+  }
+
+  @AfterEach
+  void tearDown() {
+    database.shutdown();
+  }
+
+  @Test
+  void totalsAllSpendingAsTheCalculatorDoes() {
+    var expected = calculator.calculateAllSpending();
+
+    var all = spendingAggregationRepository.findAllSpending(user);
+
+    assertThat(all).isPresent();
+    assertThat(all.get().getStartDate()).isEqualTo(expected.getStartDate());
+    assertThat(all.get().getEndDate()).isEqualTo(expected.getEndDate());
+    assertThat(all.get().getUsage()).isEqualByComparingTo(expected.getUsage());
+    assertThat(spendingAggregationRepository.findAllSpending(User.builder().userId(3).build()))
+        .isEmpty();
+  }
+
+  @Test
+  void totalsBetweenDatesAsTheCalculatorDoes() throws Exception {
+    var last = energyReadings.get(energyReadings.size() - 1).getDate();
+    var dates = List.of(
+        List.of(FIRST.minusDays(3), FIRST.minusDays(1)),
+        List.of(FIRST.minusDays(3), FIRST.plusDays(2)),
+        List.of(FIRST.plusHours(1), FIRST.plusHours(2)),
+        List.of(FIRST.plusDays(4).plusMinutes(17), FIRST.plusDays(61).plusMinutes(3)),
+        List.of(FIRST.plusDays(20), FIRST.plusDays(20)),
+        List.of(FIRST.minusDays(1), last.plusDays(1)),
+        List.of(last.minusHours(30), last.plusDays(5)),
+        List.of(last.plusDays(1), last.plusDays(5))
+    );
+
+    for (var between : dates) {
+      var expected = calculator.calculateSpendingBetweenDates(between.get(0), between.get(1));
+
+      assertThat(spendingAggregationRepository.sumBetween(user, between.get(0), between.get(1)))
+          .as("spending between %s", between)
+          .isCloseTo(expected.getUsage(), within(TOLERANCE));
+    }
+  }
+
+  @Test
+  void totalsEveryGranularityAsTheCalculatorDoes() throws Exception {
+    var last = energyReadings.get(energyReadings.size() - 1).getDate();
+    var windows = List.of(
+        List.of(FIRST, last),
+        List.of(FIRST.minusDays(3), last.plusDays(3)),
+        List.of(FIRST.plusDays(9).plusMinutes(7), FIRST.plusDays(47).plusHours(5))
+    );
+
+    for (var granularity : Granularity.values()) {
+      var billingDays = granularity == Granularity.BILLING_CYCLE ? List.of(1, 15, 31) : List.of(1);
+      for (var billingDay : billingDays) {
+        for (var window : windows) {
+          var startDate = window.get(0);
+          var endDate = window.get(1);
+          var expected = calculator
+              .calculateTotalSpending(startDate, endDate, granularity, billingDay);
+          var buckets = Buckets.calendar(granularity, billingDay, startDate, endDate);
+
+          var totals = spendingAggregationRepository.sumCalendarBuckets(user, granularity,
+              billingDay, startDate, endDate, buckets.size());
+
+          assertThat(totals).hasSameSizeAs(expected);
+          for (int i = 0; i < totals.size(); i++) {
+            assertThat(totals.get(i))
+                .as("%s bucket %s from %s", granularity, i, getStartDate(expected, i))
+                .isCloseTo(expected.get(i).getUsage(), within(TOLERANCE));
+          }
+        }
+      }
+    }
+  }
+
+  private static LocalDateTime getStartDate(List<SpendingRange> series, int bucket) {
+    return series.get(bucket).getStartDate();
+  }
+}
@@ -54,6 +54,27 @@ class SpendingRangeRepositoryTest {
     );
   }
 
+  @Test
+  void getBetweenDatesReturnsRangesInOrder() {
+    spendingRanges.add(0, spendingRanges.remove(2));
+    assertThat(spendingRangeRepository.getBetweenDates(
+        LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY),
+        LocalDateTimeHelper.toLocalDateTime(4 * LocalDateTimeHelper.DAY)
+    )).extracting(SpendingRange::getStartDate).containsExactly(
+        LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY),
+        LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY),
+        LocalDateTimeHelper.toLocalDateTime(3 * LocalDateTimeHelper.DAY)
+    );
+  }
+
+  @Test
+  void getBetweenDatesIsEmptyOutsideRanges() {
+    assertThat(spendingRangeRepository.getBetweenDates(
+        LocalDateTimeHelper.toLocalDateTime(5 * LocalDateTimeHelper.DAY),
+        LocalDateTimeHelper.toLocalDateTime(6 * LocalDateTimeHelper.DAY)
+    )).isEmpty();
+  }
+
   @Test
   void getBetweenDatesNotThrowsWhenEmpty() {
     spendingRanges.clear();
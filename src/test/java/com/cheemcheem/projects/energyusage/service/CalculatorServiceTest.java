@@ -0,0 +1,140 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository;
+import com.cheemcheem.projects.energyusage.tests.util.LocalDateTimeHelper;
+import com.cheemcheem.projects.energyusage.util.ArithmeticMode;
+import com.cheemcheem.projects.energyusage.util.Granularity;
+import com.cheemcheem.projects.energyusage.util.ParallelSeries;
+import com.cheemcheem.projects.energyusage.util.SpendingRollups;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CalculatorServiceTest {
+
+  private final User user = User.builder().userId(1).build();
+  private final EnergyReadingRepository energyReadingRepository = mock(
+      EnergyReadingRepository.class);
+  private final SpendingRangeCache spendingRangeCache = new SpendingRangeCache(Long.MAX_VALUE);
+  private final CalculatorService calculatorService = new CalculatorService(
+      energyReadingRepository, new DataVersionService(), spendingRangeCache,
+      ParallelSeries.SERIAL);
+
+  private final List<EnergyReading> energyReadings = new ArrayList<>();
+
+  private static LocalDateTime date(double days) {
+    return LocalDateTimeHelper.toLocalDateTime((long) (days * LocalDateTimeHelper.DAY));
+  }
+
+  private List<EnergyReading> readings(LocalDateTime startDate, LocalDateTime endDate) {
+    return energyReadings.stream()
+        .filter(r -> !r.getDate().isBefore(startDate) && !r.getDate().isAfter(endDate))
+        .collect(Collectors.toList());
+  }
+
+  @BeforeEach
+  void setup() {
+    ReflectionTestUtils.setField(calculatorService, "arithmeticMode", ArithmeticMode.BIG_DECIMAL);
+    // the meter goes up once, between days 20 and 21, leaving no range there
+    var reading = 1000;
+    for (int day = 0; day <= 40; day++) {
+      reading = day == 21 ? reading + 50 : reading - day % 7;
+      energyReadings.add(new EnergyReading(date(day + (day % 3) / 4.0),
+          BigDecimal.valueOf(reading, 1)));
+    }
+
+    when(energyReadingRepository.findAllByUser(user)).thenReturn(energyReadings);
+    when(energyReadingRepository.findAllByUserAround(any(), any(), any())).thenCallRealMethod();
+    when(energyReadingRepository.findAllByUserAndDateBetweenOrderByDateAsc(any(), any(), any()))
+        .thenAnswer(invocation -> readings(invocation.getArgument(1), invocation.getArgument(2)));
+    when(energyReadingRepository.findFirstByUserAndDateBeforeOrderByDateDesc(any(), any()))
+        .thenAnswer(invocation -> energyReadings.stream()
+            .filter(r -> r.getDate().isBefore(invocation.getArgument(1)))
+            .max(Comparator.comparing(EnergyReading::getDate)));
+    when(energyReadingRepository.findFirstByUserAndDateAfterOrderByDateAsc(any(), any()))
+        .thenAnswer(invocation -> energyReadings.stream()
+            .filter(r -> r.getDate().isAfter(invocation.getArgument(1)))
+            .min(Comparator.comparing(EnergyReading::getDate)));
+    when(energyReadingRepository.findFirstByUserOrderByDateAsc(user))
+        .thenReturn(Optional.of(energyReadings.get(0)));
+    when(energyReadingRepository.findFirstByUserOrderByDateDesc(user))
+        .thenReturn(Optional.of(energyReadings.get(energyReadings.size() - 1)));
+  }
+
+  @Test
+  void windowsGiveSameResultsAsEveryReading() throws InvalidDateException {
+    var windows = new LocalDateTime[][]{
+        {date(3.5), date(9.25)}, {date(2), date(7)}, {date(19.5), date(22)},
+        {date(-5), date(3)}, {date(38), date(50)}, {date(-10), date(-1)}, {date(45), date(60)}
+    };
+    for (var window : windows) {
+      var windowed = calculatorService
+          .getCalculator(user, window[0], window[1], SpendingRollups.NONE);
+      // nothing was cached by the window, so this loads every reading
+      var full = new CalculatorService(energyReadingRepository, new DataVersionService(),
+          new SpendingRangeCache(Long.MAX_VALUE), ParallelSeries.SERIAL)
+          .getCalculator(user, ArithmeticMode.BIG_DECIMAL, SpendingRollups.NONE);
+
+      assertThat(windowed.calculateSpendingBetweenDates(window[0], window[1]))
+          .isEqualTo(full.calculateSpendingBetweenDates(window[0], window[1]));
+      assertThat(windowed.calculateTotalSpending(window[0], window[1], Granularity.DAILY, 1))
+          .isEqualTo(full.calculateTotalSpending(window[0], window[1], Granularity.DAILY, 1));
+      assertThat(calculatorService.getCalculatorFrom(user, window[0], SpendingRollups.NONE)
+          .calculateSpendingAfterDate(window[0]))
+          .isEqualTo(full.calculateSpendingAfterDate(window[0]));
+      assertThat(calculatorService.getCalculatorUntil(user, window[1], SpendingRollups.NONE)
+          .calculateSpendingUntilDate(window[1]))
+          .isEqualTo(full.calculateSpendingUntilDate(window[1]));
+    }
+    assertThat(spendingRangeCache.getStatistics().getEntries()).isEqualTo(0);
+  }
+
+  @Test
+  void averageWindowsGiveSameResultsAsEveryReading() throws InvalidDateException {
+    // windows starting after the first reading of a day, which averages start at midnight of
+    var windows = new LocalDateTime[][]{
+        {date(4.75), date(19.5)}, {date(5.9), date(38.5)}, {date(2), date(35)}
+    };
+    for (var window : windows) {
+      var windowed = calculatorService
+          .getCalculator(user, window[0], window[1], SpendingRollups.NONE);
+      var full = new CalculatorService(energyReadingRepository, new DataVersionService(),
+          new SpendingRangeCache(Long.MAX_VALUE), ParallelSeries.SERIAL)
+          .getCalculator(user, ArithmeticMode.BIG_DECIMAL, SpendingRollups.NONE);
+
+      assertThat(windowed.calculateAverageDailySpending(window[0], window[1]))
+          .isEqualTo(full.calculateAverageDailySpending(window[0], window[1]));
+      assertThat(windowed.calculateAverageWeeklySpending(window[0], window[1]))
+          .isEqualTo(full.calculateAverageWeeklySpending(window[0], window[1]));
+      assertThat(windowed.calculateAverageMonthlySpending(window[0], window[1]))
+          .isEqualTo(full.calculateAverageMonthlySpending(window[0], window[1]));
+    }
+    assertThat(spendingRangeCache.getStatistics().getEntries()).isEqualTo(0);
+  }
+
+  @Test
+  void windowsUseCachedRanges() {
+    calculatorService.getCalculator(user, SpendingRollups.NONE);
+    calculatorService.getCalculator(user, date(3), date(4), SpendingRollups.NONE);
+
+    verify(energyReadingRepository, never()).findAllByUserAround(any(), any(), any());
+    assertThat(spendingRangeCache.getStatistics().getHits()).isEqualTo(1);
+  }
+}
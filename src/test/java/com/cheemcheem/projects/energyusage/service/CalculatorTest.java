@@ -5,16 +5,25 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.cheemcheem.projects.energyusage.exception.InvalidDateException;
+import com.cheemcheem.projects.energyusage.model.RollupPeriod;
 import com.cheemcheem.projects.energyusage.model.SpendingRange;
 import com.cheemcheem.projects.energyusage.repository.SpendingRangeRepository;
 import com.cheemcheem.projects.energyusage.tests.util.LocalDateTimeHelper;
+import com.cheemcheem.projects.energyusage.util.ArithmeticMode;
 import com.cheemcheem.projects.energyusage.util.Calculator;
+import com.cheemcheem.projects.energyusage.util.Granularity;
+import com.cheemcheem.projects.energyusage.util.ParallelSeries;
+import com.cheemcheem.projects.energyusage.util.SpendingRollups;
+import com.cheemcheem.projects.energyusage.util.index.SpendingRangeColumns;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -571,4 +580,225 @@ class CalculatorTest {
     }
   }
 
-}
\ No newline at end of file
+  @Nested
+  class FixedPointTests {
+
+    private Calculator fixedPointCalculator() {
+      return new Calculator(new SpendingRangeRepository(SpendingRangeColumns.of(spendingRanges)),
+          ArithmeticMode.FIXED_POINT);
+    }
+
+    @Test
+    void roundsHalfUpToTwoPlaces() throws InvalidDateException {
+      var requestStartDate = LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY);
+      var requestEndDate = LocalDateTimeHelper
+          .toLocalDateTime(LocalDateTimeHelper.DAY + LocalDateTimeHelper.DAY / 3);
+
+      var result = fixedPointCalculator()
+          .calculateSpendingBetweenDates(requestStartDate, requestEndDate);
+      assertThat(result.getUsage()).isEqualTo(new BigDecimal("3.33"));
+      assertThat(result.getStartDate()).isEqualTo(requestStartDate);
+      assertThat(result.getEndDate()).isEqualTo(requestEndDate);
+    }
+
+    @Test
+    void matchesBigDecimalOnceRounded() throws InvalidDateException {
+      spendingRanges.add(new SpendingRange(
+          LocalDateTimeHelper.toLocalDateTime(4 * LocalDateTimeHelper.DAY), LocalDateTimeHelper
+          .toLocalDateTime(11 * LocalDateTimeHelper.DAY), new BigDecimal("22.517")));
+      var fixedPointCalculator = fixedPointCalculator();
+
+      var requestStartDate = LocalDateTimeHelper
+          .toLocalDateTime(LocalDateTimeHelper.DAY + LocalDateTimeHelper.QUARTER_DAY);
+      var requestEndDate = LocalDateTimeHelper.toLocalDateTime(11 * LocalDateTimeHelper.DAY);
+
+      assertThat(fixedPointCalculator.calculateAverageSpending(requestStartDate, requestEndDate, 2))
+          .isEqualTo(roundToTwoPlaces(
+              calculator.calculateAverageSpending(requestStartDate, requestEndDate, 2)));
+      assertThat(fixedPointCalculator.calculateTotalWeeklySpending())
+          .isEqualTo(roundToTwoPlaces(calculator.calculateTotalWeeklySpending()));
+      assertThat(fixedPointCalculator.calculateAverageMonthlySpending())
+          .isEqualTo(roundToTwoPlaces(calculator.calculateAverageMonthlySpending()));
+    }
+
+    @Test
+    void fallsBackToBigDecimalOnOverflow() throws InvalidDateException {
+      spendingRanges.add(new SpendingRange(
+          LocalDateTimeHelper.toLocalDateTime(4 * LocalDateTimeHelper.DAY), LocalDateTimeHelper
+          .toLocalDateTime(5 * LocalDateTimeHelper.DAY), new BigDecimal("90000000000000.5")));
+
+      var requestStartDate = LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.HALF_DAY);
+      var requestEndDate = LocalDateTimeHelper
+          .toLocalDateTime(4 * LocalDateTimeHelper.DAY + LocalDateTimeHelper.HALF_DAY);
+
+      assertThat(fixedPointCalculator()
+          .calculateSpendingBetweenDates(requestStartDate, requestEndDate))
+          .isEqualTo(calculator.calculateSpendingBetweenDates(requestStartDate, requestEndDate));
+    }
+
+    private List<SpendingRange> roundToTwoPlaces(List<SpendingRange> results) {
+      var rounded = new ArrayList<SpendingRange>();
+      for (var result : results) {
+        rounded.add(new SpendingRange(result.getStartDate(), result.getEndDate(),
+            result.getUsage().setScale(2, RoundingMode.HALF_UP)));
+      }
+      return rounded;
+    }
+  }
+
+  @Nested
+  class RollupTests {
+
+    @Test
+    void usesRollupForBucketThatIsAPeriod() {
+      var rolledUpDay = LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY);
+      SpendingRollups spendingRollups = (period, periodStart) ->
+          period == RollupPeriod.DAY && periodStart.equals(rolledUpDay) ? new BigDecimal("99")
+              : null;
+      var rollupCalculator = new Calculator(spendingRangeRepository, ArithmeticMode.BIG_DECIMAL,
+          spendingRollups);
+
+      var results = rollupCalculator.calculateAverageDailySpending();
+
+      assertThat(results).extracting(SpendingRange::getUsage)
+          .containsExactly(new BigDecimal("10.0"), new BigDecimal("99"), new BigDecimal("10.0"));
+    }
+
+    @Test
+    void fixedPointIgnoresRollups() {
+      var rolledUpDay = LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY);
+      SpendingRollups spendingRollups = (period, periodStart) ->
+          period == RollupPeriod.DAY && periodStart.equals(rolledUpDay) ? new BigDecimal("99")
+              : null;
+      var rangeColumns = SpendingRangeColumns.of(spendingRanges);
+      var rollupCalculator = new Calculator(new SpendingRangeRepository(rangeColumns),
+          ArithmeticMode.FIXED_POINT, spendingRollups);
+
+      var results = rollupCalculator.calculateAverageDailySpending();
+
+      assertThat(results).isEqualTo(new Calculator(new SpendingRangeRepository(rangeColumns),
+          ArithmeticMode.FIXED_POINT).calculateAverageDailySpending());
+      assertThat(results).extracting(SpendingRange::getUsage)
+          .doesNotContain(new BigDecimal("99"), new BigDecimal("99.00"));
+    }
+
+    @Test
+    void rollupsMatchTheBucketsTheyReplace() throws InvalidDateException {
+      spendingRanges.add(new SpendingRange(
+          LocalDateTimeHelper.toLocalDateTime(4 * LocalDateTimeHelper.DAY),
+          LocalDateTime.of(1970, 3, 10, 6, 0), new BigDecimal("123.45")));
+
+      var rollups = new HashMap<RollupPeriod, Map<LocalDateTime, BigDecimal>>();
+      for (var period : RollupPeriod.values()) {
+        var periodSpending = new HashMap<LocalDateTime, BigDecimal>();
+        calculator.calculatePeriodSpending(period)
+            .forEach(spending -> periodSpending.put(spending.getStartDate(), spending.getUsage()));
+        rollups.put(period, periodSpending);
+      }
+      var rollupCalculator = new Calculator(spendingRangeRepository, ArithmeticMode.BIG_DECIMAL,
+          (period, periodStart) -> rollups.get(period).get(periodStart));
+
+      assertThat(rollups.get(RollupPeriod.MONTH)).containsOnlyKeys(
+          LocalDateTime.of(1970, 1, 1, 0, 0), LocalDateTime.of(1970, 2, 1, 0, 0),
+          LocalDateTime.of(1970, 3, 1, 0, 0));
+      assertThat(rollupCalculator.calculateAverageDailySpending())
+          .isEqualTo(calculator.calculateAverageDailySpending());
+      assertThat(rollupCalculator.calculateTotalMonthlySpending())
+          .isEqualTo(calculator.calculateTotalMonthlySpending());
+      assertThat(rollupCalculator.calculateAverageMonthlySpending())
+          .isEqualTo(calculator.calculateAverageMonthlySpending());
+      var monday = LocalDateTime.of(1970, 1, 5, 0, 0);
+      assertThat(rollupCalculator.calculateTotalWeeklySpending(monday, monday.plusWeeks(6)))
+          .isEqualTo(calculator.calculateTotalWeeklySpending(monday, monday.plusWeeks(6)));
+    }
+  }
+
+  @Nested
+  class ParallelSeriesTests {
+
+    @Test
+    void matchesSerialSeries() throws InvalidDateException {
+      var start = LocalDateTimeHelper.toLocalDateTime(4 * LocalDateTimeHelper.DAY);
+      for (int i = 0; i < 400; i++) {
+        spendingRanges.add(new SpendingRange(start.plusHours(19L * i),
+            start.plusHours(19L * (i + 1)), BigDecimal.valueOf(i % 13 + 1, 1)));
+      }
+
+      try (var parallelSeries = ParallelSeries.withThreads(4, 8)) {
+        var parallelCalculator = new Calculator(spendingRangeRepository,
+            ArithmeticMode.BIG_DECIMAL, SpendingRollups.NONE, parallelSeries);
+
+        assertThat(parallelCalculator.calculateTotalDailySpending())
+            .isEqualTo(calculator.calculateTotalDailySpending());
+        assertThat(parallelCalculator.calculateAverageWeeklySpending())
+            .isEqualTo(calculator.calculateAverageWeeklySpending());
+        assertThat(parallelCalculator.calculateAverageMonthlySpending())
+            .isEqualTo(calculator.calculateAverageMonthlySpending());
+        assertThat(parallelCalculator.calculateTotalMonthlySpending())
+            .isEqualTo(calculator.calculateTotalMonthlySpending());
+      }
+    }
+  }
+
+  @Nested
+  class CalendarSeriesTests {
+
+    @Test
+    void splitsSpendingIntoCalendarBuckets() throws InvalidDateException {
+      var start = LocalDateTimeHelper
+          .toLocalDateTime(LocalDateTimeHelper.DAY + LocalDateTimeHelper.HALF_DAY);
+      var end = start.plusHours(2).plusMinutes(30);
+
+      var results = calculator.calculateTotalSpending(start, end, Granularity.HOURLY, 1);
+
+      assertThat(results).extracting(SpendingRange::getStartDate)
+          .containsExactly(start, start.plusHours(1), start.plusHours(2));
+      assertThat(results).extracting(spendingRange -> spendingRange.getUsage()
+          .setScale(4, RoundingMode.HALF_UP))
+          .containsExactly(new BigDecimal("0.4167"), new BigDecimal("0.4167"),
+              new BigDecimal("0.2083"));
+    }
+
+    @Test
+    void monthlyCalendarBucketsMatchMonthlySeries() throws InvalidDateException {
+      spendingRanges.add(new SpendingRange(
+          LocalDateTimeHelper.toLocalDateTime(4 * LocalDateTimeHelper.DAY),
+          LocalDateTime.of(1970, 5, 10, 6, 0), new BigDecimal("123.45")));
+
+      assertThat(calculator.calculateTotalSpending(Granularity.MONTHLY, 1))
+          .isEqualTo(calculator.calculateTotalMonthlySpending());
+      assertThat(calculator.calculateTotalSpending(Granularity.QUARTERLY, 1))
+          .extracting(SpendingRange::getEndDate)
+          .containsExactly(LocalDateTime.of(1970, 4, 1, 0, 0).minusNanos(1),
+              LocalDateTime.of(1970, 5, 10, 6, 0));
+    }
+
+    @Test
+    void streamsTheSameSeriesItCalculates() throws InvalidDateException {
+      var start = LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY).plusMinutes(7);
+      var end = start.plusDays(100);
+      spendingRanges.add(new SpendingRange(
+          LocalDateTimeHelper.toLocalDateTime(4 * LocalDateTimeHelper.DAY), end,
+          new BigDecimal("123.45")));
+
+      var streamed = calculator
+          .streamTotalSpending(start, end, Granularity.FIFTEEN_MINUTES, 1)
+          .collect(Collectors.toList());
+
+      assertThat(streamed).hasSizeGreaterThan(8192)
+          .isEqualTo(calculator.calculateTotalSpending(start, end, Granularity.FIFTEEN_MINUTES, 1));
+      assertThat(calculator.streamTotalSpending(Granularity.WEEKLY, 1))
+          .isEqualTo(calculator.calculateTotalSpending(Granularity.WEEKLY, 1));
+    }
+
+    @Test
+    void knowsThatDatesShouldBeCorrectWayAround() {
+      var start = LocalDateTimeHelper.toLocalDateTime(3 * LocalDateTimeHelper.DAY);
+      var end = LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY);
+
+      assertThrows(InvalidDateException.class,
+          () -> calculator.calculateTotalSpending(start, end, Granularity.DAILY, 1));
+    }
+  }
+
+}
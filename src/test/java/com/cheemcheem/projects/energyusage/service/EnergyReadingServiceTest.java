@@ -0,0 +1,160 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.cheemcheem.projects.energyusage.dto.EnergyReadingDTO;
+import com.cheemcheem.projects.energyusage.dto.ImportErrorDTO;
+import com.cheemcheem.projects.energyusage.dto.ReadingAcceptanceDTO;
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class EnergyReadingServiceTest {
+
+  private final User user = User.builder().userId(1).build();
+  private final EnergyReadingRepository energyReadingRepository =
+      mock(EnergyReadingRepository.class);
+  private final DataVersionService dataVersionService = mock(DataVersionService.class);
+  private final SpendingRangeCache spendingRangeCache = mock(SpendingRangeCache.class);
+  private final RollupService rollupService = mock(RollupService.class);
+  private final ResponseCache responseCache = mock(ResponseCache.class);
+  private final EnergyReadingService energyReadingService = new EnergyReadingService(
+      energyReadingRepository, dataVersionService, spendingRangeCache, rollupService,
+      responseCache);
+
+  private final List<List<EnergyReading>> batches = new ArrayList<>();
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() {
+    ReflectionTestUtils.setField(energyReadingService, "importBatchSize", 2);
+    ReflectionTestUtils.setField(energyReadingService, "importMaxErrors", 1);
+    when(energyReadingRepository.saveAll(any())).thenAnswer(invocation -> {
+      batches.add(List.copyOf((List<EnergyReading>) invocation.getArgument(0)));
+      return invocation.getArgument(0);
+    });
+  }
+
+  @Test
+  void importsRowsInBatchesAndReportsRejectedRows() throws Exception {
+    var csv = ""
+        + "01/02/2020 03:04,1000.50\n"
+        + "02/02/2020 03:04, \"990.25\"\n"
+        + "\n"
+        + "not a date,980\n"
+        + "03/02/2020 03:04,lots\r\n"
+        + "04/02/2020 03:04,970";
+
+    var result = energyReadingService.importReadings(user, new StringReader(csv));
+
+    assertThat(result.getImported()).isEqualTo(3);
+    assertThat(result.getRejected()).isEqualTo(2);
+    assertThat(result.getErrors()).extracting(ImportErrorDTO::getRow).containsExactly(4L);
+    assertThat(result.getErrors().get(0).getError()).contains("not a date");
+    assertThat(batches).extracting(List::size).containsExactly(2, 1);
+    assertThat(batches.get(0).get(1).getDate()).isEqualTo(LocalDateTime.of(2020, 2, 2, 3, 4));
+    assertThat(batches.get(0).get(1).getReading()).isEqualTo(new BigDecimal("990.25"));
+    assertThat(batches.get(1).get(0).getUser()).isSameAs(user);
+    verify(dataVersionService).bump(1);
+    verify(responseCache).invalidate(1);
+    verify(spendingRangeCache).invalidate(1);
+    verify(rollupService).rebuildLater(user);
+    verify(rollupService).release(user);
+  }
+
+  @Test
+  void leavesCachesAloneWhenNothingIsImported() throws Exception {
+    var result = energyReadingService.importReadings(user, new StringReader("date,reading\n"));
+
+    assertThat(result.getImported()).isZero();
+    assertThat(result.getRejected()).isEqualTo(1);
+    verify(energyReadingRepository, never()).saveAll(any());
+    verify(dataVersionService, never()).bump(1);
+    verify(rollupService, never()).rebuildLater(user);
+    verify(rollupService).release(user);
+  }
+
+  @Test
+  void releasesRollupsWhenImportCannotFinish() {
+    doThrow(new IllegalStateException("cache")).when(responseCache).invalidate(1);
+
+    assertThatThrownBy(() -> energyReadingService
+        .importReadings(user, new StringReader("01/02/2020 03:04,1000.50\n")))
+        .isInstanceOf(IllegalStateException.class);
+
+    verify(rollupService, never()).rebuildLater(user);
+    verify(rollupService).release(user);
+  }
+
+  @Test
+  void savesEveryReadingOfBatchThatCanBeParsedTogether() {
+    when(dataVersionService.bump(1)).thenReturn(4L, 5L);
+
+    var acceptances = energyReadingService.addReadings(user, List.of(
+        new EnergyReadingDTO("2020-02-02 03:04:00", "990.25"),
+        new EnergyReadingDTO("2020-02-02", "980"),
+        new EnergyReadingDTO("2020-02-01 03:04:00", "1000.5")
+    ));
+
+    assertThat(acceptances).extracting(ReadingAcceptanceDTO::isAccepted)
+        .containsExactly(true, false, true);
+    assertThat(acceptances.get(1).getError()).contains("2020-02-02");
+    assertThat(batches).hasSize(1);
+    assertThat(batches.get(0)).extracting(EnergyReading::getReading)
+        .containsExactly(new BigDecimal("990.25"), new BigDecimal("1000.5"));
+    verify(spendingRangeCache).addReading(eq(1), eq(4L), any(), eq(new BigDecimal("990.25")));
+    verify(spendingRangeCache).addReading(eq(1), eq(5L), any(), eq(new BigDecimal("1000.5")));
+    verify(spendingRangeCache, times(2)).addReading(eq(1), anyLong(), any(), any());
+    verify(rollupService).updateLater(user, LocalDateTime.of(2020, 2, 1, 3, 4),
+        LocalDateTime.of(2020, 2, 2, 3, 4));
+    verify(rollupService).release(user);
+  }
+
+  @Test
+  void dropsCachesRatherThanFailingOnceReadingsAreSaved() {
+    when(dataVersionService.bump(1)).thenReturn(4L);
+    doThrow(new IllegalStateException("cache")).when(spendingRangeCache)
+        .addReading(eq(1), eq(4L), any(), any());
+
+    energyReadingService.addReadings(user,
+        List.of(new EnergyReadingDTO("2020-02-02 03:04:00", "990.25")));
+
+    assertThat(batches).hasSize(1);
+    verify(spendingRangeCache).invalidate(1);
+    verify(responseCache).invalidate(1);
+    verify(rollupService, never()).updateLater(any(), any(), any());
+    verify(rollupService).hold(user);
+    verify(rollupService).release(user);
+  }
+
+  @Test
+  void releasesRollupsWhenReadingsAreNotSaved() {
+    doThrow(new IllegalStateException("database")).when(energyReadingRepository).saveAll(any());
+    var energyReading = new EnergyReading(LocalDateTime.of(2020, 2, 2, 3, 4), BigDecimal.ONE);
+    energyReading.setUser(user);
+
+    assertThatThrownBy(() -> energyReadingService.commitReadings(List.of(energyReading)))
+        .hasMessage("database");
+
+    verify(rollupService).release(user);
+    verify(spendingRangeCache, never()).addReading(eq(1), anyLong(), any(), any());
+  }
+}
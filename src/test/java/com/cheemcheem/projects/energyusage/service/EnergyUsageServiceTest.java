@@ -0,0 +1,93 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.cheemcheem.projects.energyusage.dto.QueryDTO;
+import com.cheemcheem.projects.energyusage.dto.QueryDTO.Granularity;
+import com.cheemcheem.projects.energyusage.dto.QueryDTO.Type;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.repository.SpendingRangeRepository;
+import com.cheemcheem.projects.energyusage.tests.util.LocalDateTimeHelper;
+import com.cheemcheem.projects.energyusage.util.Calculator;
+import com.cheemcheem.projects.energyusage.util.SpendingRollups;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EnergyUsageServiceTest {
+
+  private final User user = User.builder().userId(1).build();
+  private final CalculatorService calculatorService = mock(CalculatorService.class);
+  private final RollupService rollupService = mock(RollupService.class);
+  private final EnergyUsageService energyUsageService = new EnergyUsageService(
+      calculatorService, rollupService, mock(SpendingAggregationService.class));
+
+  @BeforeEach
+  void setup() {
+    // 1 -( £10 )-> 2, 2 -( £10 )-> 3, 3 -( £10 )-> 4
+    var spendingRanges = List.of(
+        new SpendingRange(
+            LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY), LocalDateTimeHelper
+            .toLocalDateTime(2 * LocalDateTimeHelper.DAY), BigDecimal.TEN),
+        new SpendingRange(
+            LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY), LocalDateTimeHelper
+            .toLocalDateTime(3 * LocalDateTimeHelper.DAY), BigDecimal.TEN),
+        new SpendingRange(
+            LocalDateTimeHelper.toLocalDateTime(3 * LocalDateTimeHelper.DAY), LocalDateTimeHelper
+            .toLocalDateTime(4 * LocalDateTimeHelper.DAY), BigDecimal.TEN)
+    );
+    when(rollupService.getRollups(user)).thenReturn(SpendingRollups.NONE);
+    when(calculatorService.getCalculator(any(), any()))
+        .thenReturn(new Calculator(new SpendingRangeRepository(spendingRanges)));
+  }
+
+  @Test
+  void answersEveryQueryWithOneCalculator() {
+    var results = energyUsageService.query(List.of(
+        new QueryDTO(Type.SPENDING, Granularity.TOTAL, null, null, null),
+        new QueryDTO(Type.SPENDING, Granularity.TOTAL, "1970-01-02 12:00:00",
+            "1970-01-04 00:00:00", null),
+        new QueryDTO(Type.AVERAGE, Granularity.DAILY, null, null, null),
+        new QueryDTO(Type.AVERAGE, Granularity.LAST_MONTH, null, null, null)
+    ), user);
+
+    assertThat(results).hasSize(4);
+    assertThat(results.get(0).getSpendingRanges().get(0))
+        .isEqualTo(energyUsageService.getAllSpending(user));
+    assertThat(results.get(1).getSpendingRanges()).hasSize(1);
+    assertThat(results.get(1).getSpendingRanges().get(0).getUsage()).isEqualTo("15.00");
+    assertThat(results.get(2).getSpendingRanges())
+        .isEqualTo(energyUsageService.getAverageSpendingBetweenDaily(user));
+    assertThat(results.get(3).getSpendingRanges())
+        .containsExactly(energyUsageService.getLastAverageSpendingBetweenMonthly(user));
+    assertThat(results).allMatch(result -> result.getError() == null);
+    // once for the batch, and once for each single query it was compared with
+    verify(calculatorService, times(4)).getCalculator(any(), any());
+  }
+
+  @Test
+  void reportsQueriesThatCannotBeAnswered() {
+    var results = energyUsageService.query(List.of(
+        new QueryDTO(Type.SPENDING, Granularity.TOTAL, "not a date", null, null),
+        new QueryDTO(Type.SPENDING, Granularity.DAILY, "1970-01-02 00:00:00", null, null),
+        new QueryDTO(Type.AVERAGE, Granularity.DAY_GAP, null, null, 0),
+        new QueryDTO(Type.SPENDING, Granularity.LAST_MONTH, null, null, null),
+        new QueryDTO(null, Granularity.TOTAL, null, null, null),
+        new QueryDTO(Type.AVERAGE, Granularity.DAY_GAP, "1970-01-02 00:00:00",
+            "1970-01-04 00:00:00", 1)
+    ), user);
+
+    assertThat(results).hasSize(6);
+    assertThat(results.subList(0, 5)).allMatch(result -> result.getSpendingRanges() == null)
+        .allMatch(result -> result.getError() != null);
+    assertThat(results.get(5).getError()).isNull();
+    assertThat(results.get(5).getSpendingRanges()).hasSize(2);
+  }
+}
@@ -0,0 +1,43 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class ReadinessServiceTest {
+
+  private final ReadinessService readinessService = new ReadinessService();
+
+  @Test
+  void isOnlyReadyOnceEveryLoadHasFinished() {
+    assertThat(readinessService.isReady()).isTrue();
+
+    var first = readinessService.begin("first");
+    var second = readinessService.begin("second");
+    first.stage("saving", 10);
+    first.progress(4);
+    first.progress(3);
+
+    var readiness = readinessService.getReadiness();
+    assertThat(readiness.isReady()).isFalse();
+    assertThat(readiness.getLoads().get(0).getStage()).isEqualTo("saving");
+    assertThat(readiness.getLoads().get(0).getDone()).isEqualTo(7);
+    assertThat(readiness.getLoads().get(0).getTotal()).isEqualTo(10);
+
+    first.finish();
+    assertThat(readinessService.isReady()).isFalse();
+    second.finish();
+    assertThat(readinessService.isReady()).isTrue();
+  }
+
+  @Test
+  void isNeverReadyOnceALoadHasFailed() {
+    var load = readinessService.begin("failing");
+    load.fail(new IOException("No such file."));
+
+    var readiness = readinessService.getReadiness();
+    assertThat(readiness.isReady()).isFalse();
+    assertThat(readiness.getLoads().get(0).getError()).isEqualTo("No such file.");
+  }
+}
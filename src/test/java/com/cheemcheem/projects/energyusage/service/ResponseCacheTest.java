@@ -0,0 +1,78 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ResponseCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  private static ResponseCache.Response response(int size) {
+    return new ResponseCache.Response("application/json", new byte[size]);
+  }
+
+  @Test
+  void reusesResponseUntilVersionChanges() {
+    var responseCache = new ResponseCache(Long.MAX_VALUE, 1_000, now::get);
+    var response = response(10);
+    responseCache.put(responseCache.getKey(1, "/api/spending/all", 0), response, 50);
+
+    assertThat(responseCache.get(responseCache.getKey(1, "/api/spending/all", 0)))
+        .isSameAs(response);
+    assertThat(responseCache.get(responseCache.getKey(1, "/api/spending/all", 1))).isNull();
+    assertThat(responseCache.get(responseCache.getKey(2, "/api/spending/all", 0))).isNull();
+    assertThat(responseCache.get(responseCache.getKey(1, "/api/average/all", 0))).isNull();
+
+    var statistics = responseCache.getStatistics();
+    assertThat(statistics.getHits()).isEqualTo(1);
+    assertThat(statistics.getMisses()).isEqualTo(3);
+    assertThat(statistics.getHitRatio()).isEqualTo(0.25);
+  }
+
+  @Test
+  void dropsInvalidatedAndExpiredResponses() {
+    var responseCache = new ResponseCache(Long.MAX_VALUE, 1_000, now::get);
+    var key = responseCache.getKey(1, "/api/spending/all", 0);
+    responseCache.put(key, response(10), 50);
+    var otherKey = responseCache.getKey(2, "/api/spending/all", 0);
+    responseCache.put(otherKey, response(10), 50);
+
+    responseCache.invalidate(1);
+    // worked out before the invalidation, so it may be from before the change
+    responseCache.put(key, response(10), 50);
+    assertThat(responseCache.get(key)).isNull();
+    assertThat(responseCache.get(responseCache.getKey(1, "/api/spending/all", 0))).isNull();
+
+    now.set(1_001);
+    assertThat(responseCache.get(otherKey)).isNull();
+
+    var statistics = responseCache.getStatistics();
+    assertThat(statistics.getInvalidations()).isEqualTo(1);
+    assertThat(statistics.getExpirations()).isEqualTo(1);
+    assertThat(statistics.getEntries()).isZero();
+    assertThat(statistics.getEstimatedBytes()).isZero();
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedWhenFull() {
+    var responseCache = new ResponseCache(Long.MAX_VALUE, 1_000, now::get);
+    responseCache.put(responseCache.getKey(1, "a", 0), response(1_000), 1);
+    var bytes = responseCache.getStatistics().getEstimatedBytes();
+
+    responseCache = new ResponseCache(2 * bytes, 1_000, now::get);
+    responseCache.put(responseCache.getKey(1, "a", 0), response(1_000), 1_000_000);
+    responseCache.put(responseCache.getKey(2, "a", 0), response(1_000), 1_000_000);
+    responseCache.get(responseCache.getKey(1, "a", 0));
+    responseCache.put(responseCache.getKey(3, "a", 0), response(1_000), 1_000_000);
+
+    // user 2 was used least recently
+    assertThat(responseCache.get(responseCache.getKey(1, "a", 0))).isNotNull();
+    assertThat(responseCache.get(responseCache.getKey(2, "a", 0))).isNull();
+    var statistics = responseCache.getStatistics();
+    assertThat(statistics.getEvictions()).isEqualTo(1);
+    assertThat(statistics.getEstimatedBytes()).isEqualTo(2 * bytes);
+    assertThat(statistics.getSavedMillis()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,276 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.model.RollupPeriod;
+import com.cheemcheem.projects.energyusage.model.UsageRollup;
+import com.cheemcheem.projects.energyusage.model.User;
+import com.cheemcheem.projects.energyusage.repository.EnergyReadingRepository;
+import com.cheemcheem.projects.energyusage.repository.UsageRollupRepository;
+import com.cheemcheem.projects.energyusage.util.ArithmeticMode;
+import com.cheemcheem.projects.energyusage.util.Granularity;
+import com.cheemcheem.projects.energyusage.util.ParallelSeries;
+import com.cheemcheem.projects.energyusage.util.SpendingRollups;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class RollupServiceTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 3, 0);
+
+  private final User user = User.builder().userId(1).build();
+  private final EnergyReadingRepository energyReadingRepository = mock(
+      EnergyReadingRepository.class);
+  private final UsageRollupRepository usageRollupRepository = mock(UsageRollupRepository.class);
+  private final DataVersionService dataVersionService = new DataVersionService();
+  private final CalculatorService calculatorService = new CalculatorService(
+      energyReadingRepository, dataVersionService, new SpendingRangeCache(Long.MAX_VALUE),
+      ParallelSeries.SERIAL);
+  private final RollupService rollupService = new RollupService(usageRollupRepository,
+      energyReadingRepository, calculatorService, mock(PlatformTransactionManager.class));
+
+  private final List<EnergyReading> energyReadings = new ArrayList<>();
+  private final List<UsageRollup> usageRollups = new ArrayList<>();
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() {
+    // every six hours for ten weeks, going down and topped up every so often
+    var reading = 5000;
+    for (int i = 0; i < 4 * 70; i++) {
+      reading = i % 50 == 49 ? reading + 3000 : reading - 7 - i % 5;
+      energyReadings.add(new EnergyReading(START.plusHours(6L * i),
+          BigDecimal.valueOf(reading, 2)));
+    }
+
+    when(energyReadingRepository.findAllByUser(user)).thenAnswer(invocation ->
+        energyReadings.stream()
+            .sorted(Comparator.comparing(EnergyReading::getDate))
+            .collect(Collectors.toList()));
+    when(energyReadingRepository.findFirstByUserAndDateBeforeOrderByDateDesc(any(), any()))
+        .thenAnswer(invocation -> energyReadings.stream()
+            .filter(r -> r.getDate().isBefore(invocation.getArgument(1)))
+            .max(Comparator.comparing(EnergyReading::getDate)));
+    when(energyReadingRepository.findFirstByUserAndDateAfterOrderByDateAsc(any(), any()))
+        .thenAnswer(invocation -> energyReadings.stream()
+            .filter(r -> r.getDate().isAfter(invocation.getArgument(1)))
+            .min(Comparator.comparing(EnergyReading::getDate)));
+
+    when(usageRollupRepository.findAllByUserAndPeriod(any(), any()))
+        .thenAnswer(invocation -> findRollups(invocation.getArgument(1),
+            LocalDateTime.MIN, LocalDateTime.MAX));
+    when(usageRollupRepository.findAllByUserAndPeriodAndPeriodStartBetween(any(), any(), any(),
+        any())).thenAnswer(invocation -> findRollups(invocation.getArgument(1),
+        invocation.getArgument(2), invocation.getArgument(3)));
+    when(usageRollupRepository.saveAll(any())).thenAnswer(invocation -> {
+      for (var usageRollup : (Collection<UsageRollup>) invocation.getArgument(0)) {
+        if (usageRollups.stream().noneMatch(saved -> saved == usageRollup)) {
+          usageRollups.add(usageRollup);
+        }
+      }
+      return invocation.getArgument(0);
+    });
+    doAnswer(invocation -> {
+      usageRollups.removeAll((Collection<UsageRollup>) invocation.getArgument(0));
+      return null;
+    }).when(usageRollupRepository).deleteAll(any());
+  }
+
+  @AfterEach
+  void tearDown() {
+    rollupService.close();
+  }
+
+  private synchronized List<UsageRollup> findRollups(RollupPeriod period, LocalDateTime from,
+      LocalDateTime to) {
+    return usageRollups.stream()
+        .filter(usageRollup -> usageRollup.getPeriod() == period)
+        .filter(usageRollup -> !usageRollup.getPeriodStart().isBefore(from)
+            && !usageRollup.getPeriodStart().isAfter(to))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return the reading saved, with the data version moved on as saving it would.
+   */
+  private EnergyReading addReading(LocalDateTime date, String reading) {
+    var energyReading = new EnergyReading(date, new BigDecimal(reading));
+    energyReading.setUser(user);
+    energyReadings.add(energyReading);
+    dataVersionService.bump(user.getUserId());
+    return energyReading;
+  }
+
+  /**
+   * @return spending of every period, worked out from every reading.
+   */
+  private List<UsageRollup> expectedRollups() {
+    var expected = new RollupServiceTest();
+    expected.setup();
+    expected.energyReadings.clear();
+    expected.energyReadings.addAll(energyReadings);
+    expected.rollupService.rebuild(expected.user);
+    expected.tearDown();
+    return expected.usageRollups;
+  }
+
+  private static List<String> describe(List<UsageRollup> usageRollups) {
+    return usageRollups.stream()
+        .map(usageRollup -> usageRollup.getPeriod() + " " + usageRollup.getPeriodStart() + " "
+            + usageRollup.getUsage())
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  void updateTotalsAgainPeriodsAroundReading() {
+    rollupService.rebuild(user);
+    var before = describe(usageRollups);
+    var saved = addReading(START.plusDays(40).plusHours(4), "30.00");
+
+    rollupService.update(user, saved.getDate());
+
+    assertThat(describe(usageRollups)).isNotEqualTo(before)
+        .isEqualTo(describe(expectedRollups()));
+  }
+
+  @Test
+  void rebuildReplacesEveryRollup() {
+    usageRollups.add(new UsageRollup(user, RollupPeriod.DAY, START.minusYears(1),
+        BigDecimal.TEN));
+    usageRollups.add(new UsageRollup(user, RollupPeriod.MONTH, START.withHour(0),
+        BigDecimal.TEN));
+
+    rollupService.rebuild(user);
+
+    assertThat(describe(usageRollups)).isEqualTo(describe(expectedRollups()));
+    assertThat(usageRollups).extracting(UsageRollup::getPeriod)
+        .contains(RollupPeriod.DAY, RollupPeriod.ISO_WEEK, RollupPeriod.MONTH);
+  }
+
+  @Test
+  void holdHidesRollupsUntilReleased() {
+    rollupService.rebuild(user);
+    var day = START.plusDays(3).withHour(0);
+
+    rollupService.hold(user);
+    rollupService.hold(user);
+    assertThat(rollupService.getRollups(user)).isSameAs(SpendingRollups.NONE);
+    rollupService.release(user);
+    assertThat(rollupService.getRollups(user)).isSameAs(SpendingRollups.NONE);
+    rollupService.release(user);
+
+    assertThat(rollupService.getRollups(user).get(RollupPeriod.DAY, day)).isNotNull();
+  }
+
+  @Test
+  void rollupsHandedOutBeforeChangeAreNotUsedAfterIt() {
+    rollupService.rebuild(user);
+    var day = START.plusDays(3).withHour(0);
+    var rollups = rollupService.getRollups(user);
+    assertThat(rollups.get(RollupPeriod.DAY, day)).isNotNull();
+
+    rollupService.hold(user);
+    assertThat(rollups.get(RollupPeriod.DAY, day)).isNull();
+    assertThat(rollups.get(RollupPeriod.MONTH, START.withHour(0))).isNull();
+    rollupService.release(user);
+
+    assertThat(rollups.get(RollupPeriod.DAY, day)).isNull();
+    assertThat(rollupService.getRollups(user).get(RollupPeriod.DAY, day)).isNotNull();
+  }
+
+  @Test
+  void spendingFromRollupsIsSameAsSpendingFromRanges() {
+    rollupService.rebuild(user);
+
+    for (var granularity : Granularity.values()) {
+      var fromRanges = calculatorService
+          .getCalculator(user, ArithmeticMode.BIG_DECIMAL, SpendingRollups.NONE)
+          .calculateTotalSpending(granularity, 1);
+      var fromRollups = calculatorService
+          .getCalculator(user, ArithmeticMode.BIG_DECIMAL, rollupService.getRollups(user))
+          .calculateTotalSpending(granularity, 1);
+
+      assertThat(fromRollups).hasSameSizeAs(fromRanges);
+      for (int i = 0; i < fromRanges.size(); i++) {
+        assertThat(fromRollups.get(i).getStartDate()).isEqualTo(fromRanges.get(i).getStartDate());
+        assertThat(fromRollups.get(i).getUsage()).isEqualTo(fromRanges.get(i).getUsage());
+      }
+    }
+  }
+
+  @Test
+  void updateLaterHoldsRollupsUntilItHasRun() throws InterruptedException {
+    rollupService.rebuild(user);
+    var updating = new CountDownLatch(1);
+    var blocked = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      updating.countDown();
+      blocked.await(10, TimeUnit.SECONDS);
+      return findRollups(invocation.getArgument(1), invocation.getArgument(2),
+          invocation.getArgument(3));
+    }).when(usageRollupRepository)
+        .findAllByUserAndPeriodAndPeriodStartBetween(any(), any(), any(), any());
+    var saved = addReading(START.plusDays(20).plusHours(1), "20.00");
+
+    rollupService.hold(user);
+    rollupService.updateLater(user, saved.getDate(), saved.getDate());
+    rollupService.release(user);
+    assertThat(updating.await(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(rollupService.getRollups(user)).isSameAs(SpendingRollups.NONE);
+    blocked.countDown();
+    rollupService.close();
+
+    assertThat(rollupService.getRollups(user)).isNotSameAs(SpendingRollups.NONE);
+    assertThat(describe(usageRollups)).isEqualTo(describe(expectedRollups()));
+  }
+
+  @Test
+  void rebuildsRollupsWhenUpdateLaterFails() {
+    rollupService.rebuild(user);
+    doThrow(new IllegalStateException("database")).when(energyReadingRepository)
+        .findFirstByUserAndDateAfterOrderByDateAsc(any(), any());
+    var saved = addReading(START.plusDays(33).plusHours(2), "10.00");
+
+    rollupService.updateLater(user, saved.getDate(), saved.getDate());
+    rollupService.close();
+
+    assertThat(rollupService.getRollups(user)).isNotSameAs(SpendingRollups.NONE);
+    assertThat(describe(usageRollups)).isEqualTo(describe(expectedRollups()));
+  }
+
+  @Test
+  void rebuildLaterHoldsRollupsAndStopsUsingThemWhenItFails() {
+    rollupService.rebuild(user);
+    doThrow(new IllegalStateException("database")).when(usageRollupRepository)
+        .findAllByUserAndPeriod(any(), any());
+
+    rollupService.rebuildLater(user);
+    assertThat(rollupService.getRollups(user)).isSameAs(SpendingRollups.NONE);
+    rollupService.close();
+
+    assertThat(rollupService.getRollups(user)).isSameAs(SpendingRollups.NONE);
+    doAnswer(invocation -> findRollups(invocation.getArgument(1), LocalDateTime.MIN,
+        LocalDateTime.MAX)).when(usageRollupRepository).findAllByUserAndPeriod(any(), any());
+    rollupService.rebuild(user);
+    assertThat(rollupService.getRollups(user)).isNotSameAs(SpendingRollups.NONE);
+  }
+}
@@ -0,0 +1,94 @@
+package com.cheemcheem.projects.energyusage.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.repository.SpendingRangeRepository;
+import com.cheemcheem.projects.energyusage.tests.util.LocalDateTimeHelper;
+import com.cheemcheem.projects.energyusage.util.index.EnergyReadingColumns;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SpendingRangeCacheTest {
+
+  private static SpendingRangeCache.Loaded spendingRangeRepository(int size) {
+    var spendingRanges = new ArrayList<SpendingRange>();
+    for (int i = 0; i < size; i++) {
+      spendingRanges.add(new SpendingRange(
+          LocalDateTimeHelper.toLocalDateTime(i * LocalDateTimeHelper.DAY), LocalDateTimeHelper
+          .toLocalDateTime((i + 1) * LocalDateTimeHelper.DAY), BigDecimal.TEN));
+    }
+    return new SpendingRangeCache.Loaded(new SpendingRangeRepository(spendingRanges));
+  }
+
+  @Test
+  void reusesRangesUntilVersionChanges() {
+    var spendingRangeCache = new SpendingRangeCache(Long.MAX_VALUE);
+    var first = spendingRangeCache.get(1, 0, () -> spendingRangeRepository(3));
+
+    assertThat(spendingRangeCache.get(1, 0, () -> spendingRangeRepository(3))).isSameAs(first);
+    assertThat(spendingRangeCache.get(1, 1, () -> spendingRangeRepository(3))).isNotSameAs(first);
+
+    var statistics = spendingRangeCache.getStatistics();
+    assertThat(statistics.getHits()).isEqualTo(1);
+    assertThat(statistics.getMisses()).isEqualTo(2);
+    assertThat(statistics.getEntries()).isEqualTo(1);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedWhenFull() {
+    var bytes = spendingRangeRepository(10).getSpendingRangeRepository().getIndex()
+        .estimatedBytes();
+    var spendingRangeCache = new SpendingRangeCache(2 * bytes);
+
+    var first = spendingRangeCache.get(1, 0, () -> spendingRangeRepository(10));
+    spendingRangeCache.get(2, 0, () -> spendingRangeRepository(10));
+    spendingRangeCache.get(1, 0, () -> spendingRangeRepository(10));
+    spendingRangeCache.get(3, 0, () -> spendingRangeRepository(10));
+
+    // user 2 was used least recently
+    assertThat(spendingRangeCache.get(1, 0, () -> spendingRangeRepository(10))).isSameAs(first);
+    var statistics = spendingRangeCache.getStatistics();
+    assertThat(statistics.getEvictions()).isEqualTo(1);
+    assertThat(statistics.getEntries()).isEqualTo(2);
+    assertThat(statistics.getEstimatedBytes()).isEqualTo(2 * bytes);
+  }
+
+  @Test
+  void invalidateRemovesEntry() {
+    var spendingRangeCache = new SpendingRangeCache(Long.MAX_VALUE);
+    var first = spendingRangeCache.get(1, 0, () -> spendingRangeRepository(3));
+    spendingRangeCache.invalidate(1);
+
+    assertThat(spendingRangeCache.get(1, 0, () -> spendingRangeRepository(3))).isNotSameAs(first);
+    assertThat(spendingRangeCache.getStatistics().getMisses()).isEqualTo(2);
+  }
+
+  @Test
+  void addsReadingsToColumnsInPlaceOfRebuilding() {
+    var energyReadingColumns = EnergyReadingColumns.of(List.of(
+        new EnergyReading(LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY),
+            new BigDecimal("30.0")),
+        new EnergyReading(LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY),
+            new BigDecimal("20.0"))
+    )).orElseThrow();
+    var spendingRangeCache = new SpendingRangeCache(Long.MAX_VALUE);
+    spendingRangeCache.get(1, 0, () -> new SpendingRangeCache.Loaded(energyReadingColumns));
+
+    spendingRangeCache.addReading(1, 1,
+        LocalDateTimeHelper.toLocalDateTime(3 * LocalDateTimeHelper.DAY), new BigDecimal("15.0"));
+    var updated = spendingRangeCache.get(1, 1, () -> {
+      throw new AssertionError("Should not be built again.");
+    });
+    assertThat(updated.getIndex().usageBetween(0, 2)).isEqualTo(new BigDecimal("15.0"));
+
+    // a reading that was missed cannot be added to
+    spendingRangeCache.addReading(1, 3,
+        LocalDateTimeHelper.toLocalDateTime(4 * LocalDateTimeHelper.DAY), new BigDecimal("10.0"));
+    assertThat(spendingRangeCache.getStatistics().getEntries()).isEqualTo(0);
+    assertThat(spendingRangeCache.getStatistics().getUpdates()).isEqualTo(1);
+  }
+}
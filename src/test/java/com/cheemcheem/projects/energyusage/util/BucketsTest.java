@@ -0,0 +1,119 @@
+package com.cheemcheem.projects.energyusage.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BucketsTest {
+
+  @Test
+  void cutsFirstAndLastCalendarBucketsToTheDates() {
+    var buckets = Buckets.calendar(Granularity.HOURLY, 1,
+        LocalDateTime.of(2020, 1, 1, 10, 20), LocalDateTime.of(2020, 1, 1, 13, 5));
+
+    assertThat(startDates(buckets)).containsExactly(
+        LocalDateTime.of(2020, 1, 1, 10, 20), LocalDateTime.of(2020, 1, 1, 11, 0),
+        LocalDateTime.of(2020, 1, 1, 12, 0), LocalDateTime.of(2020, 1, 1, 13, 0));
+    assertThat(endDates(buckets)).containsExactly(
+        LocalDateTime.of(2020, 1, 1, 11, 0), LocalDateTime.of(2020, 1, 1, 12, 0),
+        LocalDateTime.of(2020, 1, 1, 13, 0), LocalDateTime.of(2020, 1, 1, 13, 5));
+  }
+
+  @Test
+  void alignsEachGranularityToTheCalendar() {
+    var date = LocalDateTime.of(2020, 5, 14, 13, 47, 12);
+
+    assertThat(Granularity.FIFTEEN_MINUTES.getStart(date, 1))
+        .isEqualTo(LocalDateTime.of(2020, 5, 14, 13, 45));
+    assertThat(Granularity.DAILY.getStart(date, 1)).isEqualTo(LocalDateTime.of(2020, 5, 14, 0, 0));
+    assertThat(Granularity.WEEKLY.getStart(date, 1)).isEqualTo(LocalDateTime.of(2020, 5, 11, 0, 0));
+    assertThat(Granularity.QUARTERLY.getStart(date, 1))
+        .isEqualTo(LocalDateTime.of(2020, 4, 1, 0, 0));
+    assertThat(Granularity.YEARLY.getStart(date, 1)).isEqualTo(LocalDateTime.of(2020, 1, 1, 0, 0));
+    assertThat(Granularity.BILLING_CYCLE.getStart(date, 20))
+        .isEqualTo(LocalDateTime.of(2020, 4, 20, 0, 0));
+  }
+
+  @Test
+  void endsBucketsOfAMonthOrLongerBeforeTheNextStarts() {
+    var start = LocalDateTime.of(2020, 4, 1, 0, 0);
+
+    assertThat(Granularity.QUARTERLY.getEnd(start, 1))
+        .isEqualTo(LocalDateTime.of(2020, 7, 1, 0, 0).minusNanos(1));
+    assertThat(Granularity.WEEKLY.getEnd(start, 1)).isEqualTo(start.plusWeeks(1));
+  }
+
+  @Test
+  void startsBillingCyclesOnTheLastDayOfShortMonths() {
+    var buckets = Buckets.calendar(Granularity.BILLING_CYCLE, 31,
+        LocalDateTime.of(2021, 1, 31, 0, 0), LocalDateTime.of(2021, 5, 1, 0, 0));
+
+    assertThat(startDates(buckets)).containsExactly(
+        LocalDateTime.of(2021, 1, 31, 0, 0), LocalDateTime.of(2021, 2, 28, 0, 0),
+        LocalDateTime.of(2021, 3, 31, 0, 0), LocalDateTime.of(2021, 4, 30, 0, 0));
+    assertThat(buckets.getEndDate(0)).isEqualTo(LocalDateTime.of(2021, 2, 28, 0, 0).minusNanos(1));
+    assertThat(buckets.getEndDate(3)).isEqualTo(LocalDateTime.of(2021, 5, 1, 0, 0));
+  }
+
+  @Test
+  void countsLongSeriesWithoutWalkingThem() {
+    var start = LocalDateTime.of(2000, 1, 1, 0, 0);
+    var end = LocalDateTime.of(2020, 1, 1, 0, 7);
+
+    var buckets = Buckets.calendar(Granularity.FIFTEEN_MINUTES, 1, start, end);
+
+    assertThat(buckets.size()).isEqualTo(ChronoUnit.MINUTES.between(start, end) / 15 + 1);
+    assertThat(buckets.getStartDate(buckets.size() - 1)).isEqualTo(end.minusMinutes(7));
+    assertThat(buckets.getEndDate(buckets.size() - 1)).isEqualTo(end);
+  }
+
+  @Test
+  void leavesOutBucketsOfNoTime() {
+    var date = LocalDateTime.of(2020, 3, 1, 0, 0);
+
+    assertThat(Buckets.calendar(Granularity.MONTHLY, 1, date, date).size()).isZero();
+    assertThat(Buckets.calendar(Granularity.MONTHLY, 1, date.minusDays(3), date).size())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void dropsTheLastBucketOfDaysIfItIsNotWhole() {
+    var start = LocalDateTime.of(2020, 1, 1, 6, 0);
+
+    var buckets = Buckets.everyDays(start, start.plusDays(20), 7);
+
+    assertThat(startDates(buckets)).containsExactly(start, start.plusDays(7));
+    assertThat(endDates(buckets)).containsExactly(start.plusDays(7), start.plusDays(14));
+  }
+
+  @Test
+  void rejectsBillingDaysOutsideAMonth() {
+    var start = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> Buckets.calendar(Granularity.BILLING_CYCLE, 0, start, start.plusYears(1)));
+    assertThrows(IllegalArgumentException.class,
+        () -> Buckets.calendar(Granularity.BILLING_CYCLE, 32, start, start.plusYears(1)));
+  }
+
+  private static List<LocalDateTime> startDates(Buckets buckets) {
+    var startDates = new ArrayList<LocalDateTime>();
+    for (int i = 0; i < buckets.size(); i++) {
+      startDates.add(buckets.getStartDate(i));
+    }
+    return startDates;
+  }
+
+  private static List<LocalDateTime> endDates(Buckets buckets) {
+    var endDates = new ArrayList<LocalDateTime>();
+    for (int i = 0; i < buckets.size(); i++) {
+      endDates.add(buckets.getEndDate(i));
+    }
+    return endDates;
+  }
+}
@@ -0,0 +1,41 @@
+package com.cheemcheem.projects.energyusage.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class FixedPointTest {
+
+  @Test
+  void mulDivRoundsHalfUp() {
+    assertThat(FixedPoint.mulDivHalfUp(10, 1, 3)).isEqualTo(3);
+    assertThat(FixedPoint.mulDivHalfUp(10, 1, 4)).isEqualTo(3);
+    assertThat(FixedPoint.mulDivHalfUp(-10, 1, 4)).isEqualTo(-3);
+    assertThat(FixedPoint.mulDivHalfUp(20, 1, 3)).isEqualTo(7);
+  }
+
+  @Test
+  void mulDivDoesNotOverflowOnProduct() {
+    // a * b is larger than a long, but the remainder of a / c times b is not
+    assertThat(FixedPoint.mulDivHalfUp(Long.MAX_VALUE / 2, 3, 6))
+        .isEqualTo(Long.MAX_VALUE / 4 + 1);
+  }
+
+  @Test
+  void throwsInsteadOfOverflowing() {
+    assertThrows(ArithmeticException.class,
+        () -> FixedPoint.mulDivHalfUp(Long.MAX_VALUE, 2, 1));
+    assertThrows(ArithmeticException.class, () -> FixedPoint.rescale(Long.MAX_VALUE, 0, 1));
+    assertThrows(ArithmeticException.class, () -> FixedPoint.pow10(19));
+    assertThrows(ArithmeticException.class, () -> FixedPoint.mulDivHalfUp(1, 1, 0));
+  }
+
+  @Test
+  void rescales() {
+    assertThat(FixedPoint.rescale(125, 2, 4)).isEqualTo(12500);
+    assertThat(FixedPoint.rescale(125, 2, 1)).isEqualTo(13);
+    assertThat(FixedPoint.rescale(-125, 2, 1)).isEqualTo(-13);
+    assertThat(FixedPoint.rescale(124, 2, 1)).isEqualTo(12);
+  }
+}
@@ -0,0 +1,164 @@
+package com.cheemcheem.projects.energyusage.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class GroupCommitQueueTest {
+
+  private final List<List<Integer>> groups = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  void writesConcurrentItemsTogether() throws Exception {
+    var writers = 16;
+    var executor = Executors.newFixedThreadPool(writers);
+    try (var queue = GroupCommitQueue.<Integer>withThread("test-group-commit", groups::add, 100,
+        8, Duration.ofMillis(500))) {
+      var futures = new ArrayList<Future<?>>();
+      for (int i = 0; i < writers; i++) {
+        var item = i;
+        futures.add(executor.submit(() -> {
+          queue.write(item);
+        }));
+      }
+      for (var future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(groups).allMatch(group -> group.size() <= 8);
+    assertThat(groups.size()).isLessThan(writers);
+    assertThat(groups.stream().flatMap(List::stream))
+        .containsExactlyInAnyOrderElementsOf(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13,
+            14, 15));
+  }
+
+  @Test
+  void failsOnlyItemsThatFailOnTheirOwn() throws Exception {
+    var executor = Executors.newFixedThreadPool(2);
+    try (var queue = GroupCommitQueue.<Integer>withThread("test-group-commit", group -> {
+      if (group.contains(-1)) {
+        throw new IllegalArgumentException("negative");
+      }
+      groups.add(group);
+    }, 100, 8, Duration.ofMillis(500))) {
+      var good = executor.submit(() -> queue.write(1));
+      var bad = executor.submit(() -> queue.write(-1));
+
+      good.get(10, TimeUnit.SECONDS);
+      assertThatThrownBy(() -> bad.get(10, TimeUnit.SECONDS))
+          .hasCauseInstanceOf(IllegalArgumentException.class);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(groups).containsExactly(List.of(1));
+  }
+
+  @Test
+  void neverWritesItemsAgainWhenFailingAfterWritingThem() throws Exception {
+    var executor = Executors.newFixedThreadPool(2);
+    try (var queue = GroupCommitQueue.<Integer>withThread("test-group-commit", groups::add,
+        group -> {
+          throw new IllegalStateException("cache");
+        }, 100, 8, Duration.ofMillis(500), GroupCommitQueue.DEFAULT_MAX_WAIT)) {
+      var first = executor.submit(() -> queue.write(1));
+      var second = executor.submit(() -> queue.write(2));
+
+      first.get(10, TimeUnit.SECONDS);
+      second.get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(groups.stream().flatMap(List::stream)).containsExactlyInAnyOrder(1, 2);
+  }
+
+  @Test
+  void writesOnCallingThreadOnceThreadFails() throws Exception {
+    var failed = new AtomicBoolean();
+    var executor = Executors.newSingleThreadExecutor();
+    try (var queue = GroupCommitQueue.<Integer>withThread("test-group-commit", group -> {
+      if (failed.compareAndSet(false, true)) {
+        throw new NoSuchMethodError("linkage");
+      }
+      groups.add(group);
+    }, 100, 8, Duration.ofMillis(5))) {
+      var first = executor.submit(() -> queue.write(1));
+      assertThatThrownBy(() -> first.get(10, TimeUnit.SECONDS))
+          .hasRootCauseInstanceOf(NoSuchMethodError.class);
+
+      executor.submit(() -> queue.write(2)).get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(groups).containsExactly(List.of(2));
+  }
+
+  @Test
+  void writesOnCallingThreadWhenQueueTakesTooLong() throws Exception {
+    var writing = new CountDownLatch(1);
+    var blocked = new CountDownLatch(1);
+    var executor = Executors.newSingleThreadExecutor();
+    try (var queue = GroupCommitQueue.<Integer>withThread("test-group-commit", group -> {
+      if (group.contains(1)) {
+        writing.countDown();
+        awaitUninterruptibly(blocked);
+      }
+      groups.add(group);
+    }, group -> {
+    }, 100, 1, Duration.ZERO, Duration.ofMillis(100))) {
+      var first = executor.submit(() -> queue.write(1));
+      writing.await(10, TimeUnit.SECONDS);
+
+      // not taken yet, so written here, whereas the first is being written so is waited for
+      queue.write(2);
+      Thread.sleep(200);
+      assertThat(first).isNotDone();
+      blocked.countDown();
+      first.get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(groups).containsExactly(List.of(2), List.of(1));
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    while (true) {
+      try {
+        latch.await();
+        return;
+      } catch (InterruptedException e) {
+        // closing interrupts the thread of the queue, which still has to finish writing
+      }
+    }
+  }
+
+  @Test
+  void writesOnCallingThreadWhenDirectOrClosed() {
+    var direct = GroupCommitQueue.<Integer>direct(groups::add);
+    direct.write(1);
+    direct.close();
+
+    var queue = GroupCommitQueue.<Integer>withThread("test-group-commit", groups::add, 1, 8,
+        Duration.ofMillis(5));
+    queue.close();
+    queue.write(2);
+
+    assertThat(groups).containsExactly(List.of(1), List.of(2));
+  }
+}
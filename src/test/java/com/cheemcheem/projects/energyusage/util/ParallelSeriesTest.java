@@ -0,0 +1,59 @@
+package com.cheemcheem.projects.energyusage.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelSeriesTest {
+
+  private final ParallelSeries parallelSeries = ParallelSeries.withThreads(4, 100);
+
+  @AfterEach
+  void tearDown() {
+    parallelSeries.close();
+  }
+
+  @Test
+  void runsEveryPositionOnce() {
+    var counts = new AtomicIntegerArray(10_000);
+    var threads = ConcurrentHashMap.<String>newKeySet();
+
+    parallelSeries.run(counts.length(), (from, to) -> {
+      threads.add(Thread.currentThread().getName());
+      for (int i = from; i < to; i++) {
+        counts.incrementAndGet(i);
+      }
+    });
+
+    for (int i = 0; i < counts.length(); i++) {
+      assertThat(counts.get(i)).isEqualTo(1);
+    }
+    assertThat(threads).allMatch(name -> name.startsWith("parallel-series-"));
+  }
+
+  @Test
+  void keepsSmallSeriesOnTheCallingThread() {
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    parallelSeries.run(99, (from, to) -> {
+      assertThat(from).isEqualTo(0);
+      assertThat(to).isEqualTo(99);
+      threads.add(Thread.currentThread().getName());
+    });
+    ParallelSeries.SERIAL.run(10_000, (from, to) -> threads.add(Thread.currentThread().getName()));
+
+    assertThat(threads).containsExactly(Thread.currentThread().getName());
+  }
+
+  @Test
+  void throwsWhatAChunkThrows() {
+    assertThrows(IllegalStateException.class, () -> parallelSeries.run(1_000, (from, to) -> {
+      throw new IllegalStateException();
+    }));
+  }
+}
@@ -0,0 +1,53 @@
+package com.cheemcheem.projects.energyusage.util.converter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BigDecimalCodecTest {
+
+  @Test
+  void formatsAndParsesLikeBigDecimal() {
+    var random = new Random(16);
+    for (int i = 0; i < 10_000; i++) {
+      var value = new BigDecimal(new BigInteger(random.nextInt(80), random)
+          .multiply(BigInteger.valueOf(random.nextBoolean() ? 1 : -1)), random.nextInt(30) - 5);
+
+      var text = BigDecimalCodec.format(value);
+      assertThat(text).isEqualTo(value.toString());
+      assertThat(BigDecimalCodec.parse(text)).isEqualTo(new BigDecimal(text));
+      var plain = value.toPlainString();
+      assertThat(BigDecimalCodec.parse(plain)).isEqualTo(new BigDecimal(plain));
+    }
+  }
+
+  @Test
+  void keepsScaleAndZeros() {
+    for (var text : new String[]{"0", "-0", "0.00", "-0.00", "007.50", "+1.5", "1.", ".5", "-.05",
+        "123456789012345678", "1234567890123456789", "0.000001", "0.0000001", "1E+3", "1e-3"}) {
+      var expected = new BigDecimal(text);
+      var parsed = BigDecimalCodec.parse(text);
+      assertThat(parsed).isEqualTo(expected);
+      assertThat(BigDecimalCodec.format(parsed)).isEqualTo(expected.toString());
+    }
+
+    for (var invalid : new String[]{"", "-", ".", "1.2.3", "1-", "abc", "1,5"}) {
+      assertThatThrownBy(() -> BigDecimalCodec.parse(invalid))
+          .isInstanceOf(NumberFormatException.class);
+    }
+  }
+
+  @Test
+  void parsesPartOfTextAndAppendsToBuilder() {
+    var text = "01/02/2020 03:04,5.60,";
+    var value = BigDecimalCodec.parse(text, 17, 21);
+    assertThat(value).isEqualTo(new BigDecimal("5.60"));
+
+    var builder = new StringBuilder("usage=");
+    assertThat(BigDecimalCodec.append(value, builder).toString()).isEqualTo("usage=5.60");
+  }
+}
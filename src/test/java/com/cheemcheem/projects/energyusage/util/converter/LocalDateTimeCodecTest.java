@@ -0,0 +1,73 @@
+package com.cheemcheem.projects.energyusage.util.converter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LocalDateTimeCodecTest {
+
+  private static final DateTimeFormatter CSV_FORMAT = DateTimeFormatter
+      .ofPattern(LocalDateTimeConverter.CSV_PATTERN);
+  private static final DateTimeFormatter ISO_FORMAT = DateTimeFormatter
+      .ofPattern(LocalDateTimeConverter.ISO_PATTERN);
+
+  @Test
+  void formatsAndParsesLikeFormatters() {
+    var random = new Random(16);
+    var min = LocalDateTime.of(1, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    var max = LocalDateTime.of(9999, 12, 31, 23, 59).toEpochSecond(ZoneOffset.UTC);
+    for (int i = 0; i < 10_000; i++) {
+      var date = LocalDateTime.ofEpochSecond(min + (long) (random.nextDouble() * (max - min)),
+          random.nextInt(1_000_000_000), ZoneOffset.UTC);
+
+      var csv = LocalDateTimeCodec.formatCSV(date);
+      var iso = LocalDateTimeCodec.formatISO(date);
+      assertThat(csv).isEqualTo(CSV_FORMAT.format(date));
+      assertThat(iso).isEqualTo(ISO_FORMAT.format(date));
+      assertThat(LocalDateTimeCodec.parseCSV(csv)).isEqualTo(LocalDateTime.parse(csv, CSV_FORMAT));
+      assertThat(LocalDateTimeCodec.parseISO(iso)).isEqualTo(LocalDateTime.parse(iso, ISO_FORMAT));
+    }
+  }
+
+  @Test
+  void handsOtherDatesToFormatters() {
+    // corrected by the formatters to the end of the month and the next day
+    assertThat(LocalDateTimeCodec.parseCSV("31/02/2020 10:00"))
+        .isEqualTo(LocalDateTime.of(2020, 2, 29, 10, 0));
+    assertThat(LocalDateTimeCodec.parseISO("2019-04-31 00:00:00"))
+        .isEqualTo(LocalDateTime.of(2019, 4, 30, 0, 0));
+    assertThat(LocalDateTimeCodec.parseCSV("31/12/2019 24:00"))
+        .isEqualTo(LocalDateTime.of(2020, 1, 1, 0, 0));
+
+    var farFuture = LocalDateTime.of(12345, 6, 7, 8, 9, 10);
+    assertThat(LocalDateTimeCodec.formatISO(farFuture)).isEqualTo(ISO_FORMAT.format(farFuture));
+    var beforeCommonEra = LocalDateTime.of(0, 1, 1, 0, 0);
+    assertThat(LocalDateTimeCodec.formatCSV(beforeCommonEra))
+        .isEqualTo(CSV_FORMAT.format(beforeCommonEra));
+
+    for (var invalid : new String[]{"", "1/01/2020 00:00", "01/01/2020 00:60", "00/01/2020 00:00",
+        "01/13/2020 00:00", "01/01/0000 00:00", "01-01-2020 00:00", "01/01/2020 0a:00",
+        "2020-01-01 00:00:00"}) {
+      assertThatThrownBy(() -> LocalDateTimeCodec.parseCSV(invalid))
+          .isInstanceOf(DateTimeParseException.class);
+    }
+  }
+
+  @Test
+  void parsesPartOfTextAndAppendsToBuilder() {
+    var text = "reading,01/02/2020 03:04,5.6";
+    var date = LocalDateTimeCodec.parseCSV(text, 8, 24);
+    assertThat(date).isEqualTo(LocalDateTime.of(2020, 2, 1, 3, 4));
+
+    var builder = new StringBuilder("[");
+    LocalDateTimeCodec.appendISO(date, builder).append(',');
+    LocalDateTimeCodec.appendCSV(date, builder).append(']');
+    assertThat(builder.toString()).isEqualTo("[2020-02-01 03:04:00,01/02/2020 03:04]");
+  }
+}
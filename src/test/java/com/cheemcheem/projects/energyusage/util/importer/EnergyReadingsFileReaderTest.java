@@ -0,0 +1,83 @@
+package com.cheemcheem.projects.energyusage.util.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EnergyReadingsFileReaderTest {
+
+  private static final DateTimeFormatter CSV_FORMAT = DateTimeFormatter
+      .ofPattern("dd/MM/yyyy HH:mm");
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void readsChunksInParallelIntoDateOrder() throws Exception {
+    var random = new Random(21);
+    var energyReadings = new ArrayList<EnergyReading>();
+    var date = LocalDateTime.of(2018, 3, 4, 5, 30);
+    for (int i = 0; i < 5000; i++) {
+      energyReadings.add(new EnergyReading(date, BigDecimal.valueOf(900000 - i * 7L, 2)));
+      date = date.plusMinutes(30);
+    }
+    // ascending, then descending, then shuffled, so chunks need sorting and merging
+    var rows = new ArrayList<>(energyReadings.subList(0, 2000));
+    var descending = new ArrayList<>(energyReadings.subList(2000, 3500));
+    Collections.reverse(descending);
+    rows.addAll(descending);
+    var shuffled = new ArrayList<>(energyReadings.subList(3500, 5000));
+    Collections.shuffle(shuffled, random);
+    rows.addAll(shuffled);
+
+    var csv = new StringBuilder("\uFEFF");
+    for (int i = 0; i < rows.size(); i++) {
+      csv.append(CSV_FORMAT.format(rows.get(i).getDate())).append(',')
+          .append(rows.get(i).getReading().toPlainString())
+          .append(i % 3 == 0 ? "\r\n" : "\n");
+      if (i == 1234) {
+        csv.append("not a date,1\n\n");
+      }
+    }
+    var file = directory.resolve("input.csv");
+    Files.writeString(file, csv, StandardCharsets.UTF_8);
+
+    for (var chunkBytes : List.of(1000L, 4096L, Long.MAX_VALUE)) {
+      var read = EnergyReadingsFileReader.readEnergyReadings(file, chunkBytes);
+
+      assertThat(read).as("chunks of %s bytes", chunkBytes).hasSize(energyReadings.size());
+      assertThat(read.stream().map(EnergyReading::getDate).collect(Collectors.toList()))
+          .isEqualTo(energyReadings.stream().map(EnergyReading::getDate)
+              .collect(Collectors.toList()));
+      assertThat(read.stream().map(EnergyReading::getReading).collect(Collectors.toList()))
+          .isEqualTo(energyReadings.stream().map(EnergyReading::getReading)
+              .collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void readsEmptyFileAndFileWithoutTrailingNewline() throws Exception {
+    var empty = directory.resolve("empty.csv");
+    Files.writeString(empty, "");
+    assertThat(EnergyReadingsFileReader.readEnergyReadings(empty, 1000)).isEmpty();
+
+    var single = directory.resolve("single.csv");
+    Files.writeString(single, "01/02/2020 03:04,5.60");
+    assertThat(EnergyReadingsFileReader.readEnergyReadings(single, 1))
+        .extracting(EnergyReading::getReading)
+        .containsExactly(new BigDecimal("5.60"));
+  }
+}
@@ -0,0 +1,80 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.tests.util.LocalDateTimeHelper;
+import com.cheemcheem.projects.energyusage.util.mapper.EnergyReadingsMapper;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class EnergyReadingColumnsTest {
+
+  private static EnergyReading energyReading(long day, String reading) {
+    return new EnergyReading(LocalDateTimeHelper.toLocalDateTime(day * LocalDateTimeHelper.DAY),
+        new BigDecimal(reading));
+  }
+
+  private static void assertSameAsMapper(EnergyReadingColumns energyReadingColumns,
+      List<EnergyReading> energyReadings) {
+    var expected = new EnergyReadingsMapper(new ArrayList<>(energyReadings))
+        .getEnergyReadingsRange();
+    var index = energyReadingColumns.getIndex();
+    assertThat(index.subList(0, index.size())).containsExactlyElementsOf(expected);
+    assertThat(index.usageBetween(0, index.size())).isEqualTo(expected.stream()
+        .map(spendingRange -> spendingRange.getUsage())
+        .reduce(BigDecimal.ZERO, BigDecimal::add));
+  }
+
+  @Test
+  void addingInAnyOrderGivesSameRangesAsMapper() {
+    var random = new Random(1);
+    var energyReadings = new ArrayList<EnergyReading>();
+    var reading = 100000;
+    for (int day = 0; day < 200; day++) {
+      // mostly going down, with the occasional top up
+      reading += random.nextInt(10) == 0 ? 5000 : -random.nextInt(1000);
+      energyReadings.add(energyReading(day, BigDecimal.valueOf(reading, 2).toPlainString()));
+    }
+    Collections.shuffle(energyReadings, random);
+
+    var energyReadingColumns = EnergyReadingColumns.of(List.of()).orElseThrow();
+    var added = new ArrayList<EnergyReading>();
+    for (var energyReading : energyReadings) {
+      var before = energyReadingColumns.getIndex();
+      var sizeBefore = before.size();
+      var rangesBefore = new ArrayList<>(before.subList(0, sizeBefore));
+
+      assertThat(energyReadingColumns.add(energyReading.getDate(), energyReading.getReading()))
+          .isTrue();
+      added.add(energyReading);
+      assertSameAsMapper(energyReadingColumns, added);
+
+      // earlier snapshots do not change
+      assertThat(before.subList(0, sizeBefore)).isEqualTo(rangesBefore);
+    }
+  }
+
+  @Test
+  void refusesReadingsItCannotHold() {
+    var energyReadingColumns = EnergyReadingColumns.of(List.of(
+        energyReading(1, "30.0"),
+        energyReading(2, "20.0")
+    )).orElseThrow();
+
+    // same date as an existing reading
+    assertThat(energyReadingColumns.add(LocalDateTimeHelper.toLocalDateTime(
+        LocalDateTimeHelper.DAY), new BigDecimal("25.0"))).isFalse();
+    // different scale
+    assertThat(energyReadingColumns.add(LocalDateTimeHelper.toLocalDateTime(
+        3 * LocalDateTimeHelper.DAY), new BigDecimal("15"))).isFalse();
+    assertThat(energyReadingColumns.getReadingCount()).isEqualTo(2);
+
+    assertThat(EnergyReadingColumns.of(List.of(energyReading(1, "3.0"), energyReading(2, "2"))))
+        .isEmpty();
+  }
+}
@@ -0,0 +1,106 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.cheemcheem.projects.energyusage.model.EnergyReading;
+import com.cheemcheem.projects.energyusage.tests.util.LocalDateTimeHelper;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IndexSnapshotTest {
+
+  @TempDir
+  Path directory;
+
+  private Path path;
+  private EnergyReadingColumns energyReadingColumns;
+
+  @BeforeEach
+  void setup() {
+    path = directory.resolve("snapshots").resolve("spending-index.snapshot");
+
+    var random = new Random(23);
+    var energyReadings = new ArrayList<EnergyReading>();
+    var reading = 100000;
+    for (int day = 0; day < 300; day++) {
+      reading += random.nextInt(10) == 0 ? 5000 : -random.nextInt(1000);
+      energyReadings.add(new EnergyReading(
+          LocalDateTimeHelper.toLocalDateTime(day * LocalDateTimeHelper.DAY),
+          BigDecimal.valueOf(reading, 2)));
+    }
+    energyReadingColumns = EnergyReadingColumns.of(energyReadings).orElseThrow();
+  }
+
+  @Test
+  void restoresTheSameRanges() throws Exception {
+    var empty = EnergyReadingColumns.of(List.of()).orElseThrow();
+    IndexSnapshot.write(path, List.of(
+        new IndexSnapshot.Entry(1, 412, 300, energyReadingColumns.getReadings()),
+        new IndexSnapshot.Entry(2, 0, 0, empty.getReadings())
+    ));
+
+    var entries = IndexSnapshot.read(path);
+
+    assertThat(entries).hasSize(2);
+    assertThat(entries.get(0).getUserId()).isEqualTo(1);
+    assertThat(entries.get(0).getLatestEnergyReadingId()).isEqualTo(412);
+    assertThat(entries.get(0).getEnergyReadingCount()).isEqualTo(300);
+    var restored = EnergyReadingColumns.of(entries.get(0).getReadings()).orElseThrow();
+    var index = energyReadingColumns.getIndex();
+    assertThat(restored.getIndex().subList(0, restored.getIndex().size()))
+        .containsExactlyElementsOf(index.subList(0, index.size()));
+    assertThat(EnergyReadingColumns.of(entries.get(1).getReadings()).orElseThrow()
+        .getReadingCount()).isZero();
+  }
+
+  @Test
+  void refusesCorruptSnapshots() throws Exception {
+    IndexSnapshot.write(path, List.of(
+        new IndexSnapshot.Entry(1, 412, 300, energyReadingColumns.getReadings())));
+    var bytes = Files.readAllBytes(path);
+
+    bytes[100] ^= 1;
+    Files.write(path, bytes);
+    assertThatThrownBy(() -> IndexSnapshot.read(path))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("checksum");
+
+    Files.write(path, new byte[]{1, 2, 3});
+    assertThatThrownBy(() -> IndexSnapshot.read(path)).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void refusesOtherFormatVersions() throws Exception {
+    IndexSnapshot.write(path, List.of());
+    var bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+
+    // a later version, with a checksum that matches it
+    bytes.putInt(Integer.BYTES, IndexSnapshot.FORMAT_VERSION + 1);
+    var checksum = new CRC32();
+    checksum.update(bytes.array(), 0, bytes.capacity() - Long.BYTES);
+    bytes.putLong(bytes.capacity() - Long.BYTES, checksum.getValue());
+    Files.write(path, bytes.array());
+
+    assertThatThrownBy(() -> IndexSnapshot.read(path))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("format version");
+  }
+
+  @Test
+  void refusesReadingsOutOfOrder() {
+    var readings = new EnergyReadingColumns.Readings(2, new long[]{2, 1}, new long[]{10, 5});
+
+    assertThat(EnergyReadingColumns.of(readings)).isEmpty();
+  }
+}
@@ -0,0 +1,37 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.tests.util.LocalDateTimeHelper;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SpendingRangeColumnIndexTest extends SpendingRangeIndexTest {
+
+  @Override
+  SpendingRangeIndex index(Collection<SpendingRange> spendingRanges) {
+    return SpendingRangeIndex.of(SpendingRangeColumns.of(spendingRanges));
+  }
+
+  @Test
+  void columnsGiveBackTheSameRanges() {
+    var spendingRanges = List.of(
+        new SpendingRange(
+            LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY), LocalDateTimeHelper
+            .toLocalDateTime(2 * LocalDateTimeHelper.DAY + 1), new BigDecimal("1.5")),
+        new SpendingRange(
+            LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY + 1),
+            LocalDateTimeHelper.toLocalDateTime(3 * LocalDateTimeHelper.DAY),
+            new BigDecimal("0.125"))
+    );
+    var columns = SpendingRangeColumns.of(spendingRanges);
+
+    assertThat(columns).isEqualTo(spendingRanges);
+    assertThat(columns.getUsageScale()).isEqualTo(3);
+    assertThat(columns.getUnscaledUsage(0)).isEqualTo(1500);
+    assertThat(SpendingRangeIndex.of(columns)).isInstanceOf(SpendingRangeColumnIndex.class);
+  }
+}
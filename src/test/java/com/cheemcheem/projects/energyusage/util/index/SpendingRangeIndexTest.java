@@ -0,0 +1,90 @@
+package com.cheemcheem.projects.energyusage.util.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cheemcheem.projects.energyusage.model.SpendingRange;
+import com.cheemcheem.projects.energyusage.tests.util.LocalDateTimeHelper;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SpendingRangeIndexTest {
+
+  // 3 -( £10.5 )-> 4, 1 -( £10 )-> 2, 2 -( £10.25 )-> 3, given out of order
+  private final SpendingRangeIndex spendingRangeIndex = index(List.of(
+      new SpendingRange(
+          LocalDateTimeHelper.toLocalDateTime(3 * LocalDateTimeHelper.DAY), LocalDateTimeHelper
+          .toLocalDateTime(4 * LocalDateTimeHelper.DAY), new BigDecimal("10.5")),
+      new SpendingRange(
+          LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY), LocalDateTimeHelper
+          .toLocalDateTime(2 * LocalDateTimeHelper.DAY), BigDecimal.TEN),
+      new SpendingRange(
+          LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY), LocalDateTimeHelper
+          .toLocalDateTime(3 * LocalDateTimeHelper.DAY), new BigDecimal("10.25"))
+  ));
+
+  SpendingRangeIndex index(Collection<SpendingRange> spendingRanges) {
+    return new SpendingRangeListIndex(spendingRanges);
+  }
+
+  @Test
+  void sortsByStartDate() {
+    assertThat(spendingRangeIndex.size()).isEqualTo(3);
+    assertThat(spendingRangeIndex.isSearchable()).isTrue();
+    assertThat(spendingRangeIndex.get(0).getUsage()).isEqualTo(BigDecimal.TEN);
+    assertThat(spendingRangeIndex.get(2).getUsage()).isEqualTo(new BigDecimal("10.5"));
+  }
+
+  @Test
+  void findsOverlappingRanges() {
+    assertThat(spendingRangeIndex.firstEndingNotBefore(
+        LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY))).isEqualTo(0);
+    assertThat(spendingRangeIndex.firstEndingNotBefore(
+        LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY + 1))).isEqualTo(1);
+    assertThat(spendingRangeIndex.lastStartingNotAfter(
+        LocalDateTimeHelper.toLocalDateTime(3 * LocalDateTimeHelper.DAY))).isEqualTo(2);
+    assertThat(spendingRangeIndex.lastStartingNotAfter(
+        LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.HALF_DAY))).isEqualTo(-1);
+    assertThat(spendingRangeIndex.firstEndingNotBefore(
+        LocalDateTimeHelper.toLocalDateTime(5 * LocalDateTimeHelper.DAY))).isEqualTo(3);
+  }
+
+  @Test
+  void sweepMatchesBinarySearch() {
+    var sweep = spendingRangeIndex.sweep();
+    for (long time = 0; time <= 5 * LocalDateTimeHelper.DAY; time += LocalDateTimeHelper.HALF_DAY) {
+      var date = LocalDateTimeHelper.toLocalDateTime(time);
+      assertThat(sweep.firstEndingNotBefore(date))
+          .isEqualTo(spendingRangeIndex.firstEndingNotBefore(date));
+      assertThat(sweep.lastStartingNotAfter(date))
+          .isEqualTo(spendingRangeIndex.lastStartingNotAfter(date));
+    }
+
+    // moving backwards starts the sweep again
+    var date = LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY);
+    assertThat(sweep.firstEndingNotBefore(date)).isEqualTo(0);
+    assertThat(sweep.lastStartingNotAfter(date)).isEqualTo(0);
+  }
+
+  @Test
+  void usageBetweenHasScaleOfLinearSum() {
+    assertThat(spendingRangeIndex.usageBetween(0, 1)).isEqualTo(BigDecimal.TEN);
+    assertThat(spendingRangeIndex.usageBetween(1, 3)).isEqualTo(new BigDecimal("20.75"));
+    assertThat(spendingRangeIndex.usageBetween(2, 3)).isEqualTo(new BigDecimal("10.5"));
+    assertThat(spendingRangeIndex.usageBetween(1, 1)).isEqualTo(BigDecimal.ZERO);
+  }
+
+  @Test
+  void overlappingRangesAreNotSearchable() {
+    var overlapping = index(List.of(
+        new SpendingRange(
+            LocalDateTimeHelper.toLocalDateTime(LocalDateTimeHelper.DAY), LocalDateTimeHelper
+            .toLocalDateTime(4 * LocalDateTimeHelper.DAY), BigDecimal.TEN),
+        new SpendingRange(
+            LocalDateTimeHelper.toLocalDateTime(2 * LocalDateTimeHelper.DAY), LocalDateTimeHelper
+            .toLocalDateTime(3 * LocalDateTimeHelper.DAY), BigDecimal.TEN)
+    ));
+    assertThat(overlapping.isSearchable()).isFalse();
+  }
+}